@@ -0,0 +1,50 @@
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Class ConsoleEventSink prints the delivery notification of every event on
+ * the standard output, one line per event, flushing once per batch. The
+ * offices are named from the OfficeNames of the listener.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class ConsoleEventSink implements EventSink {
+
+	/**
+	 * Buffered writer on the standard output.
+	 */
+	private final Writer out = new BufferedWriter(new OutputStreamWriter(
+			new FileOutputStream(FileDescriptor.out)), 1 << 16);
+
+	/**
+	 * Names of the offices by ID.
+	 */
+	private final OfficeNames names;
+
+	/**
+	 * Constructor that creates the sink.
+	 *
+	 * @param names
+	 *            Names of the offices by ID.
+	 */
+	public ConsoleEventSink(OfficeNames names) {
+		this.names = names;
+	}
+
+	public void write(List<DeliveryEvent> events) throws IOException {
+		for (int i = 0; i < events.size(); ++i) {
+			out.write(events.get(i).getNotification(names));
+			out.write('\n');
+		}
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		out.flush();
+	}
+}
@@ -4,6 +4,7 @@ import java.rmi.server.UnicastRemoteObject;
 import edu.rit.ds.registry.RegistryEventListener;
 import edu.rit.ds.registry.RegistryEvent;
 import java.rmi.RemoteException;
+import java.util.List;
 import edu.rit.ds.registry.NotBoundException;
 import edu.rit.ds.registry.RegistryEventFilter;
 
@@ -14,7 +15,10 @@ import edu.rit.ds.registry.RegistryEventFilter;
  * RemoteEvents generated by the GPSOffice and checks if the details are about
  * the package it sent and if it is so then it prints out the details of the
  * package in route. The Customer instance's program life cycle ends when the
- * package has safely reached it's destination.
+ * package has safely reached it's destination. The events only carry the ID
+ * of their office, so the names of the offices are asked of the originating
+ * office before the package is sent, and again if an event comes from an
+ * office bound since.
  * 
  * Class Customer also has a main program that takes the user input.
  * Usage() : java Customer <host> <port> <name> <X> <Y>. 
@@ -23,6 +27,10 @@ import edu.rit.ds.registry.RegistryEventFilter;
  * <name> : Name of the city where the originating GPS office is located. 
  * <X> : Package's Destination X coordinate.
  * <Y> : Package's Destination X coordinate.
+ *
+ * Passing -load or -replay in place of <name> runs the load testing mode of
+ * class LoadGenerator instead, which sends many packages and reports the
+ * throughput and the latency of the system.
  */
 
 public class Customer {
@@ -38,6 +46,16 @@ public class Customer {
 	 */
 	private static RemoteEventListener<DeliveryEvent> nodeListener;
 
+	/**
+	 * Names of the offices by ID.
+	 */
+	private static final OfficeNames officeNames = new OfficeNames();
+
+	/**
+	 * GPSOffice object the package is sent from.
+	 */
+	private static GPSInterface origin;
+
 	/**
 	 * Final tracking number of the package sent by the customer.
 	 */
@@ -81,6 +99,8 @@ public class Customer {
 			GPSInterface gpsObj = (GPSInterface) registry.lookup(city);
 			this.packet = gpsObj.deliverPackage(destinationX, destinationY);
 			this.trackingNumber = this.packet.getTrackingNumber();
+			origin = gpsObj;
+			learnOffices();
 			gpsObj.routeMessage(this.packet, nodeListener);
 		} catch (RemoteException e) {
 			System.out.println(e.getMessage());
@@ -96,6 +116,13 @@ public class Customer {
 	 */
 	public static void main(String[] args) throws Exception {
 
+		// Run the load testing mode if it is asked for.
+		if (args.length > 2
+				&& (args[2].equals("-load") || args[2].equals("-replay"))) {
+			LoadGenerator.main(args);
+			return;
+		}
+
 		// If the required number of arguments are not entered by the user,
 		// then print the usage for the Customer class and exit.
 		if (args.length != 5) {
@@ -118,15 +145,24 @@ public class Customer {
 
 		// Instantiate the RemoteEventListener to listen to any events of type
 		// DeliveryEvent.
-		nodeListener = new RemoteEventListener<DeliveryEvent>() {
+		nodeListener = new DeliveryListener() {
+			public void reportBatch(List<DeliveryEvent> events) {
+				for (DeliveryEvent event : events) {
+					report(0, event);
+				}
+			}
+
 			public void report(long seqnum, DeliveryEvent event) {
 				// Print the delivery notification.
-				System.out.println(event.deliveryNotification);
+				if (!officeNames.contains(event.getOfficeId())) {
+					learnOffices();
+				}
+				System.out.println(event.getNotification(officeNames));
 				// Exit the program if the message has been delivered or has
 				// been dropped.
-				if (event.deliverySuccess == 1) {
+				if (event.getDeliverySuccess() == 1) {
 					System.exit(0);
-				} else if (event.deliverySuccess == 2) {
+				} else if (event.getDeliverySuccess() == 2) {
 					System.exit(1);
 				}
 
@@ -168,6 +204,21 @@ public class Customer {
 		}
 	}
 
+	/**
+	 * Function that learns the names of the offices bound in the registry
+	 * from the descriptors known to the originating office.
+	 */
+	private static synchronized void learnOffices() {
+		try {
+			OfficeDescriptor descriptor = origin.getDescriptor();
+			officeNames.put(descriptor.getOfficeId(), descriptor.getName());
+			officeNames.putAll(origin.getDescriptors(registry
+					.list("GPSOffice")));
+		} catch (RemoteException exc) {
+			// The offices not learnt are shown by their IDs.
+		}
+	}
+
 	/**
 	 * Function that returns a string that tells the user how the program is
 	 * expected to be compiled and also explains what each command line argument
@@ -184,6 +235,8 @@ public class Customer {
 				+ " GPS office is located.\n";
 		usageString += "<X> : Package's Destination X coordinate.\n";
 		usageString += "<Y> : Package's Destination X coordinate.\n";
+		usageString += "Use -load or -replay in place of <name> for"
+				+ " the load testing mode.\n";
 		System.out.println(usageString);
 		System.exit(1);
 	}
@@ -1,48 +1,287 @@
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import edu.rit.ds.RemoteEvent;
 
 /**
  * Delivery Event class that is exchanged between the RemoteEventGenerator and
  * RemoteEventListener to send and receive messages respectively.
  * The GPSOffice object creates a new object of this class everytime it generates a
- * new RemoteEvent. The Customer and Headquarters object intercepts this object and 
+ * new RemoteEvent. The Customer and Headquarters object intercepts this object and
  * displays it in it's terminal.
- * 
+ *
+ * The event only carries a status code, the tracking number, the ID of the
+ * office, the destination coordinates and the hop count of the package,
+ * written in a compact binary form.
+ * The notification sentence is built from them only when a listener asks for
+ * it, with the name of the office looked up in the OfficeNames of the
+ * listener.
+ *
  * @author Hitesh Chidambar Kotian(hxk6871)
  */
-public class DeliveryEvent extends RemoteEvent {
-	
+public class DeliveryEvent extends RemoteEvent implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Status codes of the event.
+	 */
+	public static final int ARRIVED = 0;
+	public static final int DEPARTED = 1;
+	public static final int DELIVERED = 2;
+	public static final int LOST = 3;
+
 	/**
-	 *  The delivery notification sent form the GPSIffice object to the client.
+	 * Status code of the event.
 	 */
-	public final String deliveryNotification;
-	
+	private int status;
+
 	/**
 	 *  Tracking number of the package whose notification is sent by the GPSOffice
 	 *  object.
 	 */
-	public final long trackingNumber;
+	private long trackingNumber;
+
+	/**
+	 * ID of the office that generated the event, as in its tracking numbers.
+	 */
+	private int office;
+
+	/**
+	 * Coordinates of the destination of the package.
+	 */
+	private double x;
+	private double y;
+
+	/**
+	 * Number of times the package had been forwarded when the event was
+	 * generated.
+	 */
+	private int hops;
 
 	/**
-	 *  A constant flag that determines the status of a packet.
-	 *  0 - The package is still in transit.
-	 *  1 - The package has successfully reached it's destination.
-	 *  2 - The package has been dropped.
+	 * The delivery notification built from the other properties, once it is
+	 * asked for.
 	 */
-	public final int deliverySuccess;
+	private transient String deliveryNotification;
+
+	/**
+	 * Constructor used by the deserialization only.
+	 */
+	public DeliveryEvent() {
+	}
 
 	/**
 	 * Constructor that initializes the properties of the class.
-	 * 
-	 * @param notification
-	 * 		The event notification message.
+	 *
+	 * @param status
+	 * 		The status code of the event.
 	 * @param trackingNumber
 	 * 		The tracking number of the package.
-	 * @param delivery
-	 * 		The status of delivery of the package.
+	 * @param office
+	 * 		The ID of the office generating the event.
+	 * @param x
+	 * 		The x coordinate of the destination of the package.
+	 * @param y
+	 * 		The y coordinate of the destination of the package.
+	 */
+	public DeliveryEvent(int status, long trackingNumber, int office,
+			double x, double y) {
+		this(status, trackingNumber, office, x, y, 0);
+	}
+
+	/**
+	 * Constructor that initializes the properties of the class, including the
+	 * hop count of the package.
+	 *
+	 * @param status
+	 * 		The status code of the event.
+	 * @param trackingNumber
+	 * 		The tracking number of the package.
+	 * @param office
+	 * 		The ID of the office generating the event.
+	 * @param x
+	 * 		The x coordinate of the destination of the package.
+	 * @param y
+	 * 		The y coordinate of the destination of the package.
+	 * @param hops
+	 * 		The number of times the package has been forwarded.
 	 */
-	public DeliveryEvent(String notification, long trackingNumber, int delivery) {
-		this.deliveryNotification = notification;
+	public DeliveryEvent(int status, long trackingNumber, int office,
+			double x, double y, int hops) {
+		this.status = status;
 		this.trackingNumber = trackingNumber;
-		this.deliverySuccess = delivery;
+		this.office = office;
+		this.x = x;
+		this.y = y;
+		this.hops = hops;
+	}
+
+	/**
+	 * Function returning the status code of the event.
+	 *
+	 * @return int
+	 * 		ARRIVED, DEPARTED, DELIVERED or LOST.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Function returning the status of delivery of the package.
+	 * 0 - The package is still in transit.
+	 * 1 - The package has successfully reached it's destination.
+	 * 2 - The package has been dropped.
+	 *
+	 * @return int
+	 * 		The status of delivery of the package.
+	 */
+	public int getDeliverySuccess() {
+		switch (status) {
+		case DELIVERED:
+			return 1;
+		case LOST:
+			return 2;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Function returning the tracking number of the package.
+	 *
+	 * @return long
+	 * 		The tracking number of the package.
+	 */
+	public long getTrackingNumber() {
+		return trackingNumber;
+	}
+
+	/**
+	 * Function returning the ID of the office that generated the event.
+	 *
+	 * @return int
+	 * 		The ID of the office.
+	 */
+	public int getOfficeId() {
+		return office;
+	}
+
+	/**
+	 * Function returning the x coordinate of the destination of the package.
+	 *
+	 * @return double
+	 * 		The x coordinate of the destination.
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Function returning the y coordinate of the destination of the package.
+	 *
+	 * @return double
+	 * 		The y coordinate of the destination.
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Function returning the number of times the package had been forwarded
+	 * when the event was generated.
+	 *
+	 * @return int
+	 * 		The hop count of the package.
+	 */
+	public int getHops() {
+		return hops;
+	}
+
+	/**
+	 * Function returning the delivery notification of the event. It is built
+	 * the first time it is asked for, with the name of the office looked up
+	 * in the given names.
+	 *
+	 * @param names
+	 * 		Names of the offices by ID.
+	 *
+	 * @return String
+	 * 		The event notification message.
+	 */
+	public String getNotification(OfficeNames names) {
+		if (deliveryNotification == null) {
+			deliveryNotification = notification(names.get(office));
+		}
+		return deliveryNotification;
+	}
+
+	/**
+	 * Function building the delivery notification of the event for the name
+	 * of its office.
+	 */
+	private String notification(String office) {
+		switch (status) {
+		case ARRIVED:
+			return "Package number " + trackingNumber + " arrived at "
+					+ office + " office";
+		case DEPARTED:
+			return "Package " + trackingNumber + " departed from " + office
+					+ " office";
+		case DELIVERED:
+			return "Package number " + trackingNumber + " delivered from "
+					+ office + " office to (" + x + ", " + y + ")";
+		default:
+			return "Packet number " + trackingNumber + " lost by " + office
+					+ " office";
+		}
+	}
+
+	/**
+	 * Function that writes the event in its binary form.
+	 *
+	 * @param out
+	 * 		The stream to write to.
+	 *
+	 * @exception IOException
+	 * 		Thrown if an I/O error occurs.
+	 */
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeByte(status);
+		out.writeLong(trackingNumber);
+		out.writeInt(office);
+		out.writeDouble(x);
+		out.writeDouble(y);
+		out.writeShort(hops);
+	}
+
+	/**
+	 * Function that reads the event from its binary form.
+	 *
+	 * @param in
+	 * 		The stream to read from.
+	 *
+	 * @exception IOException
+	 * 		Thrown if an I/O error occurs.
+	 */
+	public void readExternal(ObjectInput in) throws IOException {
+		status = in.readByte();
+		trackingNumber = in.readLong();
+		office = in.readInt();
+		x = in.readDouble();
+		y = in.readDouble();
+		hops = in.readUnsignedShort();
+	}
+
+	/**
+	 * Function returning the event as its delivery notification, so that the
+	 * event can be printed as it is. The office is shown by its ID, as #<id>.
+	 *
+	 * @return String
+	 * 		The event notification message.
+	 */
+	public String toString() {
+		return notification("#" + office);
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+import java.rmi.RemoteException;
+import java.util.List;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * The Java RMI remote interface of a RemoteEventListener that can receive
+ * several DeliveryEvent objects in a single remote call. The GPSOffice object
+ * sends the events queued for a listener implementing this interface in
+ * batches, and one at a time to any other listener.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ * 
+ */
+public interface DeliveryListener extends RemoteEventListener<DeliveryEvent> {
+
+	/**
+	 * Function that receives a batch of events.
+	 * 
+	 * @param events
+	 *            The events, in the order they were generated.
+	 * 
+	 * @exception RemoteException
+	 *                thrown when a remote error is encountered.
+	 */
+	public void reportBatch(List<DeliveryEvent> events) throws RemoteException;
+
+}
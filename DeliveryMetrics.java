@@ -0,0 +1,127 @@
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Class DeliveryMetrics is an EventSink of the Headquarters aggregating the
+ * end-to-end figures of the packages: how many are delivered and lost, how
+ * long a package takes from its creation to its delivery and through how many
+ * offices it is forwarded. The creation time of a package is read from its
+ * tracking number, see class TrackingNumberGenerator, and its hop count from
+ * the event, so no state is kept per package. The metrics can be read through
+ * JMX once they are registered.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class DeliveryMetrics implements EventSink, DeliveryMetricsMXBean {
+
+	/**
+	 * Counters of the packages.
+	 */
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong lost = new AtomicLong();
+
+	/**
+	 * Distributions of the latency in milliseconds and of the hop count.
+	 */
+	private final Histogram deliveryLatency = new Histogram();
+	private final Histogram hopCount = new Histogram();
+
+	/**
+	 * Function that registers the metrics with the platform MBean server.
+	 * 
+	 * @return boolean True if the metrics were registered.
+	 */
+	public boolean register() {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+					new ObjectName("gps:type=Headquarters"));
+			return true;
+		} catch (JMException exc) {
+			return false;
+		}
+	}
+
+	/**
+	 * Function that counts the packages delivered and lost in a batch of
+	 * events, and records the latency and the hop count of the packages
+	 * delivered.
+	 * 
+	 * @param events
+	 *            The events, in the order they were received.
+	 */
+	public void write(List<DeliveryEvent> events) {
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < events.size(); ++i) {
+			DeliveryEvent event = events.get(i);
+			if (event.getStatus() == DeliveryEvent.DELIVERED) {
+				delivered.incrementAndGet();
+				deliveryLatency.record(now
+						- TrackingNumberGenerator.timeOf(event
+								.getTrackingNumber()));
+				hopCount.record(event.getHops());
+			} else if (event.getStatus() == DeliveryEvent.LOST) {
+				lost.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Function that closes the sink. The metrics are kept in memory only, so
+	 * there is nothing to release.
+	 */
+	public void close() {
+	}
+
+	/**
+	 * Function returning the number of packages delivered.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getDelivered() {
+		return delivered.get();
+	}
+
+	/**
+	 * Function returning the number of packages lost.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getLost() {
+		return lost.get();
+	}
+
+	/**
+	 * Function returning the distribution of the time from the creation of a
+	 * package to its delivery.
+	 * 
+	 * @return HistogramSnapshot The latencies in milliseconds.
+	 */
+	public HistogramSnapshot getDeliveryLatency() {
+		return deliveryLatency.snapshot();
+	}
+
+	/**
+	 * Function returning the distribution of the number of hops of the
+	 * packages delivered.
+	 * 
+	 * @return HistogramSnapshot The hop counts.
+	 */
+	public HistogramSnapshot getHopCount() {
+		return hopCount.snapshot();
+	}
+
+	/**
+	 * Function returning the counters and the distributions, one distribution
+	 * per line.
+	 * 
+	 * @return String The metrics.
+	 */
+	public String toString() {
+		return "DeliveryMetrics delivered " + getDelivered() + ", lost "
+				+ getLost() + "\nlatency (ms) " + deliveryLatency
+				+ "\nhops " + hopCount;
+	}
+}
@@ -0,0 +1,38 @@
+/**
+ * Interface DeliveryMetricsMXBean is the management interface of the delivery
+ * metrics of the Headquarters, under the JMX name gps:type=Headquarters.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public interface DeliveryMetricsMXBean {
+
+	/**
+	 * Function returning the number of packages reported delivered.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getDelivered();
+
+	/**
+	 * Function returning the number of packages reported lost.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getLost();
+
+	/**
+	 * Function returning the time in milliseconds from the creation of a
+	 * package to the reception of its delivery by the Headquarters.
+	 * 
+	 * @return HistogramSnapshot The distribution of the latency.
+	 */
+	public HistogramSnapshot getDeliveryLatency();
+
+	/**
+	 * Function returning the number of times a delivered package was
+	 * forwarded.
+	 * 
+	 * @return HistogramSnapshot The distribution of the hop count.
+	 */
+	public HistogramSnapshot getHopCount();
+}
@@ -0,0 +1,133 @@
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.RemoteObject;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import edu.rit.ds.Lease;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * Class DirectTransport reaches the GPSOffice objects exported by the same JVM
+ * by calling them directly, without the stub, the serialization and the
+ * loopback connection of RMI. The packages, which are immutable, and the
+ * listeners are passed by reference, so a listener exported by the JVM is
+ * called directly as well.
+ *
+ * An office registers itself once it is exported. The stub looked up in a
+ * registry is equal to the stub of the office it refers to, so the office is
+ * found from the stub whatever the registry. Once the office is unregistered
+ * every call through the transport fails with a NoSuchObjectException, as a
+ * call through the stub of an unexported object does.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class DirectTransport implements Transport {
+
+	/**
+	 * Map storing the stubs of the offices exported by the JVM to their links.
+	 */
+	private static final ConcurrentHashMap<Remote, Link> links = new ConcurrentHashMap<Remote, Link>();
+
+	/**
+	 * Function that makes an exported office reachable through the transport.
+	 *
+	 * @param office
+	 *            The office.
+	 *
+	 * @exception NoSuchObjectException
+	 *                Thrown if the office is not exported.
+	 */
+	public static void register(GPSInterface office)
+			throws NoSuchObjectException {
+		links.put(RemoteObject.toStub(office), new Link(office));
+	}
+
+	/**
+	 * Function that stops the calls to an office through the transport.
+	 *
+	 * @param office
+	 *            The office.
+	 */
+	public static void unregister(GPSInterface office) {
+		try {
+			Link link = links.remove(RemoteObject.toStub(office));
+			if (link != null) {
+				link.live = false;
+			}
+		} catch (NoSuchObjectException exc) {
+		}
+	}
+
+	public GPSInterface connect(GPSInterface reference) {
+		if (reference instanceof Link) {
+			return reference;
+		}
+		return links.get(reference);
+	}
+
+	/**
+	 * GPSInterface calling an office of the JVM directly.
+	 */
+	private static class Link implements GPSInterface {
+		private final GPSInterface office;
+		private volatile boolean live = true;
+
+		private Link(GPSInterface office) {
+			this.office = office;
+		}
+
+		/**
+		 * Function returning the office, unless it has been unregistered.
+		 */
+		private GPSInterface office() throws NoSuchObjectException {
+			if (!live) {
+				throw new NoSuchObjectException("GPSOffice is no longer exported");
+			}
+			return office;
+		}
+
+		public void routeMessage(Package packet,
+				RemoteEventListener<DeliveryEvent> nodeListener)
+				throws RemoteException {
+			office().routeMessage(packet, nodeListener);
+		}
+
+		public void routeMessages(List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners)
+				throws RemoteException {
+			office().routeMessages(packets, nodeListeners);
+		}
+
+		public String getName() throws RemoteException {
+			return office().getName();
+		}
+
+		public double getX() throws RemoteException {
+			return office().getX();
+		}
+
+		public double getY() throws RemoteException {
+			return office().getY();
+		}
+
+		public OfficeDescriptor getDescriptor() throws RemoteException {
+			return office().getDescriptor();
+		}
+
+		public List<OfficeDescriptor> getDescriptors(List<String> names)
+				throws RemoteException {
+			return office().getDescriptors(names);
+		}
+
+		public Lease addListener(RemoteEventListener<DeliveryEvent> listener)
+				throws RemoteException {
+			return office().addListener(listener);
+		}
+
+		public Package deliverPackage(double X, double Y)
+				throws RemoteException {
+			return office().deliverPackage(X, Y);
+		}
+	}
+}
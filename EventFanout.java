@@ -0,0 +1,155 @@
+import java.rmi.RemoteException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import edu.rit.ds.Lease;
+import edu.rit.ds.RemoteEventGenerator;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * Class EventFanout delivers the DeliveryEvent objects of a GPSOffice object
+ * to its listeners: the listeners that asked for a Lease through addListener(),
+ * such as the Headquarters, and the listener of the customer of each package.
+ * Every listener gets its own ListenerChannel, so reporting an event only
+ * queues it and a slow or dead listener only delays itself.
+ * 
+ * The leased listeners are still registered with a RemoteEventGenerator, which
+ * manages their leases and reports the events to their channels. The channels
+ * of the customers are kept in a map keyed on the listener, and are removed
+ * once they have been idle for a while. The channel of an evicted customer
+ * stays in the map and drops the events of the customer, until the customer
+ * has sent no package through the office for a while.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class EventFanout {
+
+	/**
+	 * Remote event generator reporting the events to the channels of the
+	 * leased listeners.
+	 */
+	private final RemoteEventGenerator<DeliveryEvent> eventGenerator;
+
+	/**
+	 * Map storing the listener of every customer to its channel.
+	 */
+	private final ConcurrentHashMap<RemoteEventListener<DeliveryEvent>, ListenerChannel> customerChannels = new ConcurrentHashMap<RemoteEventListener<DeliveryEvent>, ListenerChannel>();
+
+	/**
+	 * Threads sending the events of all the channels, or a virtual thread for
+	 * every send if the virtual threads are used.
+	 */
+	private final ExecutorService senders;
+
+	/**
+	 * Capacity of the queue of a channel.
+	 */
+	private final int capacity;
+
+	/**
+	 * Number of failed calls in a row after which a listener is evicted.
+	 */
+	private final int maxFailures;
+
+	/**
+	 * Constructor that creates the fan-out.
+	 * 
+	 * @param senderCount
+	 *            Number of platform threads sending the events.
+	 * @param capacity
+	 *            Capacity of the queue of a channel.
+	 * @param maxFailures
+	 *            Number of failed calls in a row after which a listener is
+	 *            evicted.
+	 */
+	public EventFanout(int senderCount, int capacity, int maxFailures) {
+		this.eventGenerator = new RemoteEventGenerator<DeliveryEvent>();
+		this.senders = VirtualThreads.newExecutor(senderCount);
+		this.capacity = capacity;
+		this.maxFailures = maxFailures;
+	}
+
+	/**
+	 * Function that adds a listener to all the events of the office.
+	 * 
+	 * @param listener
+	 *            The remote listener.
+	 * 
+	 * @return Lease The lease of the listener.
+	 * 
+	 * @exception RemoteException
+	 *                Thrown when a remote error occurs.
+	 */
+	public Lease addListener(RemoteEventListener<DeliveryEvent> listener)
+			throws RemoteException {
+		ListenerChannel channel = new ListenerChannel(listener, capacity,
+				maxFailures, senders);
+		Lease lease = eventGenerator.addListener(channel);
+		channel.setLease(lease);
+		return lease;
+	}
+
+	/**
+	 * Function that reports an event to all the leased listeners and to the
+	 * listener of the customer of the package.
+	 * 
+	 * @param customerListener
+	 *            The listener of the customer, or null.
+	 * @param event
+	 *            The event.
+	 */
+	public void report(RemoteEventListener<DeliveryEvent> customerListener,
+			DeliveryEvent event) {
+		eventGenerator.reportEvent(event);
+		if (customerListener == null) {
+			return;
+		}
+		while (true) {
+			ListenerChannel channel = customerChannels.get(customerListener);
+			if (channel == null) {
+				ListenerChannel newChannel = new ListenerChannel(
+						customerListener, capacity, maxFailures, senders);
+				channel = customerChannels.putIfAbsent(customerListener,
+						newChannel);
+				if (channel == null) {
+					channel = newChannel;
+				}
+			}
+			if (channel.offer(event) || channel.isEvicted()) {
+				// The event is queued, or dropped if the customer has been
+				// evicted.
+				return;
+			}
+			// The channel was closed for being idle in the meantime, use a
+			// new one.
+			customerChannels.remove(customerListener, channel);
+		}
+	}
+
+	/**
+	 * Function that removes the channels of the customers that have been
+	 * idle for the given time, evicted or not.
+	 * 
+	 * @param idleTime
+	 *            Time in milliseconds.
+	 */
+	public void sweep(long idleTime) {
+		Iterator<Map.Entry<RemoteEventListener<DeliveryEvent>, ListenerChannel>> entries = customerChannels
+				.entrySet().iterator();
+		while (entries.hasNext()) {
+			if (entries.next().getValue().closeIfIdle(idleTime)) {
+				entries.remove();
+			}
+		}
+	}
+
+	/**
+	 * Function returning the number of customer channels.
+	 * 
+	 * @return int The number of customer channels.
+	 */
+	public int customerChannels() {
+		return customerChannels.size();
+	}
+}
@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class EventPipeline decouples the reception of the DeliveryEvent objects by
+ * the Headquarters from their output. The RMI threads calling the listener of
+ * the Headquarters only put the event in a bounded RingBuffer and return, so a
+ * slow terminal or disk can no longer slow down the event generators of the
+ * GPSOffice objects. A single consumer thread takes the events out of the
+ * buffer in batches and writes them to every EventSink.
+ *
+ * When the buffer is full the event is dropped and counted rather than
+ * blocking the caller. The number of events published, written and dropped,
+ * and the lag between the producers and the consumer, are exposed by the
+ * pipeline.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class EventPipeline {
+
+	/**
+	 * Largest number of events written to the sinks in one batch.
+	 */
+	private static final int BATCH_SIZE = 1024;
+
+	/**
+	 * Buffer between the producers and the consumer.
+	 */
+	private final RingBuffer<DeliveryEvent> buffer;
+
+	/**
+	 * Sinks the events are written to.
+	 */
+	private final List<EventSink> sinks;
+
+	/**
+	 * Counters of the events.
+	 */
+	private final AtomicLong published = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong consumed = new AtomicLong();
+	private final AtomicLong sinkErrors = new AtomicLong();
+
+	/**
+	 * Thread draining the buffer.
+	 */
+	private final Thread consumer;
+
+	/**
+	 * Set when the pipeline is being closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Constructor that creates the pipeline and starts its consumer thread.
+	 *
+	 * @param capacity
+	 *            Capacity of the buffer.
+	 * @param sinks
+	 *            Sinks the events are written to.
+	 */
+	public EventPipeline(int capacity, List<EventSink> sinks) {
+		this.buffer = new RingBuffer<DeliveryEvent>(capacity);
+		this.sinks = new ArrayList<EventSink>(sinks);
+		this.consumer = new Thread(new Runnable() {
+			public void run() {
+				consume();
+			}
+		}, "EventPipeline");
+		this.consumer.setDaemon(true);
+		this.consumer.start();
+	}
+
+	/**
+	 * Function that publishes an event to the pipeline. It never blocks.
+	 *
+	 * @param event
+	 *            The event.
+	 *
+	 * @return boolean True if the event was accepted, false if it was dropped
+	 *         because the buffer is full.
+	 */
+	public boolean publish(DeliveryEvent event) {
+		if (buffer.offer(event)) {
+			published.incrementAndGet();
+			if (buffer.size() == 1) {
+				LockSupport.unpark(consumer);
+			}
+			return true;
+		}
+		dropped.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Function run by the consumer thread, writing the events to the sinks
+	 * in batches until the pipeline is closed and the buffer is empty.
+	 */
+	private void consume() {
+		List<DeliveryEvent> batch = new ArrayList<DeliveryEvent>(BATCH_SIZE);
+		while (true) {
+			batch.clear();
+			if (buffer.drain(batch, BATCH_SIZE) == 0) {
+				if (closed) {
+					break;
+				}
+				LockSupport.parkNanos(1000000L);
+				continue;
+			}
+			for (EventSink sink : sinks) {
+				try {
+					sink.write(batch);
+				} catch (IOException exc) {
+					sinkErrors.incrementAndGet();
+				}
+			}
+			consumed.addAndGet(batch.size());
+		}
+		for (EventSink sink : sinks) {
+			try {
+				sink.close();
+			} catch (IOException exc) {
+				sinkErrors.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Function that closes the pipeline once the events in the buffer have
+	 * been written and the sinks have been closed.
+	 *
+	 * @exception InterruptedException
+	 *                Thrown if the calling thread is interrupted.
+	 */
+	public void close() throws InterruptedException {
+		closed = true;
+		LockSupport.unpark(consumer);
+		consumer.join();
+	}
+
+	/**
+	 * Function returning the number of events accepted by the pipeline.
+	 *
+	 * @return long The number of events published.
+	 */
+	public long getPublished() {
+		return published.get();
+	}
+
+	/**
+	 * Function returning the number of events written to the sinks.
+	 *
+	 * @return long The number of events consumed.
+	 */
+	public long getConsumed() {
+		return consumed.get();
+	}
+
+	/**
+	 * Function returning the number of events dropped because the buffer was
+	 * full.
+	 *
+	 * @return long The number of events dropped.
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * Function returning the number of events accepted but not yet written.
+	 *
+	 * @return long The lag of the consumer.
+	 */
+	public long getLag() {
+		return published.get() - consumed.get();
+	}
+
+	/**
+	 * Function returning the number of failed writes to the sinks.
+	 *
+	 * @return long The number of sink errors.
+	 */
+	public long getSinkErrors() {
+		return sinkErrors.get();
+	}
+
+	/**
+	 * Function returning the counters of the pipeline on a single line, as
+	 * printed by the Headquarters when it exits and every statistics interval.
+	 *
+	 * @return String The counters.
+	 */
+	public String toString() {
+		return "EventPipeline published " + getPublished() + ", consumed "
+				+ getConsumed() + ", dropped " + getDropped() + ", lag "
+				+ getLag() + ", sink errors " + getSinkErrors();
+	}
+}
@@ -0,0 +1,33 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Interface EventSink is a destination of the DeliveryEvent objects received
+ * by the Headquarters, such as the console or a log file. The EventPipeline
+ * hands the events to a sink in batches from a single thread, so a sink needs
+ * no synchronization and should buffer its output, flushing it once per
+ * batch.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public interface EventSink {
+
+	/**
+	 * Function that writes a batch of events.
+	 *
+	 * @param events
+	 *            The events, in the order they were received.
+	 *
+	 * @exception IOException
+	 *                Thrown if an I/O error occurs.
+	 */
+	public void write(List<DeliveryEvent> events) throws IOException;
+
+	/**
+	 * Function that closes the sink after writing out any buffered output.
+	 *
+	 * @exception IOException
+	 *                Thrown if an I/O error occurs.
+	 */
+	public void close() throws IOException;
+}
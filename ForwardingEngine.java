@@ -0,0 +1,333 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * Class ForwardingEngine forwards the packages of a GPSOffice object to its
+ * next hops. Every next hop has its own lane, a queue of the packages headed
+ * for it that is sent by at most one worker at a time, so the packages to the
+ * same next hop keep their order while the lanes of different next hops are
+ * sent in parallel by the workers of the pool.
+ *
+ * The first package queued in an idle lane schedules the lane to be sent once
+ * the batch window is over, and the worker then sends all the packages queued
+ * by that time, in batches, before the lane becomes idle again. The lanes can
+ * be sent by the pool that times the batch windows or handed to another
+ * executor, such as one running every send on a virtual thread.
+ *
+ * A next hop reached through a PipelinedLink is sent the batches of its lane
+ * one after the other without waiting for each to be accepted, and the
+ * callback is told of every batch once the next hop has answered for it.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class ForwardingEngine {
+
+	/**
+	 * Interface of the object told whether a batch was forwarded.
+	 */
+	public interface Callback {
+
+		/**
+		 * Function called when a batch has been accepted by a next hop.
+		 *
+		 * @param destination
+		 *            Name of the next hop.
+		 * @param packets
+		 *            The packages of the batch.
+		 */
+		public void forwarded(String destination, List<Package> packets);
+
+		/**
+		 * Function called when a batch could not be forwarded to a next hop.
+		 *
+		 * @param destination
+		 *            Name of the next hop.
+		 * @param packets
+		 *            The packages of the batch.
+		 * @param nodeListeners
+		 *            The listeners of the packages, in the same order.
+		 * @param exc
+		 *            The exception thrown by the next hop.
+		 */
+		public void forwardFailed(String destination, List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners,
+				Exception exc);
+	}
+
+	/**
+	 * Largest number of packages sent in one call.
+	 */
+	private static final int BATCH_SIZE = 512;
+
+	/**
+	 * Workers timing the batch windows.
+	 */
+	private final ScheduledExecutorService workers;
+
+	/**
+	 * Executor sending the lanes.
+	 */
+	private final Executor senders;
+
+	/**
+	 * Time in milliseconds the packages of an idle lane are collected before
+	 * they are sent.
+	 */
+	private final long batchWindow;
+
+	/**
+	 * Object told whether a batch was forwarded.
+	 */
+	private final Callback callback;
+
+	/**
+	 * Metrics of the office, recording the time the packages wait in the
+	 * lanes and the time of the remote calls.
+	 */
+	private final OfficeMetrics metrics;
+
+	/**
+	 * Map storing the name of a next hop to its lane.
+	 */
+	private final ConcurrentHashMap<String, Lane> lanes = new ConcurrentHashMap<String, Lane>();
+
+	/**
+	 * Constructor that creates the engine.
+	 *
+	 * @param workers
+	 *            Workers timing the batch windows.
+	 * @param senders
+	 *            Executor sending the lanes, which may be the workers.
+	 * @param batchWindow
+	 *            Time in milliseconds the packages of an idle lane are
+	 *            collected before they are sent.
+	 * @param callback
+	 *            Object told whether a batch was forwarded.
+	 * @param metrics
+	 *            Metrics of the office.
+	 */
+	public ForwardingEngine(ScheduledExecutorService workers,
+			Executor senders, long batchWindow, Callback callback,
+			OfficeMetrics metrics) {
+		this.workers = workers;
+		this.senders = senders;
+		this.batchWindow = batchWindow;
+		this.callback = callback;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Function that queues a package in the lane of its next hop.
+	 *
+	 * @param destination
+	 *            Name of the next hop.
+	 * @param routingNode
+	 *            Object reference to the next hop.
+	 * @param packet
+	 *            Package object that has to be delivered.
+	 * @param nodeListener
+	 *            The RemoteEventListener of the customer object sending the
+	 *            packet.
+	 */
+	public void forward(String destination, GPSInterface routingNode,
+			Package packet, RemoteEventListener<DeliveryEvent> nodeListener) {
+		Lane lane = lanes.get(destination);
+		if (lane == null) {
+			Lane newLane = new Lane(destination);
+			lane = lanes.putIfAbsent(destination, newLane);
+			if (lane == null) {
+				lane = newLane;
+			}
+		}
+		lane.routingNode = routingNode;
+		lane.queue.add(new Item(packet, nodeListener));
+		lane.schedule(batchWindow);
+	}
+
+	/**
+	 * Function that removes the lane of a next hop that has left. Packages
+	 * still queued in it are sent, or reported as failed, first.
+	 *
+	 * @param destination
+	 *            Name of the next hop.
+	 */
+	public void removeLane(String destination) {
+		Lane lane = lanes.get(destination);
+		if (lane != null && lane.queue.isEmpty()) {
+			lanes.remove(destination, lane);
+		}
+	}
+
+	/**
+	 * Function returning the number of packages queued in all the lanes.
+	 *
+	 * @return int The number of packages queued.
+	 */
+	public int queued() {
+		int count = 0;
+		for (Lane lane : lanes.values()) {
+			count += lane.queue.size();
+		}
+		return count;
+	}
+
+	/**
+	 * A package queued in a lane with the listener of its customer.
+	 */
+	private static class Item {
+		final Package packet;
+		final RemoteEventListener<DeliveryEvent> nodeListener;
+		final long queued = System.nanoTime();
+
+		Item(Package packet, RemoteEventListener<DeliveryEvent> nodeListener) {
+			this.packet = packet;
+			this.nodeListener = nodeListener;
+		}
+	}
+
+	/**
+	 * The queue of the packages headed for one next hop.
+	 */
+	private class Lane implements Runnable {
+
+		/**
+		 * Name of the next hop.
+		 */
+		final String destination;
+
+		/**
+		 * Latest object reference to the next hop.
+		 */
+		volatile GPSInterface routingNode;
+
+		/**
+		 * Packages waiting to be sent.
+		 */
+		final ConcurrentLinkedQueue<Item> queue = new ConcurrentLinkedQueue<Item>();
+
+		/**
+		 * Set while the lane is scheduled or being sent.
+		 */
+		final AtomicBoolean scheduled = new AtomicBoolean();
+
+		Lane(String destination) {
+			this.destination = destination;
+		}
+
+		/**
+		 * Function that schedules the lane unless it is already scheduled.
+		 */
+		void schedule(long delay) {
+			if (!scheduled.compareAndSet(false, true)) {
+				return;
+			}
+			if (senders == workers) {
+				workers.schedule(this, delay, TimeUnit.MILLISECONDS);
+			} else if (delay == 0) {
+				senders.execute(this);
+			} else {
+				workers.schedule(new Runnable() {
+					public void run() {
+						senders.execute(Lane.this);
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		/**
+		 * Function run by a worker, which sends the queued packages in
+		 * batches until the lane is empty.
+		 */
+		public void run() {
+			List<Package> packets = new ArrayList<Package>();
+			List<RemoteEventListener<DeliveryEvent>> nodeListeners = new ArrayList<RemoteEventListener<DeliveryEvent>>();
+			try {
+				Item item;
+				while ((item = queue.poll()) != null) {
+					metrics.recordQueueWait(System.nanoTime() - item.queued);
+					packets.add(item.packet);
+					nodeListeners.add(item.nodeListener);
+					if (packets.size() == BATCH_SIZE || queue.isEmpty()) {
+						send(packets, nodeListeners);
+						packets = new ArrayList<Package>();
+						nodeListeners = new ArrayList<RemoteEventListener<DeliveryEvent>>();
+					}
+				}
+			} finally {
+				scheduled.set(false);
+			}
+			// A package queued after the queue was found empty but before the
+			// lane was marked as idle still needs to be sent.
+			if (!queue.isEmpty()) {
+				schedule(0);
+			}
+		}
+
+		/**
+		 * Function that sends a batch to the next hop.
+		 */
+		private void send(List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners) {
+			GPSInterface routingNode = this.routingNode;
+			if (routingNode instanceof PipelinedLink) {
+				pipeline((PipelinedLink) routingNode, packets, nodeListeners);
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				// Route the messages to the node.
+				if (packets.size() == 1) {
+					routingNode.routeMessage(packets.get(0),
+							nodeListeners.get(0));
+				} else {
+					routingNode.routeMessages(packets, nodeListeners);
+				}
+			} catch (Exception exc) {
+				metrics.recordCallTime(System.nanoTime() - start);
+				callback.forwardFailed(destination, packets, nodeListeners, exc);
+				return;
+			}
+			metrics.recordCallTime(System.nanoTime() - start);
+			callback.forwarded(destination, packets);
+		}
+
+		/**
+		 * Function that sends a batch to a next hop reached through a
+		 * PipelinedLink. A failed batch is routed again by the senders rather
+		 * than by the thread of the link that learnt of the failure.
+		 */
+		private void pipeline(PipelinedLink link, final List<Package> packets,
+				final List<RemoteEventListener<DeliveryEvent>> nodeListeners) {
+			final long start = System.nanoTime();
+			try {
+				link.pipeline(packets, nodeListeners,
+						new PipelinedLink.Completion() {
+							public void completed() {
+								metrics.recordCallTime(System.nanoTime() - start);
+								callback.forwarded(destination, packets);
+							}
+
+							public void failed(final Exception exc) {
+								metrics.recordCallTime(System.nanoTime() - start);
+								senders.execute(new Runnable() {
+									public void run() {
+										callback.forwardFailed(destination,
+												packets, nodeListeners, exc);
+									}
+								});
+							}
+						});
+			} catch (Exception exc) {
+				metrics.recordCallTime(System.nanoTime() - start);
+				callback.forwardFailed(destination, packets, nodeListeners, exc);
+			}
+		}
+	}
+}
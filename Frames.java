@@ -0,0 +1,318 @@
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * Class Frames holds the binary frames exchanged by the NioTransport and the
+ * NioServer of the offices. A frame is made of its length (an int, not
+ * counting itself), its type (a byte) and its body:
+ * PACKAGES : request number (long), number of packages (int), and for every
+ * package the number of its listener (int, 0 for none) and the package as
+ * written by Package.writeTo().
+ * LISTENER : number of the listener (int), length of the serialized stub of
+ * the listener (int) and the stub.
+ * RESET : no body, the numbers of the listeners are forgotten.
+ * ACK : request number (long) of the packages accepted.
+ * NACK : request number (long) of the packages refused, and the reason
+ * (UTF).
+ * The frames are written into and read from ByteBuffer objects through the
+ * DataOutput and DataInput classes below, so that a frame is encoded straight
+ * into the direct buffer written to the channel.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public final class Frames {
+
+	/**
+	 * Types of the frames.
+	 */
+	public static final byte PACKAGES = 1;
+	public static final byte LISTENER = 2;
+	public static final byte RESET = 3;
+	public static final byte ACK = 4;
+	public static final byte NACK = 5;
+
+	/**
+	 * Largest length of a frame, so that a broken peer cannot make the other
+	 * allocate any amount of memory.
+	 */
+	public static final int MAX_LENGTH = 1 << 24;
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private Frames() {
+	}
+
+	/**
+	 * DataOutput writing into a direct ByteBuffer that grows as needed.
+	 */
+	public static class BufferOutput implements DataOutput {
+
+		/**
+		 * The buffer, in write mode.
+		 */
+		private ByteBuffer buffer;
+
+		/**
+		 * Constructor that allocates the buffer.
+		 *
+		 * @param capacity
+		 *            Initial capacity of the buffer.
+		 */
+		public BufferOutput(int capacity) {
+			buffer = ByteBuffer.allocateDirect(capacity);
+		}
+
+		/**
+		 * Function returning the buffer, in write mode. It is a new buffer
+		 * whenever the buffer has grown.
+		 *
+		 * @return ByteBuffer The buffer.
+		 */
+		public ByteBuffer buffer() {
+			return buffer;
+		}
+
+		/**
+		 * Function that starts a frame.
+		 *
+		 * @param type
+		 *            Type of the frame.
+		 *
+		 * @return int Position of the frame, to be given to end().
+		 */
+		public int begin(byte type) {
+			ensure(5);
+			int start = buffer.position();
+			buffer.putInt(0);
+			buffer.put(type);
+			return start;
+		}
+
+		/**
+		 * Function that ends a frame by writing its length.
+		 *
+		 * @param start
+		 *            Position of the frame returned by begin().
+		 */
+		public void end(int start) {
+			buffer.putInt(start, buffer.position() - start - 4);
+		}
+
+		/**
+		 * Function that makes room for a number of bytes.
+		 */
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(
+						buffer.capacity() * 2, buffer.position() + bytes));
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+
+		public void write(int b) {
+			ensure(1);
+			buffer.put((byte) b);
+		}
+
+		public void write(byte[] b) {
+			write(b, 0, b.length);
+		}
+
+		public void write(byte[] b, int off, int len) {
+			ensure(len);
+			buffer.put(b, off, len);
+		}
+
+		public void writeBoolean(boolean v) {
+			write(v ? 1 : 0);
+		}
+
+		public void writeByte(int v) {
+			write(v);
+		}
+
+		public void writeShort(int v) {
+			ensure(2);
+			buffer.putShort((short) v);
+		}
+
+		public void writeChar(int v) {
+			ensure(2);
+			buffer.putChar((char) v);
+		}
+
+		public void writeInt(int v) {
+			ensure(4);
+			buffer.putInt(v);
+		}
+
+		public void writeLong(long v) {
+			ensure(8);
+			buffer.putLong(v);
+		}
+
+		public void writeFloat(float v) {
+			ensure(4);
+			buffer.putFloat(v);
+		}
+
+		public void writeDouble(double v) {
+			ensure(8);
+			buffer.putDouble(v);
+		}
+
+		public void writeBytes(String s) {
+			ensure(s.length());
+			for (int i = 0; i < s.length(); ++i) {
+				buffer.put((byte) s.charAt(i));
+			}
+		}
+
+		public void writeChars(String s) {
+			ensure(2 * s.length());
+			for (int i = 0; i < s.length(); ++i) {
+				buffer.putChar(s.charAt(i));
+			}
+		}
+
+		/**
+		 * Function that writes a string in the modified UTF-8 of
+		 * DataOutputStream.writeUTF().
+		 */
+		public void writeUTF(String s) throws IOException {
+			int length = 0;
+			for (int i = 0; i < s.length(); ++i) {
+				char c = s.charAt(i);
+				length += c >= 0x0001 && c <= 0x007F ? 1 : (c <= 0x07FF ? 2 : 3);
+			}
+			if (length > 65535) {
+				throw new UTFDataFormatException("String too long: " + length
+						+ " bytes");
+			}
+			ensure(2 + length);
+			buffer.putShort((short) length);
+			for (int i = 0; i < s.length(); ++i) {
+				char c = s.charAt(i);
+				if (c >= 0x0001 && c <= 0x007F) {
+					buffer.put((byte) c);
+				} else if (c <= 0x07FF) {
+					buffer.put((byte) (0xC0 | (c >> 6)));
+					buffer.put((byte) (0x80 | (c & 0x3F)));
+				} else {
+					buffer.put((byte) (0xE0 | (c >> 12)));
+					buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+					buffer.put((byte) (0x80 | (c & 0x3F)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * DataInput reading from a ByteBuffer. Reading past the limit of the
+	 * buffer throws an EOFException.
+	 */
+	public static class BufferInput implements DataInput {
+
+		/**
+		 * The buffer, in read mode.
+		 */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Constructor that reads from a buffer.
+		 *
+		 * @param buffer
+		 *            The buffer, in read mode.
+		 */
+		public BufferInput(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Function that checks that a number of bytes are left.
+		 */
+		private void need(int bytes) throws EOFException {
+			if (buffer.remaining() < bytes) {
+				throw new EOFException("Frame too short");
+			}
+		}
+
+		public void readFully(byte[] b) throws IOException {
+			readFully(b, 0, b.length);
+		}
+
+		public void readFully(byte[] b, int off, int len) throws IOException {
+			need(len);
+			buffer.get(b, off, len);
+		}
+
+		public int skipBytes(int n) {
+			int skipped = Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+
+		public boolean readBoolean() throws IOException {
+			return readByte() != 0;
+		}
+
+		public byte readByte() throws IOException {
+			need(1);
+			return buffer.get();
+		}
+
+		public int readUnsignedByte() throws IOException {
+			return readByte() & 0xFF;
+		}
+
+		public short readShort() throws IOException {
+			need(2);
+			return buffer.getShort();
+		}
+
+		public int readUnsignedShort() throws IOException {
+			return readShort() & 0xFFFF;
+		}
+
+		public char readChar() throws IOException {
+			need(2);
+			return buffer.getChar();
+		}
+
+		public int readInt() throws IOException {
+			need(4);
+			return buffer.getInt();
+		}
+
+		public long readLong() throws IOException {
+			need(8);
+			return buffer.getLong();
+		}
+
+		public float readFloat() throws IOException {
+			need(4);
+			return buffer.getFloat();
+		}
+
+		public double readDouble() throws IOException {
+			need(8);
+			return buffer.getDouble();
+		}
+
+		public String readLine() {
+			throw new UnsupportedOperationException("readLine");
+		}
+
+		public String readUTF() throws IOException {
+			return DataInputStream.readUTF(this);
+		}
+	}
+}
@@ -0,0 +1,315 @@
+/**
+ * Class GPSConfig holds the tuning parameters of the GPS Office system. Every
+ * parameter is read from a Java system property so that it can be changed on
+ * the command line without changing the usage of the programs, for example
+ * java -Dgps.index.cellSize=5 Start GPSOffice <host> <port> <name> <X> <Y>.
+ * If a property is not set or cannot be parsed the default value is used.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public final class GPSConfig {
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private GPSConfig() {
+	}
+
+	/**
+	 * Function returning the side of a square cell of the spatial index over
+	 * the office coordinates. Property gps.index.cellSize, default 10.
+	 * 
+	 * @return double The cell size of the spatial index.
+	 */
+	public static double indexCellSize() {
+		return getDouble("gps.index.cellSize", 10.0);
+	}
+
+	/**
+	 * Function returning the time in milliseconds a package is held by an
+	 * office before it is routed. Property gps.transitDelay, default 3000.
+	 * 
+	 * @return long The transit time of a package in milliseconds.
+	 */
+	public static long transitDelay() {
+		return getInt("gps.transitDelay", 3000);
+	}
+
+	/**
+	 * Function returning the time in milliseconds an office waits to collect
+	 * the packages headed for the same next hop before forwarding them as one
+	 * batch. Property gps.batchWindow, default 5.
+	 * 
+	 * @return long The batch window in milliseconds.
+	 */
+	public static long batchWindow() {
+		return getInt("gps.batchWindow", 5);
+	}
+
+	/**
+	 * Function returning the number of threads an office uses to route and
+	 * forward packages. Property gps.forward.workers, default the number of
+	 * processors.
+	 * 
+	 * @return int The number of workers.
+	 */
+	public static int forwardWorkers() {
+		return Math.max(1, getInt("gps.forward.workers", Runtime
+				.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Function returning the number of nearest offices an office is connected
+	 * to. Property gps.neighbors, default 3.
+	 * 
+	 * @return int The number of nearest neighbors.
+	 */
+	public static int neighbors() {
+		return Math.max(1, getInt("gps.neighbors", 3));
+	}
+
+	/**
+	 * Function returning the number of long-range shortcut links an office
+	 * keeps besides its nearest neighbors, drawn with a probability falling
+	 * with the square of their length. Property gps.shortcuts, default 0.
+	 * The shortcuts only pay off with enough nearest neighbors for greedy
+	 * routing to reach the office nearest to the destination, about 16.
+	 * 
+	 * @return int The number of shortcuts.
+	 */
+	public static int shortcuts() {
+		return Math.max(0, getInt("gps.shortcuts", 0));
+	}
+
+	/**
+	 * Function returning the time in milliseconds an office that could not be
+	 * reached is left out of the neighbors before it is tried again, and
+	 * after which it is looked up again in the registry. Property
+	 * gps.suspectTime, default 5000.
+	 * 
+	 * @return long The time an office is suspected in milliseconds.
+	 */
+	public static long suspectTime() {
+		return Math.max(0, getInt("gps.suspectTime", 5000));
+	}
+
+	/**
+	 * Function returning the largest number of destination cells remembered
+	 * by the route cache of an office, 0 to disable the cache. Property
+	 * gps.routeCache.size, default 4096.
+	 * 
+	 * @return int The size of the route cache.
+	 */
+	public static int routeCacheSize() {
+		return getInt("gps.routeCache.size", 4096);
+	}
+
+	/**
+	 * Function returning the side of a destination cell of the route cache.
+	 * Property gps.routeCache.cellSize, default 1.
+	 * 
+	 * @return double The cell size of the route cache.
+	 */
+	public static double routeCacheCellSize() {
+		return getDouble("gps.routeCache.cellSize", 1.0);
+	}
+
+	/**
+	 * Function returning true if the office accepting a package from the
+	 * customer computes the whole route of the package, so that the other
+	 * offices only follow it. Property gps.sourceRouting, default false.
+	 * 
+	 * @return boolean True if source routing is enabled.
+	 */
+	public static boolean sourceRouting() {
+		return getBoolean("gps.sourceRouting", false);
+	}
+
+	/**
+	 * Function returning whether the packages are handled, forwarded and
+	 * reported on virtual threads when the runtime has them. Property
+	 * gps.virtualThreads, default false.
+	 * 
+	 * @return boolean True if virtual threads are asked for.
+	 */
+	public static boolean virtualThreads() {
+		return getBoolean("gps.virtualThreads", false);
+	}
+
+	/**
+	 * Function returning the hop budget of a package, the number of times it
+	 * can be forwarded, counting the failed attempts, before it is reported
+	 * lost. Property gps.maxHops, default 256.
+	 * 
+	 * @return int The hop budget.
+	 */
+	public static int maxHops() {
+		return Math.min(65535, getInt("gps.maxHops", 256));
+	}
+
+	/**
+	 * Function returning the directory of the transit logs of the offices,
+	 * each office logging in a subdirectory named after it. Property
+	 * gps.log.dir, by default there is no log.
+	 * 
+	 * @return String The directory, or null if the packages are not logged.
+	 */
+	public static String transitLogDir() {
+		return System.getProperty("gps.log.dir");
+	}
+
+	/**
+	 * Function returning the size in bytes of a segment of a transit log.
+	 * Property gps.log.segmentSize, default 16 MB.
+	 * 
+	 * @return int The segment size.
+	 */
+	public static int transitLogSegmentSize() {
+		return getInt("gps.log.segmentSize", 16 * 1024 * 1024);
+	}
+
+	/**
+	 * Function returning the time in milliseconds between two flushes of a
+	 * transit log to the disk. Property gps.log.syncInterval, default 10.
+	 * 
+	 * @return long The sync interval.
+	 */
+	public static long transitLogSyncInterval() {
+		return getInt("gps.log.syncInterval", 10);
+	}
+
+	/**
+	 * Function returning whether an office accepts a package only once it is
+	 * flushed to the disk, rather than once it is in the mapped segment.
+	 * Property gps.log.syncWrites, default false.
+	 * 
+	 * @return boolean True if the writes wait for the flush.
+	 */
+	public static boolean transitLogSyncWrites() {
+		return getBoolean("gps.log.syncWrites", false);
+	}
+
+	/**
+	 * Function returning the port on which an office accepts the packages of
+	 * the other offices over the NIO transport, 0 for any free port. Property
+	 * gps.nio.port, by default the office only accepts packages through RMI.
+	 *
+	 * @return int The port, or -1 if the office has no NIO endpoint.
+	 */
+	public static int nioPort() {
+		return getInt("gps.nio.port", -1);
+	}
+
+	/**
+	 * Function returning the host name the other offices use to reach the NIO
+	 * endpoint of an office. Property gps.nio.host, by default the property
+	 * java.rmi.server.hostname, else the address of the local host.
+	 *
+	 * @return String The host name, or null for the address of the local host.
+	 */
+	public static String nioHost() {
+		return System.getProperty("gps.nio.host",
+				System.getProperty("java.rmi.server.hostname"));
+	}
+
+	/**
+	 * Function returning the names of the offices forwarded to over the NIO
+	 * transport, separated by commas, or * for every office having a NIO
+	 * endpoint. Property gps.nio.links, by default no office.
+	 *
+	 * @return String The names of the offices.
+	 */
+	public static String nioLinks() {
+		return System.getProperty("gps.nio.links", "").trim();
+	}
+
+	/**
+	 * Function returning the largest number of batches sent over a NIO
+	 * connection and not yet accepted. Property gps.nio.window, default 64.
+	 *
+	 * @return int The size of the window.
+	 */
+	public static int nioWindow() {
+		return Math.max(1, getInt("gps.nio.window", 64));
+	}
+
+	/**
+	 * Function returning the time in milliseconds a batch sent over a NIO
+	 * connection waits to be accepted before the connection is dropped.
+	 * Property gps.nio.timeout, default 30000.
+	 *
+	 * @return long The timeout in milliseconds.
+	 */
+	public static long nioTimeout() {
+		return getInt("gps.nio.timeout", 30000);
+	}
+
+	/**
+	 * Function that returns the value of a system property parsed as an
+	 * integer.
+	 * 
+	 * @param property
+	 *            Name of the system property.
+	 * @param defaultValue
+	 *            Value returned if the property is not set or invalid.
+	 * 
+	 * @return int The value of the property.
+	 */
+	static int getInt(String property, int defaultValue) {
+		String value = System.getProperty(property);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException exc) {
+			System.err.println("Invalid " + property + " = \"" + value
+					+ "\", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Function that returns the value of a system property parsed as a
+	 * double.
+	 * 
+	 * @param property
+	 *            Name of the system property.
+	 * @param defaultValue
+	 *            Value returned if the property is not set or invalid.
+	 * 
+	 * @return double The value of the property.
+	 */
+	static double getDouble(String property, double defaultValue) {
+		String value = System.getProperty(property);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Double.parseDouble(value.trim());
+		} catch (NumberFormatException exc) {
+			System.err.println("Invalid " + property + " = \"" + value
+					+ "\", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Function that returns the value of a system property parsed as a
+	 * boolean.
+	 * 
+	 * @param property
+	 *            Name of the system property.
+	 * @param defaultValue
+	 *            Value returned if the property is not set.
+	 * 
+	 * @return boolean The value of the property.
+	 */
+	static boolean getBoolean(String property, boolean defaultValue) {
+		String value = System.getProperty(property);
+		if (value == null) {
+			return defaultValue;
+		}
+		return Boolean.parseBoolean(value.trim());
+	}
+}
@@ -3,6 +3,7 @@ import edu.rit.ds.Lease;
 import edu.rit.ds.RemoteEventListener;
 import edu.rit.ds.registry.NotBoundException;
 import java.rmi.RemoteException;
+import java.util.List;
 
 /**
  * The Java RMI remote interface to the class GPSOffice.
@@ -34,6 +35,23 @@ public interface GPSInterface extends Remote {
 			RemoteEventListener<DeliveryEvent> nodeListener)
 			throws RemoteException;
 
+	/**
+	 * Function that routes a batch of packages in a single call. Every package
+	 * is routed exactly as if it had been passed to routeMessage() on its own.
+	 * 
+	 * @param packets
+	 *            Package objects that have to be delivered.
+	 * @param nodeListeners
+	 *            RemoteEventListener objects, one for each package in the same
+	 *            order.
+	 * 
+	 * @exception RemoteException
+	 *                thrown when a remote error is encountered.
+	 */
+	public void routeMessages(List<Package> packets,
+			List<RemoteEventListener<DeliveryEvent>> nodeListeners)
+			throws RemoteException;
+
 	/**
 	 * Remote function that returns the name of the city in which the GPSOffice
 	 * object is located in.
@@ -65,6 +83,34 @@ public interface GPSInterface extends Remote {
 	 */
 	public double getY() throws RemoteException;
 
+	/**
+	 * Remote function that returns the name, the coordinates and the capacity
+	 * hints of the GPSOffice in a single call.
+	 * 
+	 * @return OfficeDescriptor Descriptor of the GPSOffice object.
+	 * 
+	 * @exception RemoteException
+	 *                thrown if a remote error is encountered.
+	 */
+	public OfficeDescriptor getDescriptor() throws RemoteException;
+
+	/**
+	 * Remote function that returns the descriptors of the given GPSOffice
+	 * objects as known to this GPSOffice, so that a new office can learn the
+	 * whole network in a single call. Names of offices that are not known are
+	 * left out of the result.
+	 * 
+	 * @param names
+	 *            Names of the GPSOffice objects.
+	 * 
+	 * @return List Descriptors of the known GPSOffice objects.
+	 * 
+	 * @exception RemoteException
+	 *                thrown if a remote error is encountered.
+	 */
+	public List<OfficeDescriptor> getDescriptors(List<String> names)
+			throws RemoteException;
+
 	/**
 	 * Function that sends a lease object to the RemoteEventListener objects so
 	 * that they can intercept any RemoteEvents generated by the GPSOffice
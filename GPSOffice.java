@@ -1,18 +1,24 @@
+import java.io.File;
+import java.io.IOException;
 import java.rmi.NoSuchObjectException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import edu.rit.ds.Lease;
-import edu.rit.ds.RemoteEventGenerator;
 import edu.rit.ds.RemoteEventListener;
 import edu.rit.ds.registry.AlreadyBoundException;
 import edu.rit.ds.registry.NotBoundException;
-import edu.rit.ds.registry.RegistryProxy;
 
 /**
  * The GPSOffice represents each node in the GPSOffice system. The GPSOffice
@@ -24,12 +30,14 @@ import edu.rit.ds.registry.RegistryProxy;
  * 
  * Class GPSOffoce has a parameterized constructor that the Start class of
  * rit.edu.ds package considers as the main program for the class. 
- * Usage() : java Start GPSOffice <host> <port> <name> <X> <Y>. 
+ * Usage() : java Start GPSOffice <host> <port> <name> <X> <Y> [<id>]. 
  * <host> : Name of the host computer where the Registry Server is running. 
  * <port> : Port number to which the Registry Server is listening.
  * <name> : Name of the city where GPSOffice object is located. 
  * <X> : GPSOffice's X coordinate. 
  * <Y> : GPSOffice's Y coordinate.
+ * <id> : GPSOffice's unique ID from 0 to 131071, used in the tracking numbers,
+ * chosen from the name of the office if not given.
  * 
  * @author Hitesh Chidambar Kotian (hxk6871).
  * 
@@ -41,16 +49,6 @@ public class GPSOffice implements GPSInterface {
 	 */
 	final private String name;
 
-	/**
-	 * Address of the host of the registry.
-	 */
-	private String host;
-
-	/**
-	 * Port at which the registry is listening.
-	 */
-	private int port;
-
 	/**
 	 * X coordinate of the object.
 	 */
@@ -62,27 +60,96 @@ public class GPSOffice implements GPSInterface {
 	private double Y;
 
 	/**
-	 * Instance of the RegistryProxy.
+	 * Registry the office is bound in, or null if it is not bound.
 	 */
-	private static RegistryProxy registry;
+	private final OfficeRegistry registry;
 
 	/**
-	 * Instance of a remote event generator that will notify all the remote
-	 * events of any remote events that have taken place.
+	 * Instance of the EventFanout that will notify all the remote listeners
+	 * of any remote events that have taken place, each through its own queue.
 	 */
-	private RemoteEventGenerator<DeliveryEvent> eventGenerator;
+	private EventFanout eventFanout;
 
 	/**
 	 * Instance of ScheduledExecutorService that will create a thread pool for
-	 * the client requests.
+	 * the client requests. The same workers route the packages and forward
+	 * them to the next hops.
 	 */
 	private ScheduledExecutorService threadPool;
 
 	/**
-	 * HashMap storing the names of the recent neighbors computed to their x, y
-	 * coordinates and their distance from the current neighbor.
+	 * Executor running every package on its own virtual thread, or null if
+	 * the packages are run by the thread pool.
+	 */
+	private ExecutorService packageThreads;
+
+	/**
+	 * Spatial index over the coordinates of all the GPSOffice objects known to
+	 * this office, including itself. It is filled once from the registry and
+	 * then kept up to date from the registry bind and unbind events so that
+	 * the neighbors can be recomputed without contacting the other offices.
+	 */
+	SpatialIndex offices;
+
+	/**
+	 * Map storing the names of the GPSOffice objects to the object references
+	 * looked up in the registry.
+	 */
+	private final ConcurrentHashMap<String, GPSInterface> officeRefs = new ConcurrentHashMap<String, GPSInterface>();
+
+	/**
+	 * Routing decisions of the office over the offices index.
+	 */
+	private final RoutingTable routingTable;
+
+	/**
+	 * Map storing the names of all the GPSOffice objects known to this office
+	 * to their descriptors as they were learnt.
+	 */
+	private ConcurrentHashMap<String, OfficeDescriptor> descriptors;
+
+	/**
+	 * Number of threads used to forward packages.
+	 */
+	private int workers;
+
+	/**
+	 * Generator of the tracking numbers of the packages created by the office.
+	 */
+	private TrackingNumberGenerator trackingNumbers;
+
+	/**
+	 * ID of the office in its tracking numbers.
+	 */
+	private final int officeId;
+
+	/**
+	 * Engine forwarding the packages to the next hops, one ordered lane for
+	 * each next hop.
+	 */
+	private ForwardingEngine forwardingEngine;
+
+	/**
+	 * Number of packages currently held by the office.
 	 */
-	HashMap<String, Double[]> neighbors;
+	private final AtomicInteger packagesInTransit = new AtomicInteger();
+
+	/**
+	 * Write-ahead log of the packages held by the office, or null if the
+	 * packages are not logged.
+	 */
+	private TransitLog transitLog;
+
+	/**
+	 * Counters and histograms of the packages handled by the office.
+	 */
+	private final OfficeMetrics metrics = new OfficeMetrics();
+
+	/**
+	 * Server accepting the packages of the other offices over the
+	 * NioTransport, or null if the office only accepts them through RMI.
+	 */
+	private NioServer nioServer;
 
 	/**
 	 * 
@@ -91,7 +158,8 @@ public class GPSOffice implements GPSInterface {
 	 * arguments are : <host> - Name of the host computer where the Registry
 	 * Server is running. <port> - Port number to which the Registry Server is
 	 * listening. <name> - Name of the city where the GPS office is located. <X>
-	 * - GPS office's X coordinate. <Y> - GPS office's Y coordinate.
+	 * - GPS office's X coordinate. <Y> - GPS office's Y coordinate. <id> -
+	 * Optional unique ID of the GPS office used in the tracking numbers.
 	 * 
 	 * @param args
 	 *            Command line arguments.
@@ -103,38 +171,164 @@ public class GPSOffice implements GPSInterface {
 	 *                Thrown if a remote error is encountered.
 	 */
 	public GPSOffice(String[] args) {
-		// Check if all the arguments have been supplied by the user.
-		// If not then throw an exception.
-		if (args.length != 5) {
+		this(connect(args), Arrays.copyOfRange(args, 2, args.length));
+	}
+
+	/**
+	 * Constructor that creates an instance of the GPSOffice and binds it in
+	 * the given registry, for example a LocalRegistry shared by all the
+	 * offices of a JVM. The arguments are : <name> - Name of the city where
+	 * the GPS office is located. <X> - GPS office's X coordinate. <Y> - GPS
+	 * office's Y coordinate. <id> - Optional unique ID of the GPS office used
+	 * in the tracking numbers. Without it the office takes a free ID derived
+	 * from its name.
+	 * 
+	 * @param registry
+	 *            Registry the office is bound in.
+	 * @param args
+	 *            Arguments of the office.
+	 */
+	public GPSOffice(OfficeRegistry registry, String[] args) {
+		if (args.length != 3 && args.length != 4) {
 			usage();
 		}
 
 		// Get all the variable values if all the values have been given.
-		host = args[0];
-		port = parseInt(args[1], "port");
-		name = args[2];
-		X = parseDouble(args[3], "X");
-		Y = parseDouble(args[4], "Y");
+		this.registry = registry;
+		name = args[0];
+		X = parseDouble(args[1], "X");
+		Y = parseDouble(args[2], "Y");
+		int requestedId = args.length == 4 ? parseInt(args[3], "id") : -1;
+		if (args.length == 4
+				&& (requestedId < 0
+						|| requestedId > TrackingNumberGenerator.MAX_OFFICE_ID)) {
+			throw new IllegalArgumentException("GPSOffice() : Invalid <id>: \""
+					+ requestedId + "\"");
+		}
+
+		// Initialize the EventFanout object which will report the events of
+		// class DeliveryEvent.
+		eventFanout = new EventFanout(GPSConfig.getInt("gps.listener.senders",
+				4), GPSConfig.getInt("gps.listener.queue", 1024),
+				GPSConfig.getInt("gps.listener.maxFailures", 3));
+
+		// Initialize the ScheduledExecutorThread object for the GPSOffice
+		// object. With virtual threads the pool only times the batch windows
+		// and every package and every send gets its own virtual thread.
+		workers = GPSConfig.forwardWorkers();
+		Executor senders;
+		if (VirtualThreads.isEnabled()) {
+			threadPool = Executors.newSingleThreadScheduledExecutor();
+			packageThreads = VirtualThreads.newThreadPerTaskExecutor();
+			senders = packageThreads;
+		} else {
+			threadPool = Executors.newScheduledThreadPool(workers);
+			senders = threadPool;
+		}
+		forwardingEngine = new ForwardingEngine(threadPool, senders,
+				GPSConfig.batchWindow(), new ForwardingEngine.Callback() {
+					public void forwarded(String destination,
+							List<Package> packets) {
+						metrics.forwarded(packets.size());
+						for (Package packet : packets) {
+							acknowledge(packet);
+						}
+					}
+
+					public void forwardFailed(String destination,
+							List<Package> packets,
+							List<RemoteEventListener<DeliveryEvent>> nodeListeners,
+							Exception exc) {
+						// The GPSOffice object may have crashed. Leave it out
+						// of the neighbors for a while and route the packages
+						// again through the best of the remaining neighbors.
+						suspectOffice(destination);
+						metrics.rerouted(packets.size());
+						for (int i = 0; i < packets.size(); ++i) {
+							dispatch(packets.get(i), nodeListeners.get(i), true);
+						}
+					}
+				}, metrics);
 
-		// Create an object of the RegistryProxy and export the current object
+		// Remove the event queues of the customers that are no longer sending
+		// packages through the office.
+		threadPool.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				eventFanout.sweep(60000);
+			}
+		}, 30, 30, TimeUnit.SECONDS);
+
+		// Initialize the offices index and the routing table over it.
+		offices = new SpatialIndex(GPSConfig.indexCellSize());
+		offices.put(this.name, X, Y);
+		descriptors = new ConcurrentHashMap<String, OfficeDescriptor>();
+		routingTable = new RoutingTable(this.name, X, Y, offices,
+				newRouteCache());
+
+		// Open the transit log, which holds the packages that were in transit
+		// when the office last stopped.
+		if (GPSConfig.transitLogDir() != null) {
+			try {
+				transitLog = new TransitLog(new File(
+						GPSConfig.transitLogDir(), this.name),
+						GPSConfig.transitLogSegmentSize(),
+						GPSConfig.transitLogSyncInterval(),
+						GPSConfig.transitLogSyncWrites());
+			} catch (IOException exc) {
+				System.err.println("GPSOffice() : Cannot open the transit log: "
+						+ exc.getMessage());
+				System.exit(1);
+			}
+		}
+
+		// Expose the metrics of the office through JMX.
+		metrics.register(this.name);
+
+		// Accept the packages of the other offices over the NIO transport as
+		// well, on the endpoint advertised in the descriptor of the office.
+		if (GPSConfig.nioPort() >= 0) {
+			try {
+				nioServer = new NioServer(this, senders, this.name,
+						GPSConfig.nioHost(), GPSConfig.nioPort());
+			} catch (IOException exc) {
+				System.err.println("GPSOffice() : Cannot open the NIO server: "
+						+ exc.getMessage());
+				System.exit(1);
+			}
+		}
+
+		// Listen to the GPSOffice objects joining and leaving the registry so
+		// that the neighbor table is kept up to date without scanning the
+		// registry for every package. The listener is added before the
+		// registry is listed so that no office bound in between is missed,
+		// and both are done before binding so that the ID of the office can
+		// be checked against the IDs of the other offices.
 		try {
-			registry = new RegistryProxy(host, port);
+			registry.addListener("GPSOffice", new OfficeRegistry.Listener() {
+				public void bound(String officeName) {
+					addOffice(officeName);
+				}
 
-		} catch (RemoteException e) {
-			System.err.println("Registry Already bound on " + host + ", "
-					+ port);
+				public void unbound(String officeName) {
+					removeOffice(officeName);
+				}
+			});
+			discoverOffices(registry.list("GPSOffice"));
+		} catch (RemoteException exc) {
+			System.err.println("Remote Error while listening to the registry");
 			System.exit(1);
 		}
+		officeId = chooseOfficeId(requestedId);
+		trackingNumbers = new TrackingNumberGenerator(officeId);
 
-		// Initialize the RemoteEventGenerator object which will report and
-		// event of class DeliveryEvent.
-		eventGenerator = new RemoteEventGenerator<DeliveryEvent>();
-
-		// Bind the current object in the registry.
+		// Bind the current object in the registry once it is ready to accept
+		// packages.
 		try {
 			UnicastRemoteObject.exportObject(this, 0);
+			DirectTransport.register(this);
 			registry.bind(this.name, this);
 		} catch (AlreadyBoundException exc) {
+			DirectTransport.unregister(this);
 			try {
 				UnicastRemoteObject.unexportObject(this, true);
 			} catch (NoSuchObjectException exc2) {
@@ -147,13 +341,102 @@ public class GPSOffice implements GPSInterface {
 					.println("Remote Error while binding the object in the registry");
 			System.exit(1);
 		}
+		checkOfficeId();
 
-		// Initialize the ScheduledExecutorThread object for the GPSOffice
-		// object.
-		threadPool = Executors.newSingleThreadScheduledExecutor();
+		// Route again the packages that were never acknowledged, now that the
+		// neighbors are known. Their customers are no longer listening.
+		if (transitLog != null) {
+			for (final Package packet : transitLog.getRecovered()) {
+				packagesInTransit.incrementAndGet();
+				hold(new Runnable() {
+					public void run() {
+						try {
+							dispatch(packet, null, false);
+						} finally {
+							packagesInTransit.decrementAndGet();
+						}
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Constructor that creates an office that is neither exported nor bound in
+	 * a registry and learns the other offices from their descriptors only.
+	 * Such an office computes next hops and routes like any other but cannot
+	 * forward packages. It is used to measure the routing on its own, for
+	 * example by the benchmarks.
+	 * 
+	 * @param name
+	 *            Name of the city where the GPS office is located.
+	 * @param X
+	 *            GPS office's X coordinate.
+	 * @param Y
+	 *            GPS office's Y coordinate.
+	 * @param others
+	 *            Descriptors of the other offices of the network.
+	 */
+	GPSOffice(String name, double X, double Y,
+			Collection<OfficeDescriptor> others) {
+		this.registry = null;
+		this.name = name;
+		this.X = X;
+		this.Y = Y;
+		officeId = TrackingNumberGenerator.officeId(name);
+		trackingNumbers = new TrackingNumberGenerator(officeId);
+		offices = new SpatialIndex(GPSConfig.indexCellSize());
+		offices.put(this.name, X, Y);
+		descriptors = new ConcurrentHashMap<String, OfficeDescriptor>();
+		routingTable = new RoutingTable(this.name, X, Y, offices,
+				newRouteCache());
+		for (OfficeDescriptor descriptor : others) {
+			if (!descriptor.getName().equals(this.name)) {
+				descriptors.put(descriptor.getName(), descriptor);
+				offices.put(descriptor.getName(), descriptor.getX(),
+						descriptor.getY());
+			}
+		}
+		routingTable.updateNeighbors();
+	}
+
+	/**
+	 * Function returning a new route cache as set by the system properties,
+	 * or null if the route cache is disabled.
+	 * 
+	 * @return RouteCache The route cache.
+	 */
+	static RouteCache newRouteCache() {
+		if (GPSConfig.routeCacheSize() > 0) {
+			return new RouteCache(GPSConfig.routeCacheCellSize(),
+					GPSConfig.routeCacheSize());
+		}
+		return null;
+	}
 
-		// Initialize the neighbors hashmap.
-		neighbors = new HashMap<String, Double[]>();
+	/**
+	 * Function that checks the command line arguments of the office and
+	 * connects to the Registry Server they name.
+	 * 
+	 * @param args
+	 *            Command line arguments.
+	 * 
+	 * @return OfficeRegistry The Registry Server.
+	 */
+	private static OfficeRegistry connect(String[] args) {
+		if (args.length != 5 && args.length != 6) {
+			usage();
+		}
+		String host = args[0];
+		int port = parseInt(args[1], "port");
+		try {
+			return new RemoteRegistry(host, port);
+		} catch (RemoteException e) {
+			System.err.println("Registry Already bound on " + host + ", "
+					+ port);
+			System.exit(1);
+			return null;
+		}
 	}
 
 	/**
@@ -163,7 +446,7 @@ public class GPSOffice implements GPSInterface {
 	 */
 	public static void usage() {
 		String usageString = "\nUsage() : " + "java Start GPSOffice <host> "
-				+ "<port> <name> <X> <Y>\n";
+				+ "<port> <name> <X> <Y> [<id>]\n";
 		usageString += "<host> : Name of the host computer where"
 				+ " the Registry Server is running.\n";
 		usageString += "<port> : Port number to which the"
@@ -172,6 +455,9 @@ public class GPSOffice implements GPSInterface {
 				+ " office is located.\n";
 		usageString += "<X> : GPS office's X coordinate.\n";
 		usageString += "<Y> : GPS office's Y coordinate.\n";
+		usageString += "<id> : GPS office's unique ID from 0 to "
+				+ TrackingNumberGenerator.MAX_OFFICE_ID
+				+ ", chosen from <name> if not given.\n";
 		System.out.println(usageString);
 		System.exit(1);
 	}
@@ -190,6 +476,60 @@ public class GPSOffice implements GPSInterface {
 		return this.name;
 	}
 
+	/**
+	 * Remote function that returns the name, the coordinates and the capacity
+	 * hints of the GPSOffice in a single call.
+	 * 
+	 * @return OfficeDescriptor Descriptor of the GPSOffice object.
+	 */
+	public OfficeDescriptor getDescriptor() {
+		return new OfficeDescriptor(this.name, this.X, this.Y, this.workers,
+				packagesInTransit.get(), nioServer == null ? null : nioServer
+						.getEndpoint(), officeId);
+	}
+
+	/**
+	 * Remote function that returns the descriptors of the given GPSOffice
+	 * objects as known to this GPSOffice. Names of offices that are not known
+	 * are left out of the result.
+	 * 
+	 * @param names
+	 *            Names of the GPSOffice objects.
+	 * 
+	 * @return List Descriptors of the known GPSOffice objects.
+	 */
+	public List<OfficeDescriptor> getDescriptors(List<String> names) {
+		List<OfficeDescriptor> result = new ArrayList<OfficeDescriptor>(
+				names.size());
+		for (String officeName : names) {
+			OfficeDescriptor descriptor = officeName.equals(this.name) ? getDescriptor()
+					: descriptors.get(officeName);
+			if (descriptor != null) {
+				result.add(descriptor);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Function returning the metrics of the office.
+	 * 
+	 * @return OfficeMetrics The metrics.
+	 */
+	public OfficeMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Function returning the route cache of the office, whose hit and miss
+	 * counters tell how well the cache works.
+	 * 
+	 * @return RouteCache The route cache, or null if it is disabled.
+	 */
+	public RouteCache getRouteCache() {
+		return routingTable.getRouteCache();
+	}
+
 	/**
 	 * Remote function that returns the X-Coordinate of the GPSOffice.
 	 * 
@@ -214,8 +554,8 @@ public class GPSOffice implements GPSInterface {
 	}
 
 	/**
-	 * Function that computes the neighbors for the current node and returns the
-	 * neighbor closest to the destination x and y coordinates.
+	 * Function that returns the neighbor closest to the destination x and y
+	 * coordinates, or the current office if none is closer.
 	 * 
 	 * @param x
 	 *            X-coordinate of the destination.
@@ -223,119 +563,222 @@ public class GPSOffice implements GPSInterface {
 	 *            Y-coordinate of the destination.
 	 * 
 	 * @return Name of the node which is near the destination.
+	 */
+	public String getNextNeighbor(double x, double y) {
+		return routingTable.getNextNeighbor(x, y);
+	}
+
+	/**
+	 * Function that is called when a GPSOffice object is bound in the
+	 * registry. The coordinates of the office are fetched once and stored in
+	 * the offices index, after which the neighbors are recomputed.
 	 * 
-	 * @exception RemoteException
-	 *                Thrown when a remote exception is encountered.
+	 * @param officeName
+	 *            Name of the GPSOffice object bound in the registry.
+	 */
+	private void addOffice(String officeName) {
+		if (officeName.equals(this.name)) {
+			return;
+		}
+		try {
+			GPSInterface nodeRef = Transports.connect(registry.lookup(officeName));
+			// An office bound again replaces its old reference, whose NIO
+			// link would otherwise stay open.
+			GPSInterface oldRef = officeRefs.put(officeName, nodeRef);
+			if (oldRef != null && oldRef != nodeRef) {
+				NioTransport.close(oldRef);
+			}
+			addOffice(nodeRef.getDescriptor());
+		} catch (RemoteException e) {
+			// In case of a remote exception ignore the node, it will be
+			// added again if it is bound once more.
+		} catch (NotBoundException e) {
+		}
+	}
+
+	/**
+	 * Function that stores the descriptor of a GPSOffice object in the offices
+	 * index and recomputes the neighbors.
 	 * 
-	 * @exception NotBoundException
-	 *                Thrown when a node name is not registered in the registry.
+	 * @param descriptor
+	 *            Descriptor of the GPSOffice object.
 	 */
-	public String getNextNeighbor(double x, double y) {
-		String minNode = null;
-		String nodeName = null;
+	private void addOffice(OfficeDescriptor descriptor) {
+		if (descriptor.getName().equals(this.name)) {
+			return;
+		}
+		descriptors.put(descriptor.getName(), descriptor);
+		offices.put(descriptor.getName(), descriptor.getX(), descriptor.getY());
+		routingTable.updateNeighbors();
+	}
+
+	/**
+	 * Function that learns the GPSOffice objects listed in the registry when
+	 * the office starts. The descriptors of all the offices are asked from
+	 * the first office that answers, in a single call, and only the offices
+	 * it does not know are asked for their own descriptor.
+	 * 
+	 * @param officeNames
+	 *            Names of the GPSOffice objects in the registry.
+	 */
+	private void discoverOffices(List<String> officeNames) {
+		List<String> unknown = new ArrayList<String>(officeNames);
+		unknown.remove(this.name);
+		for (String officeName : unknown) {
+			try {
+				GPSInterface nodeRef = Transports.connect(registry
+						.lookup(officeName));
+				for (OfficeDescriptor descriptor : nodeRef
+						.getDescriptors(unknown)) {
+					addOffice(descriptor);
+				}
+				break;
+			} catch (RemoteException e) {
+				// Try the next office.
+			} catch (NotBoundException e) {
+			}
+		}
+		for (String officeName : unknown) {
+			if (!descriptors.containsKey(officeName)) {
+				addOffice(officeName);
+			}
+		}
+	}
+
+	/**
+	 * Function returning the ID of the office in its tracking numbers, once
+	 * the other offices are known and before the office is bound. A given ID
+	 * must not be used by any of them. Without one the ID derived from the
+	 * name of the office is taken, or the next ID after it that is free.
+	 * 
+	 * @param requestedId
+	 *            ID given to the office, or -1 if none was given.
+	 * 
+	 * @return int The ID of the office.
+	 */
+	private int chooseOfficeId(int requestedId) {
+		boolean[] used = new boolean[TrackingNumberGenerator.MAX_OFFICE_ID + 1];
+		for (OfficeDescriptor descriptor : descriptors.values()) {
+			if (descriptor.getOfficeId() >= 0) {
+				used[descriptor.getOfficeId()] = true;
+			}
+		}
+		if (requestedId >= 0) {
+			if (used[requestedId]) {
+				System.err.println("GPSOffice() : <id> = \"" + requestedId
+						+ "\" is already used by another office");
+				System.exit(1);
+			}
+			return requestedId;
+		}
+		int id = TrackingNumberGenerator.officeId(this.name);
+		for (int i = 0; i < used.length; ++i) {
+			if (!used[id]) {
+				return id;
+			}
+			id = (id + 1) & TrackingNumberGenerator.MAX_OFFICE_ID;
+		}
+		System.err.println("GPSOffice() : No free <id> is left");
+		System.exit(1);
+		return -1;
+	}
+
+	/**
+	 * Function that checks, once the office is bound, that no office bound at
+	 * the same time took the same ID. The offices bound since the registry
+	 * was listed are learnt at once rather than waiting for their events. If
+	 * the ID is taken the office unbinds itself and exits, so an office that
+	 * was already running is never the one to go.
+	 */
+	private void checkOfficeId() {
 		try {
-			// Get the list of all the nodes registered in the registry.
-			List<String> nodeList = registry.list();
-			Iterator<String> node = nodeList.iterator();
-			// Compute the nearest neighbors.
-			while (node.hasNext()) {
-				// For all nodes except the current node and the nodes already
-				// present in the hashmap calculate the distance and add the
-				// nearest 3 neighbors in the hashmap.
-				nodeName = node.next();
-				if (nodeName.equals(this.name)
-						|| neighbors.containsKey(nodeName)) {
-					continue;
+			for (String officeName : registry.list("GPSOffice")) {
+				if (!officeName.equals(this.name)
+						&& !descriptors.containsKey(officeName)) {
+					addOffice(officeName);
 				}
-				GPSInterface nodeRef = null;
+			}
+		} catch (RemoteException exc) {
+			System.err.println("Remote Error while listing the registry");
+			System.exit(1);
+		}
+		for (OfficeDescriptor descriptor : descriptors.values()) {
+			if (descriptor.getOfficeId() == officeId) {
+				System.err.println("GPSOffice() : <id> = \"" + officeId
+						+ "\" is already used by " + descriptor.getName());
 				try {
-					nodeRef = (GPSInterface) registry.lookup(nodeName);
-				} catch (RemoteException e) {
-					System.out.println("see here");
+					registry.unbind(this.name);
+				} catch (RemoteException exc) {
+				} catch (NotBoundException exc) {
 				}
-				String currName;
+				DirectTransport.unregister(this);
 				try {
-					currName = nodeRef.getName();
-				} catch (RemoteException e) {
-					// In case of a remote exception ignore the node and
-					// continue with the other nodes.
-					continue;
-				}
-				double distance = this.getDistance(nodeRef);
-				// If there are less than 3 nodes in the hashmap simply add the
-				// node entry in the hashmap.
-				if (neighbors.size() < 3) {
-					Double[] params = { nodeRef.getX(), nodeRef.getY(),
-							distance };
-					neighbors.put(nodeRef.getName(), params);
-				}
-				// If there are already three nodes entries in the hashmap
-				// remove the node entry with the maximum distance.
-				else {
-					String maximumNode = nodeName;
-					double maxDistance = distance;
-					Set<String> neighborNames = neighbors.keySet();
-					Iterator<String> myIterator = neighborNames.iterator();
-					String currentNode = null;
-					while (myIterator.hasNext()) {
-						currentNode = myIterator.next();
-						Double[] params = neighbors.get(currentNode);
-						double distance1 = params[2];
-						if (distance1 > maxDistance) {
-							maximumNode = currentNode;
-							maxDistance = distance1;
-						}
-					}
-					if (neighbors.containsKey(maximumNode)) {
-						neighbors.remove(maximumNode);
-						Double[] params = { nodeRef.getX(), nodeRef.getY(),
-								distance };
-						neighbors.put(nodeRef.getName(), params);
-
-					}
+					UnicastRemoteObject.unexportObject(this, true);
+				} catch (NoSuchObjectException exc) {
 				}
+				System.exit(1);
 			}
+		}
+	}
 
-			// Compute the distance between the node and the destination.
-			double minDistance = this.getDistance(X, x, Y, y);
-			minNode = this.name;
-			Set<String> neighborNames = neighbors.keySet();
-			Iterator<String> neighbor = neighborNames.iterator();
-			// From all the current neighbors get the neighbor which is near the
-			// destination.
-			while (neighbor.hasNext()) {
-				nodeName = neighbor.next();
-				Double[] param = neighbors.get(nodeName);
-				double newDistance = this.getDistance(x, param[0], y, param[1]);
-				if (newDistance < minDistance) {
-					minDistance = newDistance;
-					minNode = nodeName;
+	/**
+	 * Function that is called when a GPSOffice object could not be reached.
+	 * The office stays in the offices index but is left out of the neighbors
+	 * for the time of GPSConfig.suspectTime(), and its object reference is
+	 * dropped so that it is looked up again. Once the time is over the office
+	 * is looked up in the registry and only removed if it is no longer bound.
+	 * 
+	 * @param officeName
+	 *            Name of the GPSOffice object that could not be reached.
+	 */
+	private void suspectOffice(final String officeName) {
+		long suspectTime = GPSConfig.suspectTime();
+		routingTable.suspect(officeName, suspectTime);
+		GPSInterface officeRef = officeRefs.remove(officeName);
+		if (officeRef != null) {
+			NioTransport.close(officeRef);
+		}
+		forwardingEngine.removeLane(officeName);
+		if (registry == null) {
+			return;
+		}
+		try {
+			threadPool.schedule(new Runnable() {
+				public void run() {
+					try {
+						registry.lookup(officeName);
+					} catch (NotBoundException exc) {
+						removeOffice(officeName);
+					} catch (RemoteException exc) {
+						// The registry server cannot be reached, the office
+						// is kept.
+					}
 				}
-			}
-		} catch (RemoteException e) {
-			System.out.println("Remote Exception");
-		} catch (NotBoundException e) {
-			System.out.println("Not Bound Exception for " + minNode);
+			}, suspectTime, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException exc) {
+			// The office is shutting down.
 		}
-		return minNode;
 	}
 
 	/**
-	 * Computes the distance between a GPSOffice object and the current office
-	 * object.
+	 * Function that is called when a GPSOffice object is unbound from the
+	 * registry or found not to be bound any more. The office is removed from
+	 * the offices index and the neighbors are recomputed if it was a
+	 * neighbor.
 	 * 
-	 * @param gpsOffice
-	 *            GPSOffice object.
-	 * @return The distance between the current office object and the GPSOffice
-	 *         object.
-	 * @throws RemoteException
-	 *             Thrown when a remote exception is encountered.
+	 * @param officeName
+	 *            Name of the GPSOffice object to be removed.
 	 */
-	private double getDistance(GPSInterface gpsOffice) throws RemoteException {
-		double xDiff = Math.pow(this.X - gpsOffice.getX(), 2);
-		double yDiff = Math.pow(this.Y - gpsOffice.getY(), 2);
-		double distance = Math.sqrt(xDiff + yDiff);
-		return distance;
+	private void removeOffice(String officeName) {
+		descriptors.remove(officeName);
+		GPSInterface officeRef = officeRefs.remove(officeName);
+		if (officeRef != null) {
+			NioTransport.close(officeRef);
+		}
+		forwardingEngine.removeLane(officeName);
+		if (offices.remove(officeName)) {
+			routingTable.updateNeighbors();
+		}
 	}
 
 	/**
@@ -351,23 +794,17 @@ public class GPSOffice implements GPSInterface {
 	 *            Y-coordinate of the second point.
 	 * 
 	 * @return Distance between the two points.
-	 * 
-	 * @throws RemoteException
-	 *             Thrown when a remote exception is encountered.
 	 */
-	private double getDistance(double x1, double x2, double y1, double y2)
-			throws RemoteException {
-		double xDiff = Math.pow(x1 - x2, 2);
-		double yDiff = Math.pow(y1 - y2, 2);
-		double distance = Math.sqrt(xDiff + yDiff);
-		return distance;
+	double getDistance(double x1, double x2, double y1, double y2) {
+		return routingTable.getDistance(x1, x2, y1, y2);
 	}
 
 	/**
-	 * Function that computes the nearest neighbor to the given destination of
-	 * the packet. If the current node is nearest to the destination then
-	 * directly route the packet to the destination. Otherwise forward it to the
-	 * nearest node amongst the neighbors.
+	 * Function that accepts a package for routing. The arrival of the package
+	 * is reported and the package is then held by the office for the transit
+	 * time before it is routed, as a delayed task on the thread pool or on a
+	 * virtual thread, so that the calling thread returns as soon as the
+	 * package is accepted.
 	 * 
 	 * @param packet
 	 *            Package object that has to be delivered.
@@ -376,233 +813,369 @@ public class GPSOffice implements GPSInterface {
 	 *            packet.
 	 * @exception RemoteException
 	 *                thrown when a remote error is encountered.
-	 * 
-	 * @exception NotBoundException
-	 *                thrown when the object looked up in the registry is not
-	 *                present.
 	 */
 	public void routeMessage(final Package packet,
 			final RemoteEventListener<DeliveryEvent> nodeListener)
 			throws RemoteException {
+		log(packet);
+		metrics.accepted(1);
+		packagesInTransit.incrementAndGet();
 		// Notify the RemoteEventListener objects that the package has reached
 		// the GPSOffice.
-		eventGenerator.reportEvent(new DeliveryEvent("Package number "
-				+ packet.getTrackingNumber() + " arrived at " + this.name
-				+ " office", packet.getTrackingNumber(), 0));
-		try {
-			nodeListener.report(
-					0,
-					new DeliveryEvent("Package number "
-							+ packet.getTrackingNumber() + " arrived at "
-							+ this.name + " office",
-							packet.getTrackingNumber(), 0));
-		} catch (RemoteException e) {
-		}
+		report(nodeListener, event(DeliveryEvent.ARRIVED, packet));
 
-		// Store the name of the GPSOffice object returned by the
-		// getNearestNeighbor() function of the RoutingTable.
-		final String destination = this.getNextNeighbor(packet.getX(),
-				packet.getY());
+		hold(new Runnable() {
+			public void run() {
+				try {
+					dispatch(packet, nodeListener, false);
+				} finally {
+					packagesInTransit.decrementAndGet();
+				}
+			}
+		});
+	}
 
-		if (destination == null) {
-			eventGenerator.reportEvent(new DeliveryEvent("Packet number "
-					+ packet.getTrackingNumber() + " lost by " + destination,
-					packet.getTrackingNumber(), 2));
+	/**
+	 * Function that routes a batch of packages in a single call. The arrival
+	 * of every package is reported and the whole batch is routed by one
+	 * delayed task once the transit time is over.
+	 * 
+	 * @param packets
+	 *            Package objects that have to be delivered.
+	 * @param nodeListeners
+	 *            RemoteEventListener objects, one for each package in the same
+	 *            order.
+	 * 
+	 * @exception IllegalArgumentException
+	 *                Thrown if there is not one listener for each package.
+	 */
+	public void routeMessages(final List<Package> packets,
+			final List<RemoteEventListener<DeliveryEvent>> nodeListeners)
+			throws RemoteException {
+		if (packets.size() != nodeListeners.size()) {
+			throw new IllegalArgumentException("routeMessages() : "
+					+ packets.size() + " packages but " + nodeListeners.size()
+					+ " listeners");
+		}
+		log(packets);
+		metrics.accepted(packets.size());
+		packagesInTransit.addAndGet(packets.size());
+		for (int i = 0; i < packets.size(); ++i) {
+			Package packet = packets.get(i);
+			report(nodeListeners.get(i), event(DeliveryEvent.ARRIVED, packet));
+		}
+
+		hold(new Runnable() {
+			public void run() {
+				for (int i = 0; i < packets.size(); ++i) {
+					try {
+						dispatch(packets.get(i), nodeListeners.get(i), false);
+					} finally {
+						packagesInTransit.decrementAndGet();
+					}
+				}
+			}
+		});
+	}
 
-			nodeListener.report(
-					0,
-					new DeliveryEvent("Packet number "
-							+ packet.getTrackingNumber() + " lost by "
-							+ destination,// this.name,
-							packet.getTrackingNumber(), 2));
+	/**
+	 * Function that appends a package accepted by the office to the transit
+	 * log, if there is one.
+	 * 
+	 * @param packet
+	 *            The package accepted.
+	 * 
+	 * @exception RemoteException
+	 *                Thrown if the package cannot be logged, in which case it
+	 *                is not accepted.
+	 */
+	private void log(Package packet) throws RemoteException {
+		if (transitLog == null) {
+			return;
 		}
-		// Make the thread sleep for 3 seconds.
 		try {
-			Thread.sleep(3000);
-		} catch (InterruptedException exc) {
-			return;
+			transitLog.accepted(packet);
+		} catch (IOException exc) {
+			throw new RemoteException("GPSOffice : Cannot log the package",
+					exc);
 		}
+	}
 
-		final String currentName = this.name;
-		// If the current node is nearest to the destination then directly route
-		// the package to the destination.
-		if (destination.equals(this.name)) {
-			eventGenerator.reportEvent(new DeliveryEvent("Package number "
-					+ packet.getTrackingNumber() + " delivered from "
-					+ this.name + " office to (" + packet.getX() + ", "
-					+ packet.getY() + ")", packet.getTrackingNumber(), 1));
-			try {
-				nodeListener.report(0, new DeliveryEvent("Package number "
-						+ packet.getTrackingNumber() + " delivered from "
-						+ this.name + " office to (" + packet.getX() + ", "
-						+ packet.getY() + ")", packet.getTrackingNumber(), 1));
-			} catch (RemoteException e) {
-			}
+	/**
+	 * Function that appends a batch of packages accepted by the office to the
+	 * transit log, if there is one, in a single record.
+	 * 
+	 * @param packets
+	 *            The packages accepted.
+	 * 
+	 * @exception RemoteException
+	 *                Thrown if the packages cannot be logged, in which case
+	 *                none of them is accepted.
+	 */
+	private void log(List<Package> packets) throws RemoteException {
+		if (transitLog == null) {
+			return;
+		}
+		try {
+			transitLog.accepted(packets);
+		} catch (IOException exc) {
+			throw new RemoteException("GPSOffice : Cannot log the packages",
+					exc);
+		}
+	}
 
+	/**
+	 * Function that appends to the transit log, if there is one, that the
+	 * office is done with a package, which has been handed to the next hop,
+	 * delivered or lost.
+	 * 
+	 * @param packet
+	 *            The package.
+	 */
+	private void acknowledge(Package packet) {
+		if (transitLog == null) {
+			return;
+		}
+		try {
+			transitLog.acknowledged(packet);
+		} catch (IOException exc) {
+			// The package is at worst routed once more after a restart.
 		}
-		// If the current GPSOffice is not the nearest node then forward the
-		// package to the node that is nearest to the destination.
-		// We use a threadpool to send all the requests to the next node.
-		else {
+	}
 
-			// Get the object reference to the next node from the
-			// registry server.
-			try {
-				final GPSInterface routingNode = (GPSInterface) registry
-						.lookup(destination);
-				// Notify the RemoteEventListener objects that the package has
-				// departed
-				// the GPSOffice.
-				eventGenerator.reportEvent(new DeliveryEvent("Package "
-						+ packet.getTrackingNumber() + " departed from "
-						+ currentName + " office", packet.getTrackingNumber(),
-						0));
+	/**
+	 * Function that is done with a package delivered or lost by the office:
+	 * the package is acknowledged in the transit log, counted and reported.
+	 * 
+	 * @param status
+	 *            DELIVERED or LOST.
+	 * @param packet
+	 *            The package.
+	 * @param nodeListener
+	 *            The RemoteEventListener of the customer object sending the
+	 *            packet.
+	 */
+	private void finish(int status, Package packet,
+			RemoteEventListener<DeliveryEvent> nodeListener) {
+		acknowledge(packet);
+		if (status == DeliveryEvent.DELIVERED) {
+			metrics.delivered();
+		} else {
+			metrics.lost();
+		}
+		report(nodeListener, event(status, packet));
+	}
 
+	/**
+	 * Function that runs a task once the transit time of a package is over.
+	 * With virtual threads the task gets its own virtual thread, which sleeps
+	 * for the transit time, and otherwise it is a delayed task of the thread
+	 * pool.
+	 * 
+	 * @param task
+	 *            The task routing the package.
+	 */
+	private void hold(final Runnable task) {
+		final long transitDelay = GPSConfig.transitDelay();
+		if (packageThreads == null) {
+			threadPool.schedule(task, transitDelay, TimeUnit.MILLISECONDS);
+			return;
+		}
+		packageThreads.execute(new Runnable() {
+			public void run() {
 				try {
-					nodeListener
-							.report(0,
-									new DeliveryEvent("Package "
-											+ packet.getTrackingNumber()
-											+ " departed from " + currentName
-											+ " office", packet
-											.getTrackingNumber(), 0));
-				} catch (RemoteException e) {
+					Thread.sleep(transitDelay);
+				} catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
 				}
+				task.run();
+			}
+		});
+	}
 
-				threadPool.execute(new Runnable() {
-					public void run() {
-						try {
-							// Route the message to the node.
-							routingNode.routeMessage(packet, nodeListener);
-						}
-						// If an exception is caught here, that means the
-						// GPSOffice object has crashed.
-						// In such cases notify the RemoteEventListeners that
-						// the package has been dropped
-						// and also broadcast a message to all the GPSOffice
-						// objects to recompute their neighbors
-						// and remove the crashed GPSOffice object from their
-						// tables.
-						catch (Exception e) {
-							eventGenerator.reportEvent(new DeliveryEvent(
-									"Packet number "
-											+ packet.getTrackingNumber()
-											+ " lost by " + currentName, packet
-											.getTrackingNumber(), 2));
-							try {
-								nodeListener.report(0,
-										new DeliveryEvent("Packet number "
-												+ packet.getTrackingNumber()
-												+ " lost by " + currentName,
-												packet.getTrackingNumber(), 2));
-							} catch (RemoteException e1) {
-							}
-							neighbors.remove(destination);
-
-						}
-					}
-				});
-			} catch (NotBoundException exc) {
-				// If a not bound exception is encountered then remove the gps
-				// office
-				// entry from the neighbor table and recompute the neighbors and
-				// forward the package.
-				neighbors.remove(destination);
-				final String nextneighbor = this.getNextNeighbor(packet.getX(),
-						packet.getY());
-
-				if (nextneighbor.equals(this.name)) {
-					eventGenerator.reportEvent(new DeliveryEvent(
-							"Package number " + packet.getTrackingNumber()
-									+ " delivered from " + this.name
-									+ " office to (" + packet.getX() + ", "
-									+ packet.getY() + ")", packet
-									.getTrackingNumber(), 1));
-					try {
-						nodeListener.report(
-								0,
-								new DeliveryEvent("Package number "
-										+ packet.getTrackingNumber()
-										+ " delivered from " + this.name
-										+ " office to (" + packet.getX() + ", "
-										+ packet.getY() + ")", packet
-										.getTrackingNumber(), 1));
-					} catch (RemoteException e) {
-					}
+	/**
+	 * Function that routes a package once its transit time is over. If the
+	 * current node is nearest to the destination then the package is
+	 * delivered. Otherwise it is forwarded to the neighbor nearest to the
+	 * destination.
+	 * 
+	 * A package whose next hop has failed is routed again through the best of
+	 * the remaining live neighbors, even one farther from the destination than
+	 * the current office, as long as the current office is not the nearest to
+	 * the destination. Every attempt counts against the hop budget of the
+	 * package, which is only reported lost once the budget is spent or no
+	 * neighbor is left.
+	 * 
+	 * @param packet
+	 *            Package object that has to be delivered.
+	 * @param nodeListener
+	 *            The RemoteEventListener of the customer object sending the
+	 *            packet.
+	 * @param rerouted
+	 *            True if the package is routed again after its next hop
+	 *            failed.
+	 */
+	private void dispatch(Package packet,
+			RemoteEventListener<DeliveryEvent> nodeListener, boolean rerouted) {
+		// If the package carries a route computed by the office that accepted
+		// it, follow the route as long as the next office on it is known and
+		// not suspected.
+		String routedHop = packet.nextHopAfter(this.name);
+		if (routedHop != null
+				&& !routedHop.equals(this.name)
+				&& (!routingTable.knows(routedHop) || routingTable
+						.isSuspected(routedHop))) {
+			routedHop = null;
+		}
 
+		// Get the object reference to the next node. If the next node is no
+		// longer bound then remove it from the neighbors and recompute the
+		// next node.
+		String destination;
+		GPSInterface routingNode;
+		while (true) {
+			if (routedHop != null) {
+				destination = routedHop;
+				routedHop = null;
+			} else {
+				long start = System.nanoTime();
+				destination = routingTable.nextHop(packet.getX(),
+						packet.getY(), rerouted);
+				metrics.recordNeighborTime(System.nanoTime() - start);
+				if (destination == null) {
+					finish(DeliveryEvent.LOST, packet, nodeListener);
+					return;
 				}
+			}
+			// If the current node is nearest to the destination then directly
+			// route the package to the destination.
+			if (destination.equals(this.name)) {
+				finish(DeliveryEvent.DELIVERED, packet, nodeListener);
+				return;
+			}
+			try {
+				routingNode = lookupOffice(destination);
+				break;
+			} catch (NotBoundException exc) {
+				removeOffice(destination);
+				rerouted = true;
+			} catch (RemoteException exc) {
+				// The registry server cannot be reached, so the package
+				// cannot be routed any further.
+				finish(DeliveryEvent.LOST, packet, nodeListener);
+				return;
+			}
+		}
 
-				try {
-
-					final GPSInterface routingNode = (GPSInterface) registry
-							.lookup(nextneighbor);
-
-					eventGenerator.reportEvent(new DeliveryEvent("Package "
-							+ packet.getTrackingNumber() + " departed from "
-							+ currentName + " office", packet
-							.getTrackingNumber(), 0));
+		// A package that has used up its hop budget is caught in a loop or
+		// has run out of ways around failed offices.
+		if (packet.getHops() >= GPSConfig.maxHops()) {
+			finish(DeliveryEvent.LOST, packet, nodeListener);
+			return;
+		}
 
-					try {
-						nodeListener.report(0, new DeliveryEvent("Package "
-								+ packet.getTrackingNumber()
-								+ " departed from " + currentName + " office",
-								packet.getTrackingNumber(), 0));
-					} catch (RemoteException e) {
-					}
+		// Notify the RemoteEventListener objects that the package has
+		// departed the GPSOffice.
+		report(nodeListener, event(DeliveryEvent.DEPARTED, packet));
+		forward(destination, routingNode, packet.withHop(), nodeListener);
+	}
 
-					threadPool.execute(new Runnable() {
-						public void run() {
-							try {
-								// Route the message to the node.
-								routingNode.routeMessage(packet, nodeListener);
-							}
-							// If an exception is caught here, that means the
-							// GPSOffice object has crashed.
-							// In such cases notify the RemoteEventListeners
-							// that
-							// the package has been dropped
-							// and also broadcast a message to all the GPSOffice
-							// objects to recompute their neighbors
-							// and remove the crashed GPSOffice object from
-							// their
-							// tables.
-							catch (Exception e) {
-								eventGenerator.reportEvent(new DeliveryEvent(
-										"Packet number "
-												+ packet.getTrackingNumber()
-												+ " lost by " + currentName
-												+ " office", packet
-												.getTrackingNumber(), 2));
-								try {
-									nodeListener.report(
-											0,
-											new DeliveryEvent(
-													"Packet number "
-															+ packet.getTrackingNumber()
-															+ " lost by "
-															+ currentName
-															+ " office",
-													packet.getTrackingNumber(),
-													2));
-								} catch (RemoteException e1) {
-								}
-								neighbors.remove(nextneighbor);
-
-							}
-						}
-					});
-				} catch (NotBoundException exc1) {
-					System.out.println(destination + " is not bound exception");
+	/**
+	 * Function returning the object reference to a GPSOffice object. The
+	 * reference is looked up in the registry the first time and then kept
+	 * until the office is removed.
+	 * 
+	 * @param officeName
+	 *            Name of the GPSOffice object.
+	 * 
+	 * @return GPSInterface The object reference.
+	 * 
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 * @exception NotBoundException
+	 *                Thrown if the office is not bound in the registry.
+	 */
+	private GPSInterface lookupOffice(String officeName)
+			throws RemoteException, NotBoundException {
+		GPSInterface nodeRef = officeRefs.get(officeName);
+		if (nodeRef == null) {
+			nodeRef = Transports.connect(registry.lookup(officeName));
+			// Keep the reference of a thread that looked the office up at
+			// the same time, and close the link of this one.
+			GPSInterface otherRef = officeRefs.putIfAbsent(officeName, nodeRef);
+			if (otherRef != null) {
+				if (otherRef != nodeRef) {
+					NioTransport.close(nodeRef);
 				}
+				nodeRef = otherRef;
 			}
 		}
+		return nodeRef;
+	}
 
+	/**
+	 * Function that queues a package in the lane of the next hop of the
+	 * ForwardingEngine. The packages headed for the same next hop in the batch
+	 * window cross the link in a single remote call, in the order they were
+	 * queued, while the packages for different next hops are sent in parallel.
+	 * 
+	 * @param destination
+	 *            Name of the next hop.
+	 * @param routingNode
+	 *            Object reference to the next hop.
+	 * @param packet
+	 *            Package object that has to be delivered.
+	 * @param nodeListener
+	 *            The RemoteEventListener of the customer object sending the
+	 *            packet.
+	 */
+	private void forward(String destination, GPSInterface routingNode,
+			Package packet, RemoteEventListener<DeliveryEvent> nodeListener) {
+		forwardingEngine.forward(destination, routingNode, packet,
+				nodeListener);
+	}
+
+	/**
+	 * Function that creates a DeliveryEvent of the current office for a
+	 * package.
+	 * 
+	 * @param status
+	 *            The status code of the event.
+	 * @param packet
+	 *            The package the event is about.
+	 * 
+	 * @return DeliveryEvent The event.
+	 */
+	private DeliveryEvent event(int status, Package packet) {
+		return new DeliveryEvent(status, packet.getTrackingNumber(), officeId,
+				packet.getX(), packet.getY(), packet.getHops());
+	}
+
+	/**
+	 * Function that reports a DeliveryEvent to all the RemoteEventListener
+	 * objects of the office and to the listener of the customer sending the
+	 * package. The events are only queued here and sent by the senders of the
+	 * EventFanout, so that the routing never waits for a listener.
+	 * 
+	 * @param nodeListener
+	 *            The RemoteEventListener of the customer object sending the
+	 *            packet.
+	 * @param event
+	 *            The DeliveryEvent to be reported.
+	 */
+	private void report(RemoteEventListener<DeliveryEvent> nodeListener,
+			DeliveryEvent event) {
+		eventFanout.report(nodeListener, event);
 	}
 
 	/**
 	 * Function that is called by the Customer when it wishes to deliver a
 	 * packet. This function wraps up all the parameters of the package in a
-	 * Package object and returns it to the Customer object.
+	 * Package object and returns it to the Customer object. The tracking
+	 * number of the package is unique across the network as long as every
+	 * office has a unique ID. If source routing is enabled the office computes
+	 * the whole route of the package here, so that the other offices only
+	 * have to follow it.
 	 * 
 	 * @param X
 	 *            X-coordinate of the destination.
@@ -615,10 +1188,30 @@ public class GPSOffice implements GPSInterface {
 	 *                Thrown when a remote error occurs.
 	 */
 	public Package deliverPackage(double X, double Y) throws RemoteException {
-		Package packet = new Package(X, Y);
+		Package packet = new Package(X, Y, trackingNumbers.next());
+		if (GPSConfig.sourceRouting()) {
+			packet = packet.withRoute(computeRoute(X, Y));
+		}
 		return packet;
 	}
 
+	/**
+	 * Function that computes the route of a package from the current office
+	 * over the offices index, taking at every office the decision
+	 * getNextNeighbor() would take there.
+	 * 
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 * 
+	 * @return String[] The names of the offices on the route, starting with
+	 *         the current office and ending with the delivering office.
+	 */
+	String[] computeRoute(double x, double y) {
+		return routingTable.computeRoute(x, y);
+	}
+
 	/**
 	 * Function that converts the string parameter to an integer and returns the
 	 * value.
@@ -684,7 +1277,7 @@ public class GPSOffice implements GPSInterface {
 	 */
 	public Lease addListener(RemoteEventListener<DeliveryEvent> listener)
 			throws RemoteException {
-		return eventGenerator.addListener(listener);
+		return eventFanout.addListener(listener);
 	}
 
 }
\ No newline at end of file
@@ -1,15 +1,24 @@
-import edu.rit.ds.registry.RegistryProxy;
 import edu.rit.ds.RemoteEventListener;
 import java.rmi.server.UnicastRemoteObject;
-import edu.rit.ds.registry.RegistryEventListener;
-import edu.rit.ds.registry.RegistryEvent;
 import java.rmi.RemoteException;
 import edu.rit.ds.registry.NotBoundException;
-import edu.rit.ds.registry.RegistryEventFilter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Class Headquarters is the main GPS headquarter office which intercepts all
  * the routing messages of all the packages being sent in the system.
+ * The events are handed to an EventPipeline and written to the console and,
+ * if the system property gps.hq.logFile is set, to a rolling log file by a
+ * separate thread, so that a slow output never holds up the GPSOffice objects.
+ * The pipeline also keeps a PackageIndex of the status of every package, which
+ * is bound in the registry under the name Headquarters and can be queried
+ * through the TrackingInterface, for example with the Tracker program.
+ * The events only carry the ID of their office, so the name of every office
+ * is learnt from its descriptor when the headquarters starts listening to it.
  * 
  * Class Customer also has a main program that takes the user input. 
  * Usage() : java Headquarters <host> <port>. 
@@ -19,9 +28,9 @@ import edu.rit.ds.registry.RegistryEventFilter;
 public class Headquarters {
 
 	/**
-	 * RegistryProxy object.
+	 * Registry the GPSOffice objects are bound in.
 	 */
-	private static RegistryProxy registry;
+	private static OfficeRegistry registry;
 
 	/**
 	 * RemoteEventListener object to listen to any DeliveryEvent that the
@@ -30,15 +39,31 @@ public class Headquarters {
 	private static RemoteEventListener<DeliveryEvent> nodeListener;
 
 	/**
-	 * RegistryEventListener object to listen to any events generated by the
-	 * objects registered in the registry.
+	 * EventPipeline writing the events received to the sinks.
 	 */
-	private static RegistryEventListener registryListener;
+	private static EventPipeline pipeline;
 
 	/**
-	 * RegistryEventFilter object to filter out the DeliveryEvent sources.
+	 * Names of the offices listened to, by ID.
 	 */
-	private static RegistryEventFilter registryFilter;
+	private static final OfficeNames officeNames = new OfficeNames();
+
+	/**
+	 * PackageIndex keeping the status of every package.
+	 */
+	private static PackageIndex packageIndex;
+
+	/**
+	 * Executor running every subscription to a GPSOffice on its own virtual
+	 * thread, or null if the subscriptions are made by the calling thread.
+	 */
+	private static ExecutorService subscribers;
+
+	/**
+	 * DeliveryMetrics aggregating the delivery latency and hop count of the
+	 * packages.
+	 */
+	private static DeliveryMetrics deliveryMetrics;
 
 	/**
 	 * Main program of class Headquarters.
@@ -55,40 +80,72 @@ public class Headquarters {
 		String host = args[0];
 		int port = parseInteger(args[1], "port");
 
-		// Instantiate the RegistryProxy object on the host and port specified.
-		registry = new RegistryProxy(host, port);
+		// Connect to the Registry Server on the host and port specified.
+		start(new RemoteRegistry(host, port));
+	}
 
-		// Instantiate the RegistryEventListener object to listen to the
-		// RemoteEvent subclass objects passed in the registry.
-		registryListener = new RegistryEventListener() {
-			public void report(long seqnum, RegistryEvent event) {
-				listenToNode(event.objectName());
-			}
-		};
+	/**
+	 * Function that starts the headquarters on a registry: binds the
+	 * PackageIndex in it and listens to every GPSOffice object bound in it,
+	 * now and later.
+	 * 
+	 * @param officeRegistry
+	 *            Registry the GPSOffice objects are bound in.
+	 * 
+	 * @exception IOException
+	 *                Thrown if the log file cannot be opened.
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 */
+	public static void start(OfficeRegistry officeRegistry)
+			throws IOException, RemoteException {
+		registry = officeRegistry;
+
+		// With virtual threads the offices are subscribed to in parallel, so
+		// that an office slow to answer does not hold up the others.
+		if (VirtualThreads.isEnabled()) {
+			subscribers = VirtualThreads.newThreadPerTaskExecutor();
+		}
 
-		// Export the RegistryListener to the registry.
-		UnicastRemoteObject.exportObject(registryListener, 0);
+		// Create the pipeline that prints the events and the index of the
+		// packages, and bind the index in the registry so it can be queried.
+		packageIndex = new PackageIndex(GPSConfig.getInt("gps.hq.retention",
+				600000), GPSConfig.getInt("gps.hq.maxFinished", 1000000),
+				GPSConfig.getInt("gps.hq.transitRetention", 3600000),
+				GPSConfig.getInt("gps.hq.tombstoneTime", 60000), officeNames);
+		pipeline = createPipeline();
+		UnicastRemoteObject.exportObject(packageIndex, 0);
+		registry.rebind(System.getProperty("gps.hq.name", "Headquarters"),
+				packageIndex);
 
 		// Instantiate the RemoteEventListener to listen to any events of type
 		// DeliveryEvent.
-		nodeListener = new RemoteEventListener<DeliveryEvent>() {
-			// In case an event is caught the headquarters will just print the
-			// delivery notification of the event.
+		nodeListener = new DeliveryListener() {
+			// In case an event is caught the headquarters will just hand it to
+			// the pipeline that prints the delivery notification of the event.
 			public void report(long seqnum, DeliveryEvent event) {
-				System.out.println(event.deliveryNotification);
+				pipeline.publish(event);
+			}
+
+			public void reportBatch(List<DeliveryEvent> events) {
+				for (DeliveryEvent event : events) {
+					pipeline.publish(event);
+				}
 			}
 		};
 
 		// Export the RemoteEventListener object to the registry.
 		UnicastRemoteObject.exportObject(nodeListener, 0);
 
-		// Instantiate the RegistryEventFilter object that will filter out the
-		// Events generated
-		// by the GPSOffice.
-		registryFilter = new RegistryEventFilter().reportType("GPSOffice")
-				.reportBound();
-		// Add the event listeners to the RegistryServer.
-		registry.addEventListener(registryListener, registryFilter);
+		// Listen to the GPSOffice objects bound in the registry from now on.
+		registry.addListener("GPSOffice", new OfficeRegistry.Listener() {
+			public void bound(String objectName) {
+				listenToNode(objectName);
+			}
+
+			public void unbound(String objectName) {
+			}
+		});
 
 		// For all objects in the registry of type GPSOffice, make the client
 		// listen to them
@@ -99,6 +156,87 @@ public class Headquarters {
 		}
 	}
 
+	/**
+	 * Function returning the DeliveryMetrics of the headquarters.
+	 * 
+	 * @return DeliveryMetrics The metrics, or null if the headquarters has not
+	 *         been started.
+	 */
+	public static DeliveryMetrics getDeliveryMetrics() {
+		return deliveryMetrics;
+	}
+
+	/**
+	 * Function that creates the EventPipeline with the sinks selected by the
+	 * system properties gps.hq.console (default true), gps.hq.logFile (no log
+	 * file by default), gps.hq.logFileSize (maximum size of the log file in
+	 * bytes, default 64 MB), gps.hq.logFiles (number of old log files kept,
+	 * default 5) and gps.hq.buffer (capacity of the buffer, default 65536),
+	 * followed by the PackageIndex. The retention time in milliseconds and the
+	 * maximum number of finished packages kept by the index are set by
+	 * gps.hq.retention (default 600000) and gps.hq.maxFinished (default
+	 * 1000000), the time in milliseconds a package in transit is kept after
+	 * it was last seen by gps.hq.transitRetention (default 3600000), and the
+	 * time in milliseconds the tracking number of an evicted finished
+	 * package is remembered by gps.hq.tombstoneTime (default 60000).
+	 * The DeliveryMetrics come last and are exposed through JMX. The
+	 * pipeline is closed when the program exits. If the property
+	 * gps.hq.statsInterval is set, the counters of the pipeline and the
+	 * delivery metrics are printed on the standard error every so many
+	 * milliseconds.
+	 * 
+	 * @return EventPipeline The pipeline.
+	 * 
+	 * @exception IOException
+	 *                Thrown if the log file cannot be opened.
+	 */
+	private static EventPipeline createPipeline() throws IOException {
+		List<EventSink> sinks = new ArrayList<EventSink>();
+		if (GPSConfig.getBoolean("gps.hq.console", true)) {
+			sinks.add(new ConsoleEventSink(officeNames));
+		}
+		String logFile = System.getProperty("gps.hq.logFile");
+		if (logFile != null) {
+			sinks.add(new RollingFileEventSink(new File(logFile),
+					GPSConfig.getInt("gps.hq.logFileSize", 64 << 20),
+					GPSConfig.getInt("gps.hq.logFiles", 5), officeNames));
+		}
+		sinks.add(packageIndex);
+		deliveryMetrics = new DeliveryMetrics();
+		deliveryMetrics.register();
+		sinks.add(deliveryMetrics);
+		final EventPipeline eventPipeline = new EventPipeline(
+				GPSConfig.getInt("gps.hq.buffer", 65536), sinks);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				try {
+					eventPipeline.close();
+				} catch (InterruptedException exc) {
+				}
+				System.err.println(eventPipeline);
+			}
+		});
+		final long statsInterval = GPSConfig.getInt("gps.hq.statsInterval", 0);
+		if (statsInterval > 0) {
+			Thread stats = new Thread() {
+				public void run() {
+					while (true) {
+						try {
+							Thread.sleep(statsInterval);
+						} catch (InterruptedException exc) {
+							return;
+						}
+						System.err.println(eventPipeline);
+						System.err.println(deliveryMetrics);
+					}
+				}
+			};
+			stats.setDaemon(true);
+			stats.start();
+		}
+		return eventPipeline;
+	}
+
 	/**
 	 * Function that returns a string that tells the user how the program is
 	 * expected to be compiled and also explains what each command line argument
@@ -146,9 +284,31 @@ public class Headquarters {
 	 * @param objectName
 	 *            Name of the object in the registry.
 	 */
-	private static void listenToNode(String objectName) {
+	private static void listenToNode(final String objectName) {
+		if (subscribers != null) {
+			subscribers.execute(new Runnable() {
+				public void run() {
+					subscribe(objectName);
+				}
+			});
+		} else {
+			subscribe(objectName);
+		}
+	}
+
+	/**
+	 * Function that adds the listener of the headquarters to an object
+	 * registered in the registry, once the name of its ID is known.
+	 * 
+	 * @param objectName
+	 *            Name of the object in the registry.
+	 */
+	private static void subscribe(String objectName) {
 		try {
-			GPSInterface gpsNode = (GPSInterface) registry.lookup(objectName);
+			GPSInterface gpsNode = Transports.connect(registry
+					.lookup(objectName));
+			OfficeDescriptor descriptor = gpsNode.getDescriptor();
+			officeNames.put(descriptor.getOfficeId(), descriptor.getName());
 			gpsNode.addListener(nodeListener);
 		} catch (NotBoundException exc) {
 
@@ -0,0 +1,166 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Class Histogram records the distribution of non negative long values, such
+ * as durations in nanoseconds, in the manner of HdrHistogram. The values are
+ * counted in buckets whose width grows with the value so that every value is
+ * known within 1/64 of itself, about 1.5%, from 0 up to Long.MAX_VALUE, in a
+ * fixed array of a few thousand counters.
+ *
+ * Recording a value only increments counters, without locking or allocating,
+ * so many threads can record into the same histogram. The percentiles are
+ * computed on demand from the counters.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class Histogram {
+
+	/**
+	 * Values below this one have a bucket each. Above it every power of two
+	 * is split into HALF buckets.
+	 */
+	private static final int LINEAR = 128;
+	private static final int HALF = LINEAR / 2;
+
+	/**
+	 * Number of bits of a value below which the buckets are linear.
+	 */
+	private static final int LINEAR_BITS = 7;
+
+	/**
+	 * Number of buckets, enough for Long.MAX_VALUE.
+	 */
+	private static final int BUCKETS = LINEAR + (64 - LINEAR_BITS) * HALF;
+
+	/**
+	 * Counters of the buckets.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * Number of values, sum of the values and largest value recorded.
+	 */
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Function that records a value. Negative values are recorded as 0.
+	 *
+	 * @param value
+	 *            The value.
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucket(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long current;
+		while (value > (current = max.get())
+				&& !max.compareAndSet(current, value)) {
+		}
+	}
+
+	/**
+	 * Function returning the number of values recorded.
+	 *
+	 * @return long The count.
+	 */
+	public long getCount() {
+		return count.get();
+	}
+
+	/**
+	 * Function returning the largest value recorded.
+	 *
+	 * @return long The maximum, or 0 if no value has been recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Function returning the mean of the values recorded.
+	 *
+	 * @return double The mean, or 0 if no value has been recorded.
+	 */
+	public double getMean() {
+		long n = count.get();
+		return n == 0 ? 0.0 : (double) sum.get() / n;
+	}
+
+	/**
+	 * Function returning the value below which a given percentage of the
+	 * values recorded fall, rounded up to the end of its bucket.
+	 *
+	 * @param percentile
+	 *            The percentage, from 0 to 100.
+	 *
+	 * @return long The value at the percentile, or 0 if no value has been
+	 *         recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		long[] snapshot = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; ++i) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1,
+				(long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return Math.min(highestValue(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/**
+	 * Function returning a snapshot of the main figures of the histogram.
+	 *
+	 * @return HistogramSnapshot The snapshot.
+	 */
+	public HistogramSnapshot snapshot() {
+		return new HistogramSnapshot(getCount(), getMean(),
+				getValueAtPercentile(50), getValueAtPercentile(90),
+				getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+	}
+
+	/**
+	 * Function returning the bucket of a value.
+	 */
+	static int bucket(long value) {
+		if (value < LINEAR) {
+			return (int) value;
+		}
+		// Shift the value so that it falls between HALF and LINEAR.
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (LINEAR_BITS - 1);
+		return LINEAR + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+	}
+
+	/**
+	 * Function returning the largest value of a bucket.
+	 */
+	static long highestValue(int bucket) {
+		if (bucket < LINEAR) {
+			return bucket;
+		}
+		int shift = (bucket - LINEAR) / HALF + 1;
+		long low = (long) ((bucket - LINEAR) % HALF + HALF) << shift;
+		long high = low + (1L << shift) - 1;
+		return high < 0 ? Long.MAX_VALUE : high;
+	}
+
+	public String toString() {
+		return snapshot().toString();
+	}
+}
@@ -0,0 +1,85 @@
+import java.io.Serializable;
+
+/**
+ * The class HistogramSnapshot holds the main figures of a Histogram at a given
+ * time: the number of values, their mean, some percentiles and the largest
+ * value. It is the form in which the histograms are exposed through JMX.
+ * Objects of this class are immutable.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public final class HistogramSnapshot implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long count;
+	private final double mean;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	private final long p999;
+	private final long max;
+
+	/**
+	 * Constructor that sets the values for all the variables.
+	 *
+	 * @param count
+	 *            Number of values.
+	 * @param mean
+	 *            Mean of the values.
+	 * @param p50
+	 *            Median.
+	 * @param p90
+	 *            90th percentile.
+	 * @param p99
+	 *            99th percentile.
+	 * @param p999
+	 *            99.9th percentile.
+	 * @param max
+	 *            Largest value.
+	 */
+	public HistogramSnapshot(long count, double mean, long p50, long p90,
+			long p99, long p999, long max) {
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public String toString() {
+		return "count " + count + ", mean " + String.format("%.1f", mean)
+				+ ", p50 " + p50 + ", p90 " + p90 + ", p99 " + p99
+				+ ", p99.9 " + p999 + ", max " + max;
+	}
+}
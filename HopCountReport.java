@@ -0,0 +1,99 @@
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Class HopCountReport measures how many hops the packages take across
+ * networks of growing size, with and without the long-range shortcuts of the
+ * offices. Every network is built by a Simulation with offices placed at
+ * random, one per 100 square units, and the same number of packages is sent
+ * between random offices and random destinations. For every size the report
+ * prints a line with the nearest neighbors only and, if gps.shortcuts is set,
+ * a line with that many shortcuts, giving the mean number of neighbors of an office, the
+ * packages delivered and misdelivered, and the percentiles of the hop count.
+ *
+ * The number of nearest neighbors is set by gps.neighbors and the seed of the
+ * random choices by gps.sim.seed (default 1).
+ *
+ * Usage() : java HopCountReport <packages> <offices> [<offices> ...]
+ * <packages> : Number of packages sent in every network.
+ * <offices> : Number of offices of a network.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class HopCountReport {
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private HopCountReport() {
+	}
+
+	/**
+	 * Main program of class HopCountReport.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			usage();
+		}
+		int packages = GPSOffice.parseInt(args[0], "packages");
+		int[] sizes = new int[args.length - 1];
+		for (int i = 0; i < sizes.length; ++i) {
+			sizes[i] = GPSOffice.parseInt(args[i + 1], "offices");
+			if (sizes[i] < 1) {
+				usage();
+			}
+		}
+		if (packages < 1) {
+			usage();
+		}
+		int degree = GPSConfig.neighbors();
+		int[] shortcuts = GPSConfig.shortcuts() == 0 ? new int[] { 0 }
+				: new int[] { 0, GPSConfig.shortcuts() };
+		long seed = GPSConfig.getInt("gps.sim.seed", 1);
+
+		System.out.println(String.format(Locale.ROOT,
+				"%9s %9s %9s %10s %12s %9s %6s %6s %6s %6s", "Offices",
+				"Shortcuts", "Neighbors", "Delivered", "Misdelivered",
+				"Hops mean", "p50", "p90", "p99", "max"));
+		for (int size : sizes) {
+			for (int shortcut : shortcuts) {
+				// The same offices and packages for every number of
+				// shortcuts.
+				Random random = new Random(seed);
+				Simulation simulation = new Simulation(
+						System.currentTimeMillis(), degree, shortcut);
+				double side = simulation.addRandomOffices(size, random);
+				simulation.connect();
+				for (int i = 0; i < packages; ++i) {
+					simulation.send("office" + random.nextInt(size),
+							random.nextDouble() * side, random.nextDouble()
+									* side);
+				}
+				simulation.run(Long.MAX_VALUE);
+				Histogram hops = simulation.getHopCounts();
+				System.out.println(String.format(Locale.ROOT,
+						"%9d %9d %9.1f %10d %11.1f%% %9.1f %6d %6d %6d %6d",
+						size, shortcut, simulation.getMeanNeighbors(),
+						simulation.getDelivered(),
+						100.0 * simulation.getMisdelivered()
+								/ Math.max(1, simulation.getDelivered()),
+						hops.getMean(), hops.getValueAtPercentile(50),
+						hops.getValueAtPercentile(90),
+						hops.getValueAtPercentile(99), hops.getMax()));
+			}
+		}
+	}
+
+	/**
+	 * Function that prints the usage of the report and exits.
+	 */
+	public static void usage() {
+		String usageString = "\nUsage() : java HopCountReport <packages> "
+				+ "<offices> [<offices> ...]\n";
+		usageString += "<packages> : Number of packages sent in every"
+				+ " network.\n";
+		usageString += "<offices> : Number of offices of a network.\n";
+		System.out.println(usageString);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,198 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class InFlightBenchmark measures how many packages a network of offices can
+ * keep in flight at the same time with platform threads and with virtual
+ * threads. It runs GPSOffice objects on a LocalRegistry in a single JVM, as
+ * LoadTest does, placed 10 units apart on a square grid, and a LoadGenerator
+ * sends the packages from random offices to random destinations through
+ * routeMessage(), so every package is held for the transit time and forwarded
+ * by the offices exactly as in a real network.
+ *
+ * The mode of the threads of an office is fixed when the JVM starts, so each
+ * mode is run in a JVM of its own, started with the same class path: the
+ * platform mode with gps.virtualThreads set to false, where the packages are
+ * held as delayed tasks of the pools of gps.forward.workers threads, and the
+ * virtual mode with gps.virtualThreads set to true, where every package is
+ * held on its own virtual thread, if the runtime has virtual threads. The
+ * other gps.* properties are passed on to both JVMs. The offices call each
+ * other directly unless gps.transport.direct is set to false, in which case
+ * every forward is a blocking RMI call over the loopback interface.
+ *
+ * For every number of packages the time taken to deliver all of them, the
+ * throughput, the packages delivered and the largest number of packages held
+ * by all the offices at the same time are printed.
+ *
+ * Usage: java InFlightBenchmark [<offices> <transit> <count> ...]
+ * <offices> : Number of offices, default 16.
+ * <transit> : Transit time of a package in milliseconds, default 100.
+ * <count> : Numbers of packages sent at once, default 100 1000 10000.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class InFlightBenchmark {
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private InFlightBenchmark() {
+	}
+
+	/**
+	 * Main program of class InFlightBenchmark.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length > 0 && args[0].equals("-mode")) {
+			runMode(args);
+			return;
+		}
+		int offices = 16;
+		long transit = 100;
+		String[] counts = { "100", "1000", "10000" };
+		if (args.length == 1 || args.length == 2) {
+			usage();
+		}
+		if (args.length >= 3) {
+			offices = Customer.parseInteger(args[0], "offices");
+			transit = Customer.parseInteger(args[1], "transit");
+			counts = new String[args.length - 2];
+			for (int i = 2; i < args.length; ++i) {
+				counts[i - 2] = String.valueOf(Customer.parseInteger(args[i],
+						"count"));
+			}
+			if (offices < 1
+					|| offices > TrackingNumberGenerator.MAX_OFFICE_ID + 1) {
+				usage();
+			}
+		}
+
+		System.out.println(offices + " offices, transit " + transit + " ms, "
+				+ GPSConfig.forwardWorkers()
+				+ " platform workers, virtual threads "
+				+ (VirtualThreads.isSupported() ? "supported" : "not supported"));
+		System.out.println(String.format("%-9s %8s %10s %12s %10s %10s", "mode",
+				"packages", "time (ms)", "packages/s", "delivered", "max held"));
+		runChild("platform", false, offices, transit, counts);
+		if (VirtualThreads.isSupported()) {
+			runChild("virtual", true, offices, transit, counts);
+		}
+	}
+
+	/**
+	 * Function that runs a mode in a JVM of its own and waits for it.
+	 */
+	private static void runChild(String mode, boolean virtual, int offices,
+			long transit, String[] counts) throws Exception {
+		List<String> command = new ArrayList<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin"
+				+ File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		for (Map.Entry<Object, Object> property : System.getProperties()
+				.entrySet()) {
+			String key = property.getKey().toString();
+			if (key.startsWith("gps.")) {
+				command.add("-D" + key + "=" + property.getValue());
+			}
+		}
+		command.add("-Dgps.virtualThreads=" + virtual);
+		command.add("-Dgps.transitDelay=" + transit);
+		command.add("-Dgps.hq.console=false");
+		command.add("InFlightBenchmark");
+		command.add("-mode");
+		command.add(mode);
+		command.add(String.valueOf(offices));
+		for (String count : counts) {
+			command.add(count);
+		}
+		Process process = new ProcessBuilder(command).inheritIO().start();
+		if (process.waitFor() != 0) {
+			System.err.println("The " + mode + " mode failed");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Function that starts the offices and sends the packages of every count,
+	 * in the JVM of a mode.
+	 */
+	private static void runMode(String[] args) throws Exception {
+		String mode = args[1];
+		int officeCount = Integer.parseInt(args[2]);
+		int side = (int) Math.ceil(Math.sqrt(officeCount));
+		LocalRegistry registry = new LocalRegistry();
+		final List<GPSOffice> offices = new ArrayList<GPSOffice>();
+		List<String> cities = new ArrayList<String>();
+		for (int i = 0; i < officeCount; ++i) {
+			String name = "office" + i;
+			offices.add(new GPSOffice(registry, new String[] { name,
+					String.valueOf(i % side * 10), String.valueOf(i / side * 10),
+					String.valueOf(i) }));
+			cities.add(name);
+		}
+		registry.awaitListeners();
+		double max = (side - 1) * 10;
+
+		for (int i = 3; i < args.length; ++i) {
+			long packages = Long.parseLong(args[i]);
+			LoadGenerator generator = new LoadGenerator(registry,
+					GPSConfig.getInt("gps.load.senders", 4));
+			// Sample the packages held by all the offices while they are
+			// routed.
+			final AtomicBoolean running = new AtomicBoolean(true);
+			final AtomicInteger maxHeld = new AtomicInteger();
+			Thread sampler = new Thread("InFlightBenchmark-sampler") {
+				public void run() {
+					while (running.get()) {
+						int held = 0;
+						for (GPSOffice office : offices) {
+							held += office.getDescriptor()
+									.getPackagesInTransit();
+						}
+						if (held > maxHeld.get()) {
+							maxHeld.set(held);
+						}
+						try {
+							Thread.sleep(5);
+						} catch (InterruptedException exc) {
+							return;
+						}
+					}
+				}
+			};
+			sampler.setDaemon(true);
+			sampler.start();
+			long start = System.nanoTime();
+			generator.sendRandom(packages, 0, cities, 0, 0, max, max);
+			generator.awaitCompletion(GPSConfig.getInt("gps.load.idleTimeout",
+					30000));
+			long time = System.nanoTime() - start;
+			running.set(false);
+			sampler.join();
+			double millis = time / 1e6;
+			System.out.println(String.format("%-9s %8d %10.1f %12.0f %10d %10d",
+					mode, packages, millis, generator.getDelivered()
+							/ (millis / 1000.0), generator.getDelivered(),
+					maxHeld.get()));
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Function that prints the usage of the program and exits.
+	 */
+	private static void usage() {
+		System.err
+				.println("Usage: java InFlightBenchmark [<offices> <transit> <count> ...]");
+		System.err.println("<offices> : Number of offices");
+		System.err
+				.println("<transit> : Transit time of a package in milliseconds");
+		System.err.println("<count> : Numbers of packages sent at once");
+		System.exit(1);
+	}
+}
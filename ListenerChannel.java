@@ -0,0 +1,262 @@
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import edu.rit.ds.Lease;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * Class ListenerChannel is the outbound queue of the DeliveryEvent objects for
+ * one remote listener of a GPSOffice object. Reporting an event only puts it
+ * in the bounded queue of the channel, and a background sender takes the
+ * events out of the queue and sends them to the listener, several per call if
+ * the listener is a DeliveryListener. A listener that is slow or dead
+ * therefore never holds up the routing of the packages.
+ * 
+ * A listener that falls a whole queue behind, or whose calls fail several
+ * times in a row, is evicted: its queue is dropped and its Lease, if it has
+ * one, is cancelled.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class ListenerChannel implements RemoteEventListener<DeliveryEvent> {
+
+	/**
+	 * Largest number of events sent in one call.
+	 */
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * The remote listener.
+	 */
+	private final RemoteEventListener<DeliveryEvent> listener;
+
+	/**
+	 * Queue of the events waiting to be sent.
+	 */
+	private final RingBuffer<DeliveryEvent> queue;
+
+	/**
+	 * Executor running the sender of the channel.
+	 */
+	private final Executor senders;
+
+	/**
+	 * Number of failed calls in a row after which the listener is evicted.
+	 */
+	private final int maxFailures;
+
+	/**
+	 * Set while a sender is scheduled or running, so that only one sender
+	 * takes events out of the queue at a time.
+	 */
+	private final AtomicBoolean sending = new AtomicBoolean();
+
+	/**
+	 * Lease of the listener, cancelled when it is evicted.
+	 */
+	private volatile Lease lease;
+
+	/**
+	 * Set when the channel no longer accepts events.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Set when the listener has been evicted.
+	 */
+	private volatile boolean evicted;
+
+	/**
+	 * Time in milliseconds an event was last accepted.
+	 */
+	private volatile long lastUsed = System.currentTimeMillis();
+
+	/**
+	 * Number of failed calls in a row, only used by the sender.
+	 */
+	private int failures;
+
+	/**
+	 * Constructor that creates a channel to a remote listener.
+	 * 
+	 * @param listener
+	 *            The remote listener.
+	 * @param capacity
+	 *            Capacity of the queue.
+	 * @param maxFailures
+	 *            Number of failed calls in a row after which the listener is
+	 *            evicted.
+	 * @param senders
+	 *            Executor running the sender of the channel.
+	 */
+	public ListenerChannel(RemoteEventListener<DeliveryEvent> listener,
+			int capacity, int maxFailures, Executor senders) {
+		this.listener = listener;
+		this.queue = new RingBuffer<DeliveryEvent>(capacity);
+		this.maxFailures = maxFailures;
+		this.senders = senders;
+	}
+
+	/**
+	 * Function that sets the lease cancelled when the listener is evicted.
+	 * 
+	 * @param lease
+	 *            The lease of the listener.
+	 */
+	public void setLease(Lease lease) {
+		this.lease = lease;
+		if (evicted) {
+			cancelLease();
+		}
+	}
+
+	/**
+	 * Function called by the RemoteEventGenerator of the office, which queues
+	 * the event for the listener.
+	 */
+	public void report(long seqnum, DeliveryEvent event) {
+		offer(event);
+	}
+
+	/**
+	 * Function that queues an event for the listener.
+	 * 
+	 * @param event
+	 *            The event.
+	 * 
+	 * @return boolean False if the channel is closed and the event was not
+	 *         queued, true otherwise.
+	 */
+	public boolean offer(DeliveryEvent event) {
+		if (evicted) {
+			// The event is dropped, but the listener is still in use.
+			lastUsed = System.currentTimeMillis();
+			return false;
+		}
+		if (closed) {
+			return false;
+		}
+		if (!queue.offer(event)) {
+			// The listener is a whole queue behind.
+			evict();
+			return true;
+		}
+		lastUsed = System.currentTimeMillis();
+		schedule();
+		return true;
+	}
+
+	/**
+	 * Function that schedules the sender unless it is already scheduled.
+	 */
+	private void schedule() {
+		if (sending.compareAndSet(false, true)) {
+			senders.execute(new Runnable() {
+				public void run() {
+					send();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Function run by the sender, which sends the queued events in batches
+	 * until the queue is empty.
+	 */
+	private void send() {
+		List<DeliveryEvent> batch = new ArrayList<DeliveryEvent>();
+		try {
+			while (!evicted && queue.drain(batch, BATCH_SIZE) > 0) {
+				try {
+					if (batch.size() > 1
+							&& listener instanceof DeliveryListener) {
+						((DeliveryListener) listener).reportBatch(batch);
+					} else {
+						for (DeliveryEvent event : batch) {
+							listener.report(0, event);
+						}
+					}
+					failures = 0;
+				} catch (RemoteException exc) {
+					if (++failures >= maxFailures) {
+						evict();
+					}
+				}
+				batch.clear();
+			}
+		} finally {
+			sending.set(false);
+		}
+		// An event queued after the queue was found empty but before the
+		// sender was marked as done still needs a sender.
+		if (!evicted && queue.size() > 0) {
+			schedule();
+		}
+	}
+
+	/**
+	 * Function that closes the channel if no event has been queued for the
+	 * given time. Events already queued are still sent. The channel of an
+	 * evicted listener is only reported closed once no event has been offered
+	 * to it for the given time.
+	 * 
+	 * @param idleTime
+	 *            Time in milliseconds.
+	 * 
+	 * @return boolean True if the channel is closed.
+	 */
+	public boolean closeIfIdle(long idleTime) {
+		if (evicted) {
+			return System.currentTimeMillis() - lastUsed > idleTime;
+		}
+		if (!closed && queue.size() == 0
+				&& System.currentTimeMillis() - lastUsed > idleTime) {
+			closed = true;
+		}
+		return closed;
+	}
+
+	/**
+	 * Function that evicts the listener: the channel is closed, the queued
+	 * events are dropped and the lease is cancelled.
+	 */
+	public void evict() {
+		closed = true;
+		evicted = true;
+		cancelLease();
+	}
+
+	/**
+	 * Function that cancels the lease of the listener, if it has one.
+	 */
+	private void cancelLease() {
+		Lease currentLease = lease;
+		lease = null;
+		if (currentLease != null) {
+			try {
+				currentLease.cancel();
+			} catch (RemoteException exc) {
+			}
+		}
+	}
+
+	/**
+	 * Function returning true if the listener has been evicted.
+	 * 
+	 * @return boolean True if the listener has been evicted.
+	 */
+	public boolean isEvicted() {
+		return evicted;
+	}
+
+	/**
+	 * Function returning the number of events waiting to be sent.
+	 * 
+	 * @return int The number of events queued.
+	 */
+	public int queued() {
+		return queue.size();
+	}
+}
@@ -0,0 +1,503 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import edu.rit.ds.RemoteEventListener;
+import edu.rit.ds.registry.NotBoundException;
+
+/**
+ * Class LoadGenerator is the load testing mode of the Customer. Instead of
+ * sending one package it sends many packages at a target rate, either to
+ * random destinations from random origin offices or as read from a workload
+ * file, and reports the throughput and the end to end latency of the packages
+ * at the end. The latency of a package is measured from the moment it is
+ * handed to its origin office to the moment its delivery or loss is reported,
+ * keyed on the tracking number of the package.
+ *
+ * Usage() : java Customer <host> <port> -load <count> <rate> <minX> <minY>
+ * <maxX> <maxY> [<origin> ...]
+ * <count> : Number of packages to send.
+ * <rate> : Packages sent per second, 0 to send as fast as possible.
+ * <minX> <minY> <maxX> <maxY> : Area the destinations are drawn from.
+ * <origin> : Cities the packages are sent from, all the offices if none.
+ *
+ * Usage() : java Customer <host> <port> -replay <file> [<rate>]
+ * <file> : Workload file with one "origin,X,Y" package per line. The file is
+ * streamed so it can be larger than the heap. Lines starting with # are
+ * skipped.
+ * <rate> : Packages sent per second, 0 to send as fast as possible.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class LoadGenerator {
+
+	/**
+	 * Registry the GPSOffice objects are bound in.
+	 */
+	private final OfficeRegistry registry;
+
+	/**
+	 * RemoteEventListener object shared by all the packages sent.
+	 */
+	private final RemoteEventListener<DeliveryEvent> nodeListener;
+
+	/**
+	 * Threads calling the origin offices, so that the rate is not limited by
+	 * the time of a single remote call.
+	 */
+	private final ExecutorService senders;
+
+	/**
+	 * Map storing the tracking number of every package in transit to the time
+	 * in nanoseconds it was handed to its origin office.
+	 */
+	private final ConcurrentHashMap<Long, Long> sendTimes = new ConcurrentHashMap<Long, Long>();
+
+	/**
+	 * HashMap storing the names of the origin offices to their object
+	 * references.
+	 */
+	private final HashMap<String, GPSInterface> origins = new HashMap<String, GPSInterface>();
+
+	/**
+	 * Counters of the packages.
+	 */
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong delivered = new AtomicLong();
+	private final AtomicLong lost = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	/**
+	 * Seed of the random packages.
+	 */
+	private long seed = GPSConfig.getInt("gps.load.seed", 1);
+
+	/**
+	 * End to end latencies in nanoseconds of the packages delivered.
+	 */
+	private long[] latencies = new long[1024];
+	private int latencyCount;
+
+	/**
+	 * Constructor that exports the listener of the load generator.
+	 *
+	 * @param registry
+	 *            Registry the GPSOffice objects are bound in.
+	 * @param senderCount
+	 *            Number of threads calling the origin offices.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the listener cannot be exported.
+	 */
+	public LoadGenerator(OfficeRegistry registry, int senderCount)
+			throws RemoteException {
+		this.registry = registry;
+		// The queue of the senders is bounded so that a workload file sent as
+		// fast as possible is not read into the heap faster than it is sent.
+		this.senders = new ThreadPoolExecutor(senderCount, senderCount, 0,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+						1024 * senderCount),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.nodeListener = new DeliveryListener() {
+			public void report(long seqnum, DeliveryEvent event) {
+				if (event.getDeliverySuccess() != 0) {
+					complete(event.getTrackingNumber(),
+							event.getDeliverySuccess() == 1);
+				}
+			}
+
+			public void reportBatch(List<DeliveryEvent> events) {
+				for (DeliveryEvent event : events) {
+					report(0, event);
+				}
+			}
+		};
+		UnicastRemoteObject.exportObject(nodeListener, 0);
+	}
+
+	/**
+	 * Main program of the load testing mode, called by the Customer main
+	 * program.
+	 *
+	 * @param args
+	 *            Command line arguments of the Customer.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 4) {
+			usage();
+		}
+		String host = args[0];
+		int port = Customer.parseInteger(args[1], "port");
+		OfficeRegistry registry = new RemoteRegistry(host, port);
+		LoadGenerator generator = new LoadGenerator(registry,
+				GPSConfig.getInt("gps.load.senders", 4));
+		long start = System.nanoTime();
+		if (args[2].equals("-load") && args.length >= 9) {
+			long count = Long.parseLong(args[3]);
+			double rate = Customer.parseDouble(args[4], "rate");
+			double minX = Customer.parseDouble(args[5], "minX");
+			double minY = Customer.parseDouble(args[6], "minY");
+			double maxX = Customer.parseDouble(args[7], "maxX");
+			double maxY = Customer.parseDouble(args[8], "maxY");
+			List<String> cities = new ArrayList<String>();
+			for (int i = 9; i < args.length; ++i) {
+				cities.add(args[i]);
+			}
+			if (cities.isEmpty()) {
+				cities.addAll(registry.list("GPSOffice"));
+			}
+			generator.sendRandom(count, rate, cities, minX, minY, maxX, maxY);
+		} else if (args[2].equals("-replay")) {
+			double rate = args.length > 4 ? Customer.parseDouble(args[4],
+					"rate") : 0;
+			generator.replay(args[3], rate);
+		} else {
+			usage();
+		}
+		generator.awaitCompletion(GPSConfig.getInt("gps.load.idleTimeout",
+				30000));
+		generator.printReport(System.nanoTime() - start);
+		System.exit(0);
+	}
+
+	/**
+	 * Function that sets the seed of the random packages, by default the
+	 * system property gps.load.seed or 1. Load generators run side by side
+	 * are given different seeds so that they do not send the same packages.
+	 *
+	 * @param seed
+	 *            The seed.
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Function that sends packages to random destinations from random origin
+	 * offices.
+	 *
+	 * @param count
+	 *            Number of packages to send.
+	 * @param rate
+	 *            Packages sent per second, 0 to send as fast as possible.
+	 * @param cities
+	 *            Cities the packages are sent from.
+	 * @param minX
+	 *            Minimum X coordinate of the destinations.
+	 * @param minY
+	 *            Minimum Y coordinate of the destinations.
+	 * @param maxX
+	 *            Maximum X coordinate of the destinations.
+	 * @param maxY
+	 *            Maximum Y coordinate of the destinations.
+	 */
+	public void sendRandom(long count, double rate, List<String> cities,
+			double minX, double minY, double maxX, double maxY) {
+		if (cities.isEmpty()) {
+			System.err.println("No GPS office registered");
+			System.exit(1);
+		}
+		Random random = new Random(seed);
+		long interval = rate > 0 ? (long) (1e9 / rate) : 0;
+		long next = System.nanoTime();
+		for (long i = 0; i < count; ++i) {
+			String city = cities.get(random.nextInt(cities.size()));
+			double x = minX + random.nextDouble() * (maxX - minX);
+			double y = minY + random.nextDouble() * (maxY - minY);
+			next = pace(next, interval);
+			submit(city, x, y);
+		}
+	}
+
+	/**
+	 * Function that sends the packages of a workload file. The file is read
+	 * one line at a time while the packages are sent.
+	 *
+	 * @param file
+	 *            Name of the workload file.
+	 * @param rate
+	 *            Packages sent per second, 0 to send as fast as possible.
+	 *
+	 * @exception IOException
+	 *                Thrown if the file cannot be read.
+	 */
+	public void replay(String file, double rate) throws IOException {
+		long interval = rate > 0 ? (long) (1e9 / rate) : 0;
+		long next = System.nanoTime();
+		BufferedReader reader = new BufferedReader(new FileReader(file),
+				1 << 16);
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				++lineNumber;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split(",");
+				if (fields.length < 3) {
+					System.err.println(file + ":" + lineNumber
+							+ " : Expected origin,X,Y");
+					continue;
+				}
+				String city = fields[0].trim();
+				double x = Customer.parseDouble(fields[1].trim(), "X");
+				double y = Customer.parseDouble(fields[2].trim(), "Y");
+				next = pace(next, interval);
+				submit(city, x, y);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Function that waits until the time the next package is due.
+	 *
+	 * @param next
+	 *            Time in nanoseconds the next package is due.
+	 * @param interval
+	 *            Time in nanoseconds between two packages.
+	 *
+	 * @return long The time in nanoseconds the package after it is due.
+	 */
+	private static long pace(long next, long interval) {
+		if (interval == 0) {
+			return next;
+		}
+		long now;
+		while ((now = System.nanoTime()) < next) {
+			LockSupport.parkNanos(next - now);
+		}
+		return next + interval;
+	}
+
+	/**
+	 * Function that hands a package to one of the sender threads.
+	 *
+	 * @param city
+	 *            City the package is sent from.
+	 * @param x
+	 *            X coordinate of the destination.
+	 * @param y
+	 *            Y coordinate of the destination.
+	 */
+	private void submit(final String city, final double x, final double y) {
+		sent.incrementAndGet();
+		senders.execute(new Runnable() {
+			public void run() {
+				send(city, x, y);
+			}
+		});
+	}
+
+	/**
+	 * Function that asks the origin office for a package and routes it.
+	 *
+	 * @param city
+	 *            City the package is sent from.
+	 * @param x
+	 *            X coordinate of the destination.
+	 * @param y
+	 *            Y coordinate of the destination.
+	 */
+	private void send(String city, double x, double y) {
+		try {
+			GPSInterface gpsObj = origin(city);
+			Package packet = gpsObj.deliverPackage(x, y);
+			sendTimes.put(packet.getTrackingNumber(), System.nanoTime());
+			gpsObj.routeMessage(packet, nodeListener);
+		} catch (RemoteException e) {
+			failed.incrementAndGet();
+		} catch (NotBoundException e) {
+			System.err.println(city + " does not have "
+					+ "a GPS office registered");
+			failed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Function returning the object reference to an origin office, looked up
+	 * in the registry the first time.
+	 */
+	private GPSInterface origin(String city) throws RemoteException,
+			NotBoundException {
+		synchronized (origins) {
+			GPSInterface gpsObj = origins.get(city);
+			if (gpsObj == null) {
+				gpsObj = Transports.connect(registry.lookup(city));
+				origins.put(city, gpsObj);
+			}
+			return gpsObj;
+		}
+	}
+
+	/**
+	 * Function that records the delivery or the loss of a package.
+	 *
+	 * @param trackingNumber
+	 *            Tracking number of the package.
+	 * @param success
+	 *            True if the package was delivered.
+	 */
+	private void complete(long trackingNumber, boolean success) {
+		Long sendTime = sendTimes.remove(trackingNumber);
+		if (sendTime == null) {
+			return;
+		}
+		if (!success) {
+			lost.incrementAndGet();
+			return;
+		}
+		long latency = System.nanoTime() - sendTime;
+		synchronized (this) {
+			if (latencyCount == latencies.length) {
+				latencies = Arrays.copyOf(latencies, latencyCount * 2);
+			}
+			latencies[latencyCount++] = latency;
+		}
+		delivered.incrementAndGet();
+	}
+
+	/**
+	 * Function that waits until every package sent has been delivered, lost
+	 * or has failed, or until no package has completed for the idle timeout.
+	 *
+	 * @param idleTimeout
+	 *            Time in milliseconds to wait for the next package to
+	 *            complete.
+	 */
+	public void awaitCompletion(long idleTimeout)
+			throws InterruptedException {
+		senders.shutdown();
+		senders.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		long completed = -1;
+		long lastProgress = System.currentTimeMillis();
+		while (true) {
+			long now = delivered.get() + lost.get() + failed.get();
+			if (now >= sent.get()) {
+				return;
+			}
+			if (now != completed) {
+				completed = now;
+				lastProgress = System.currentTimeMillis();
+			} else if (System.currentTimeMillis() - lastProgress > idleTimeout) {
+				return;
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	/**
+	 * Function returning the number of packages delivered so far.
+	 *
+	 * @return long The number of packages delivered.
+	 */
+	public long getDelivered() {
+		return delivered.get();
+	}
+
+	/**
+	 * Function that prints the throughput and the latency percentiles.
+	 *
+	 * @param elapsed
+	 *            Duration of the run in nanoseconds.
+	 */
+	public void printReport(long elapsed) {
+		printReport(Collections.singletonList(this), elapsed);
+	}
+
+	/**
+	 * Function that prints the throughput and the latency percentiles of the
+	 * packages of several load generators taken together, such as the
+	 * customers of a LoadTest.
+	 *
+	 * @param generators
+	 *            The load generators.
+	 * @param elapsed
+	 *            Duration of the run in nanoseconds.
+	 */
+	public static void printReport(Collection<LoadGenerator> generators,
+			long elapsed) {
+		long sent = 0;
+		long delivered = 0;
+		long lost = 0;
+		long failed = 0;
+		long[] sorted = new long[0];
+		for (LoadGenerator generator : generators) {
+			synchronized (generator) {
+				sent += generator.sent.get();
+				delivered += generator.delivered.get();
+				lost += generator.lost.get();
+				failed += generator.failed.get();
+				int length = sorted.length;
+				sorted = Arrays.copyOf(sorted, length + generator.latencyCount);
+				System.arraycopy(generator.latencies, 0, sorted, length,
+						generator.latencyCount);
+			}
+		}
+		Arrays.sort(sorted);
+		double seconds = elapsed / 1e9;
+		System.out.println("Packages sent : " + sent);
+		System.out.println("Packages delivered : " + delivered);
+		System.out.println("Packages lost : " + lost);
+		System.out.println("Packages failed : " + failed);
+		System.out.println("Packages unfinished : "
+				+ (sent - delivered - lost - failed));
+		System.out.println(String.format("Throughput : %.1f packages/s",
+				delivered / seconds));
+		System.out.println(String.format(
+				"Latency (ms) : p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f,"
+						+ " max %.1f", percentile(sorted, 50),
+				percentile(sorted, 90), percentile(sorted, 99),
+				percentile(sorted, 99.9), percentile(sorted, 100)));
+	}
+
+	/**
+	 * Function returning a percentile of sorted latencies in milliseconds.
+	 */
+	private static double percentile(long[] sorted, double percent) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+	}
+
+	/**
+	 * Function that prints the usage of the load testing mode and exits.
+	 */
+	public static void usage() {
+		String usageString = "\nUsage() : java Customer <host> <port> -load "
+				+ "<count> <rate> <minX> <minY> <maxX> <maxY> [<origin> ...]\n";
+		usageString += "Usage() : java Customer <host> <port> -replay "
+				+ "<file> [<rate>]\n";
+		usageString += "<count> : Number of packages to send.\n";
+		usageString += "<rate> : Packages sent per second,"
+				+ " 0 to send as fast as possible.\n";
+		usageString += "<minX> <minY> <maxX> <maxY> : Area the"
+				+ " destinations are drawn from.\n";
+		usageString += "<origin> : Cities the packages are sent from,"
+				+ " all the offices if none.\n";
+		usageString += "<file> : Workload file with one origin,X,Y"
+				+ " package per line.\n";
+		System.out.println(usageString);
+		System.exit(1);
+	}
+}
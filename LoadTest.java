@@ -0,0 +1,190 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class LoadTest runs a whole GPS system in a single JVM, without a Registry
+ * Server: the GPSOffice objects of a topology file, a Headquarters and a
+ * number of customers are started on a LocalRegistry, the customers send
+ * packages to random destinations from random offices, and the throughput and
+ * the end to end latency of the packages are reported, as seen by the
+ * customers and by the Headquarters. The objects still call each other
+ * through RMI, over the loopback interface.
+ *
+ * The topology file has one office per line, "<name> <X> <Y> [<id>]", as the
+ * arguments of a GPSOffice. Lines starting with # are skipped. The offices
+ * without an id are numbered in the order of the file, so that the ids do
+ * not depend on the names of the offices. With more than 131072 offices the
+ * ids cannot all be unique, and the offices left over fail to start.
+ *
+ * The destinations are drawn from the rectangle around the offices. Each
+ * customer is a LoadGenerator with its own listener, sending its share of the
+ * packages at its share of the rate. The Headquarters does not print the
+ * events unless gps.hq.console is set to true. Every office has its own
+ * thread pools, so with hundreds of offices gps.forward.workers and
+ * gps.listener.senders should be kept small, or gps.virtualThreads set.
+ *
+ * Usage() : java LoadTest <topology> <customers> <count> <rate>
+ * <topology> : Topology file.
+ * <customers> : Number of customers.
+ * <count> : Number of packages to send in all.
+ * <rate> : Packages sent per second in all, 0 to send as fast as possible.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class LoadTest {
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private LoadTest() {
+	}
+
+	/**
+	 * Main program of class LoadTest.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 4) {
+			usage();
+		}
+		List<String[]> topology = readTopology(args[0]);
+		int customers = Customer.parseInteger(args[1], "customers");
+		long count = Long.parseLong(args[2]);
+		double rate = Customer.parseDouble(args[3], "rate");
+		if (topology.isEmpty() || customers < 1) {
+			usage();
+		}
+		if (System.getProperty("gps.hq.console") == null) {
+			System.setProperty("gps.hq.console", "false");
+		}
+
+		// Start the headquarters first so that it listens to every office,
+		// then the offices, and wait until they all know each other.
+		long setup = System.nanoTime();
+		LocalRegistry registry = new LocalRegistry();
+		Headquarters.start(registry);
+		List<String> cities = new ArrayList<String>();
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (String[] office : topology) {
+			new GPSOffice(registry, office);
+			cities.add(office[0]);
+			double x = Double.parseDouble(office[1]);
+			double y = Double.parseDouble(office[2]);
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		registry.awaitListeners();
+		System.out.println(String.format("Offices : %d, started in %.1f s",
+				topology.size(), (System.nanoTime() - setup) / 1e9));
+
+		// Send the packages from all the customers at once.
+		int senders = GPSConfig.getInt("gps.load.senders", 1);
+		long seed = GPSConfig.getInt("gps.load.seed", 1);
+		List<LoadGenerator> generators = new ArrayList<LoadGenerator>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < customers; ++i) {
+			final LoadGenerator generator = new LoadGenerator(registry, senders);
+			generator.setSeed(seed + i);
+			generators.add(generator);
+			final long share = count / customers + (i < count % customers ? 1 : 0);
+			final double shareRate = rate / customers;
+			final List<String> origins = cities;
+			final double x0 = minX;
+			final double y0 = minY;
+			final double x1 = maxX;
+			final double y1 = maxY;
+			threads.add(new Thread("Customer-" + i) {
+				public void run() {
+					generator.sendRandom(share, shareRate, origins, x0, y0, x1,
+							y1);
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		int idleTimeout = GPSConfig.getInt("gps.load.idleTimeout", 30000);
+		for (LoadGenerator generator : generators) {
+			generator.awaitCompletion(idleTimeout);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.out.println("Customers : " + customers);
+		LoadGenerator.printReport(generators, elapsed);
+		System.out.println("Headquarters : " + Headquarters.getDeliveryMetrics());
+		System.exit(0);
+	}
+
+	/**
+	 * Function that reads the offices of a topology file.
+	 *
+	 * @param file
+	 *            Name of the topology file.
+	 *
+	 * @return List<String[]> Arguments of the offices, with an id each.
+	 *
+	 * @exception IOException
+	 *                Thrown if the file cannot be read.
+	 */
+	static List<String[]> readTopology(String file) throws IOException {
+		List<String[]> offices = new ArrayList<String[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				++lineNumber;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				if (fields.length != 3 && fields.length != 4) {
+					System.err.println(file + ":" + lineNumber
+							+ " : Expected <name> <X> <Y> [<id>]");
+					System.exit(1);
+				}
+				offices.add(fields);
+			}
+		} finally {
+			reader.close();
+		}
+		if (offices.size() <= TrackingNumberGenerator.MAX_OFFICE_ID + 1) {
+			for (int i = 0; i < offices.size(); ++i) {
+				if (offices.get(i).length == 3) {
+					String[] fields = offices.get(i);
+					offices.set(i, new String[] { fields[0], fields[1],
+							fields[2], String.valueOf(i) });
+				}
+			}
+		}
+		return offices;
+	}
+
+	/**
+	 * Function that prints the usage of the load test and exits.
+	 */
+	public static void usage() {
+		String usageString = "\nUsage() : java LoadTest <topology> "
+				+ "<customers> <count> <rate>\n";
+		usageString += "<topology> : Topology file with one"
+				+ " <name> <X> <Y> [<id>] office per line.\n";
+		usageString += "<customers> : Number of customers.\n";
+		usageString += "<count> : Number of packages to send in all.\n";
+		usageString += "<rate> : Packages sent per second in all,"
+				+ " 0 to send as fast as possible.\n";
+		System.out.println(usageString);
+		System.exit(1);
+	}
+}
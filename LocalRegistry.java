@@ -0,0 +1,198 @@
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.server.RemoteObject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import edu.rit.ds.registry.AlreadyBoundException;
+import edu.rit.ds.registry.NotBoundException;
+
+/**
+ * Class LocalRegistry is an OfficeRegistry kept in memory, for running
+ * GPSOffice objects, a Headquarters and customers in a single JVM without a
+ * Registry Server. An exported object is bound as its stub, so the calls
+ * between the objects still go through RMI as they would between processes.
+ *
+ * The listeners are told of the objects bound and unbound by a single thread
+ * of the registry, in the order the objects were bound and unbound, and never
+ * from the thread binding the object, as with the Registry Server.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class LocalRegistry implements OfficeRegistry {
+
+	/**
+	 * Object bound in the registry with the names of its types.
+	 */
+	private static class Entry {
+		private final Object object;
+		private final Set<String> types;
+
+		private Entry(Object object, Set<String> types) {
+			this.object = object;
+			this.types = types;
+		}
+	}
+
+	/**
+	 * Listener of the objects of a type.
+	 */
+	private static class Subscription {
+		private final String type;
+		private final Listener listener;
+
+		private Subscription(String type, Listener listener) {
+			this.type = type;
+			this.listener = listener;
+		}
+	}
+
+	/**
+	 * Objects bound in the registry by name, guarded by the registry.
+	 */
+	private final Map<String, Entry> entries = new TreeMap<String, Entry>();
+
+	/**
+	 * Listeners of the registry, guarded by the registry.
+	 */
+	private final List<Subscription> subscriptions = new ArrayList<Subscription>();
+
+	/**
+	 * Thread telling the listeners of the objects bound and unbound.
+	 */
+	private final ExecutorService notifier = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "LocalRegistry");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	public synchronized Object lookup(String name) throws NotBoundException {
+		Entry entry = entries.get(name);
+		if (entry == null) {
+			throw new NotBoundException();
+		}
+		return entry.object;
+	}
+
+	public synchronized List<String> list(String type) {
+		List<String> names = new ArrayList<String>();
+		for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+			if (entry.getValue().types.contains(type)) {
+				names.add(entry.getKey());
+			}
+		}
+		return names;
+	}
+
+	public synchronized void bind(String name, Object object)
+			throws AlreadyBoundException {
+		if (entries.containsKey(name)) {
+			throw new AlreadyBoundException();
+		}
+		put(name, object);
+	}
+
+	public synchronized void rebind(String name, Object object) {
+		Entry entry = entries.get(name);
+		if (entry != null) {
+			notify(name, entry.types, false);
+		}
+		put(name, object);
+	}
+
+	public synchronized void unbind(String name) throws NotBoundException {
+		Entry entry = entries.remove(name);
+		if (entry == null) {
+			throw new NotBoundException();
+		}
+		notify(name, entry.types, false);
+	}
+
+	public synchronized void addListener(String type, Listener listener) {
+		subscriptions.add(new Subscription(type, listener));
+	}
+
+	/**
+	 * Function that waits until the listeners have been told of every object
+	 * bound or unbound so far.
+	 *
+	 * @exception InterruptedException
+	 *                Thrown if the thread is interrupted while waiting.
+	 */
+	public void awaitListeners() throws InterruptedException {
+		try {
+			notifier.submit(new Runnable() {
+				public void run() {
+				}
+			}).get();
+		} catch (ExecutionException exc) {
+			throw new IllegalStateException(exc);
+		}
+	}
+
+	/**
+	 * Function that stores an object, as its stub if it is exported, and tells
+	 * the listeners of its types.
+	 */
+	private void put(String name, Object object) {
+		Set<String> types = typesOf(object.getClass());
+		if (object instanceof Remote) {
+			try {
+				object = RemoteObject.toStub((Remote) object);
+			} catch (NoSuchObjectException exc) {
+				// The object is not exported, it is called directly.
+			}
+		}
+		entries.put(name, new Entry(object, types));
+		notify(name, types, true);
+	}
+
+	/**
+	 * Function that queues the calls to the listeners of the given types.
+	 */
+	private void notify(final String name, Set<String> types,
+			final boolean bound) {
+		for (final Subscription subscription : subscriptions) {
+			if (types.contains(subscription.type)) {
+				notifier.execute(new Runnable() {
+					public void run() {
+						if (bound) {
+							subscription.listener.bound(name);
+						} else {
+							subscription.listener.unbound(name);
+						}
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * Function returning the simple names of a class, its superclasses and all
+	 * the interfaces they implement.
+	 */
+	private static Set<String> typesOf(Class<?> type) {
+		Set<String> types = new HashSet<String>();
+		List<Class<?>> pending = new ArrayList<Class<?>>();
+		pending.add(type);
+		while (!pending.isEmpty()) {
+			Class<?> current = pending.remove(pending.size() - 1);
+			if (current != null && types.add(current.getSimpleName())) {
+				pending.add(current.getSuperclass());
+				Collections.addAll(pending, current.getInterfaces());
+			}
+		}
+		return types;
+	}
+}
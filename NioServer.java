@@ -0,0 +1,551 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.rmi.Remote;
+import java.rmi.server.RemoteRef;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * Class NioServer accepts the packages sent to a GPSOffice object over the
+ * NioTransport. It listens on a port of its own and keeps one connection for
+ * every office forwarding to it. The frames of class Frames read from a
+ * connection are decoded in order by a single selector thread, and the
+ * batches of packages are handed to routeMessage() or routeMessages() of the
+ * office on the executor of the office, exactly as if they had come through
+ * RMI, so an office waiting for its transit log never holds up the selector.
+ * The batches of a connection are still handed over one at a time and in
+ * order. A batch is acknowledged by the selector thread once the office has
+ * accepted it, or refused with the message of the exception it threw. A
+ * connection is not read while MAX_QUEUED of its batches are waiting for an
+ * answer.
+ *
+ * The listeners of the customers are sent once per connection as serialized
+ * RMI stubs and then referred to by number. Only the classes making up a stub
+ * are accepted when a listener is read.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class NioServer implements Runnable {
+
+	/**
+	 * The office the packages are handed to.
+	 */
+	private final GPSInterface office;
+
+	/**
+	 * Executor the batches are handed to the office on.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Largest number of batches of a connection waiting for an answer before
+	 * the connection is no longer read.
+	 */
+	private static final int MAX_QUEUED = 16;
+
+	/**
+	 * Batches handled by the office and not yet answered by the selector
+	 * thread.
+	 */
+	private final ConcurrentLinkedQueue<Batch> answered = new ConcurrentLinkedQueue<Batch>();
+
+	/**
+	 * Channel accepting the connections.
+	 */
+	private final ServerSocketChannel server;
+
+	/**
+	 * Selector of the server channel and of the connections.
+	 */
+	private final Selector selector;
+
+	/**
+	 * Host and port of the server as host:port.
+	 */
+	private final String endpoint;
+
+	/**
+	 * Cleared once the server is closed.
+	 */
+	private volatile boolean open = true;
+
+	/**
+	 * Constructor that opens the server and starts its thread.
+	 *
+	 * @param office
+	 *            The office the packages are handed to.
+	 * @param executor
+	 *            Executor the packages are handed to the office on.
+	 * @param name
+	 *            Name of the office, used to name the thread.
+	 * @param host
+	 *            Host name advertised to the other offices, or null for the
+	 *            address of the local host.
+	 * @param port
+	 *            Port to listen on, 0 for any free port.
+	 *
+	 * @exception IOException
+	 *                Thrown if the server cannot be opened.
+	 */
+	public NioServer(GPSInterface office, Executor executor, String name,
+			String host, int port) throws IOException {
+		this.office = office;
+		this.executor = executor;
+		server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress(port));
+		server.configureBlocking(false);
+		selector = Selector.open();
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		if (host == null) {
+			host = InetAddress.getLocalHost().getHostAddress();
+		}
+		if (host.indexOf(':') >= 0) {
+			host = "[" + host + "]";
+		}
+		endpoint = host + ":" + server.socket().getLocalPort();
+		Thread thread = new Thread(this, "NioServer-" + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Function returning the host and port of the server.
+	 *
+	 * @return String The endpoint as host:port.
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Function that closes the server and all its connections.
+	 */
+	public void close() {
+		open = false;
+		selector.wakeup();
+	}
+
+	/**
+	 * Function run by the selector thread.
+	 */
+	public void run() {
+		try {
+			while (open) {
+				selector.select();
+				Batch batch;
+				while ((batch = answered.poll()) != null) {
+					batch.session.answer(batch);
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Session session = (Session) key.attachment();
+					try {
+						if (key.isReadable()) {
+							session.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							session.flush();
+						}
+					} catch (IOException exc) {
+						session.close();
+					}
+				}
+			}
+		} catch (IOException exc) {
+			System.err.println("NioServer : " + exc.getMessage());
+		}
+		for (SelectionKey key : new ArrayList<SelectionKey>(selector.keys())) {
+			if (key.attachment() instanceof Session) {
+				((Session) key.attachment()).close();
+			}
+		}
+		try {
+			selector.close();
+			server.close();
+		} catch (IOException exc) {
+		}
+	}
+
+	/**
+	 * Function that accepts a connection.
+	 */
+	private void accept() throws IOException {
+		SocketChannel channel = server.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		Session session = new Session(channel);
+		session.key = channel.register(selector, SelectionKey.OP_READ, session);
+	}
+
+	/**
+	 * A connection from another office.
+	 */
+	private class Session {
+
+		/**
+		 * The channel of the connection.
+		 */
+		final SocketChannel channel;
+
+		/**
+		 * Key of the channel in the selector.
+		 */
+		SelectionKey key;
+
+		/**
+		 * Bytes read and not yet handled, in write mode.
+		 */
+		ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+
+		/**
+		 * Frames written and not yet sent.
+		 */
+		final Frames.BufferOutput out = new Frames.BufferOutput(4096);
+
+		/**
+		 * Number of batches handed to the office and not yet answered, only
+		 * used by the selector thread.
+		 */
+		int queued;
+
+		/**
+		 * Batches waiting to be handed to the office, in order.
+		 */
+		final ConcurrentLinkedQueue<Batch> batches = new ConcurrentLinkedQueue<Batch>();
+
+		/**
+		 * Set while a task of the executor is handing the batches over.
+		 */
+		final AtomicBoolean running = new AtomicBoolean();
+
+		/**
+		 * Map storing the numbers of the listeners to the listeners.
+		 */
+		final HashMap<Integer, RemoteEventListener<DeliveryEvent>> listeners = new HashMap<Integer, RemoteEventListener<DeliveryEvent>>();
+
+		Session(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		/**
+		 * Function that reads from the channel and handles every complete
+		 * frame.
+		 */
+		void read() throws IOException {
+			if (channel.read(in) < 0) {
+				close();
+				return;
+			}
+			in.flip();
+			int needed = 0;
+			while (in.remaining() >= 4) {
+				int start = in.position();
+				int length = in.getInt(start);
+				if (length < 1 || length > Frames.MAX_LENGTH) {
+					throw new IOException("Invalid frame length " + length);
+				}
+				if (in.remaining() < 4 + length) {
+					needed = 4 + length;
+					break;
+				}
+				int limit = in.limit();
+				in.position(start + 4);
+				in.limit(start + 4 + length);
+				handle(new Frames.BufferInput(in));
+				in.limit(limit);
+				in.position(start + 4 + length);
+			}
+			in.compact();
+			if (needed > in.capacity()) {
+				ByteBuffer larger = ByteBuffer.allocate(needed);
+				in.flip();
+				larger.put(in);
+				in = larger;
+			}
+			flush();
+		}
+
+		/**
+		 * Function that handles a frame.
+		 */
+		private void handle(Frames.BufferInput frame) throws IOException {
+			byte type = frame.readByte();
+			switch (type) {
+			case Frames.PACKAGES:
+				long request = frame.readLong();
+				int count = frame.readInt();
+				if (count < 1 || count > Frames.MAX_LENGTH / 32) {
+					throw new IOException("Invalid number of packages " + count);
+				}
+				List<Package> packets = new ArrayList<Package>(count);
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners = new ArrayList<RemoteEventListener<DeliveryEvent>>(
+						count);
+				for (int i = 0; i < count; ++i) {
+					int id = frame.readInt();
+					if (id != 0 && !listeners.containsKey(id)) {
+						throw new IOException("Unknown listener " + id);
+					}
+					nodeListeners.add(listeners.get(id));
+					packets.add(Package.readFrom(frame));
+				}
+				accept(request, packets, nodeListeners);
+				break;
+			case Frames.LISTENER:
+				int id = frame.readInt();
+				byte[] stub = new byte[frame.readInt()];
+				frame.readFully(stub);
+				listeners.put(id, readListener(stub));
+				break;
+			case Frames.RESET:
+				listeners.clear();
+				break;
+			default:
+				throw new IOException("Invalid frame type " + type);
+			}
+		}
+
+		/**
+		 * Function that queues a batch to be handed to the office.
+		 */
+		private void accept(long request, List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners) {
+			++queued;
+			batches.add(new Batch(this, request, packets, nodeListeners));
+			schedule();
+		}
+
+		/**
+		 * Function that starts a task of the executor handing the queued
+		 * batches to the office one after the other, unless one is running.
+		 * If the executor is shut down the batches are refused.
+		 */
+		void schedule() {
+			if (!running.compareAndSet(false, true)) {
+				return;
+			}
+			try {
+				executor.execute(new Runnable() {
+					public void run() {
+						Batch batch;
+						while ((batch = batches.poll()) != null) {
+							batch.run();
+						}
+						running.set(false);
+						if (!batches.isEmpty()) {
+							schedule();
+						}
+					}
+				});
+			} catch (RejectedExecutionException exc) {
+				Batch batch;
+				while ((batch = batches.poll()) != null) {
+					batch.done("The office is shutting down");
+				}
+				running.set(false);
+			}
+		}
+
+		/**
+		 * Function that acknowledges or refuses a batch handled by the office,
+		 * in the selector thread.
+		 */
+		void answer(Batch batch) {
+			--queued;
+			if (!key.isValid()) {
+				return;
+			}
+			try {
+				int start = out.begin(batch.refused == null ? Frames.ACK
+						: Frames.NACK);
+				out.writeLong(batch.request);
+				if (batch.refused != null) {
+					out.writeUTF(batch.refused.length() > 1024 ? batch.refused
+							.substring(0, 1024) : batch.refused);
+				}
+				out.end(start);
+				flush();
+			} catch (IOException exc) {
+				close();
+			}
+		}
+
+		/**
+		 * Function that writes the frames not yet sent, and waits for the
+		 * channel to be writable if they do not all fit.
+		 */
+		void flush() throws IOException {
+			ByteBuffer buffer = out.buffer();
+			if (buffer.position() > 0) {
+				buffer.flip();
+				channel.write(buffer);
+				buffer.compact();
+			}
+			key.interestOps((queued < MAX_QUEUED ? SelectionKey.OP_READ : 0)
+					| (buffer.position() == 0 ? 0 : SelectionKey.OP_WRITE));
+		}
+
+		/**
+		 * Function that closes the connection.
+		 */
+		void close() {
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException exc) {
+			}
+			listeners.clear();
+		}
+	}
+
+	/**
+	 * A batch of packages read from a connection.
+	 */
+	private class Batch implements Runnable {
+
+		/**
+		 * The connection the batch was read from.
+		 */
+		final Session session;
+
+		/**
+		 * Number of the request, sent back in the answer.
+		 */
+		final long request;
+
+		/**
+		 * The packages and the listeners of their customers.
+		 */
+		final List<Package> packets;
+		final List<RemoteEventListener<DeliveryEvent>> nodeListeners;
+
+		/**
+		 * Message of the exception the office refused the batch with, or null
+		 * if it accepted it.
+		 */
+		String refused;
+
+		Batch(Session session, long request, List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners) {
+			this.session = session;
+			this.request = request;
+			this.packets = packets;
+			this.nodeListeners = nodeListeners;
+		}
+
+		/**
+		 * Function that hands the batch to the office.
+		 */
+		public void run() {
+			String refused = null;
+			try {
+				if (packets.size() == 1) {
+					office.routeMessage(packets.get(0), nodeListeners.get(0));
+				} else {
+					office.routeMessages(packets, nodeListeners);
+				}
+			} catch (Exception exc) {
+				refused = exc.toString();
+			}
+			done(refused);
+		}
+
+		/**
+		 * Function that passes the batch back to the selector thread to be
+		 * answered.
+		 *
+		 * @param refused
+		 *            Message the batch is refused with, or null if it was
+		 *            accepted.
+		 */
+		void done(String refused) {
+			this.refused = refused;
+			answered.add(this);
+			selector.wakeup();
+		}
+	}
+
+	/**
+	 * Function that reads the serialized stub of a listener.
+	 */
+	@SuppressWarnings("unchecked")
+	private static RemoteEventListener<DeliveryEvent> readListener(byte[] stub)
+			throws IOException {
+		ObjectInputStream in = new StubInputStream(new ByteArrayInputStream(
+				stub));
+		try {
+			Object listener = in.readObject();
+			if (!(listener instanceof RemoteEventListener)) {
+				throw new IOException("Invalid listener "
+						+ listener.getClass().getName());
+			}
+			return (RemoteEventListener<DeliveryEvent>) listener;
+		} catch (ClassNotFoundException exc) {
+			throw new IOException("Invalid listener", exc);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * ObjectInputStream accepting only the classes making up an RMI stub: the
+	 * remote interfaces and their proxies, the stubs and the remote
+	 * references.
+	 */
+	private static class StubInputStream extends ObjectInputStream {
+		StubInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		protected Class<?> resolveClass(ObjectStreamClass desc)
+				throws IOException, ClassNotFoundException {
+			Class<?> cls = super.resolveClass(desc);
+			if (cls == Proxy.class || Remote.class.isAssignableFrom(cls)
+					|| RemoteRef.class.isAssignableFrom(cls)) {
+				return cls;
+			}
+			throw new InvalidClassException(cls.getName(),
+					"Not part of a stub");
+		}
+
+		protected Class<?> resolveProxyClass(String[] interfaces)
+				throws IOException, ClassNotFoundException {
+			Class<?> cls = super.resolveProxyClass(interfaces);
+			if (Remote.class.isAssignableFrom(cls)) {
+				return cls;
+			}
+			throw new InvalidClassException(cls.getName(),
+					"Not part of a stub");
+		}
+	}
+}
@@ -0,0 +1,586 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.rmi.ConnectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.RemoteObject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import edu.rit.ds.Lease;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * Class NioTransport forwards the packages to the GPSOffice objects having a
+ * NioServer over a persistent connection of their own, in the binary frames of
+ * class Frames, rather than through RMI. The other calls still go through the
+ * RMI stub of the office.
+ *
+ * The batches are written into a direct buffer and sent one after the other
+ * without waiting for the previous ones to be accepted, up to a window of
+ * batches, and the acknowledgements are read by a thread of the connection. A
+ * batch counts as forwarded only once the office has acknowledged it, that is
+ * once it returned from routeMessages(), so a batch refused by the office, or
+ * not acknowledged when the connection is lost or times out, fails with a
+ * RemoteException as it would have through RMI and is routed again.
+ *
+ * The offices reached through the transport are named by the property
+ * gps.nio.links, so that the deployment can be moved from RMI one link at a
+ * time.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class NioTransport implements Transport {
+
+	/**
+	 * Largest number of listeners numbered on a connection before the
+	 * numbers are reset.
+	 */
+	private static final int MAX_LISTENERS = 65536;
+
+	/**
+	 * Thread checking that the batches sent are answered in time.
+	 */
+	private static final ScheduledExecutorService watchdog = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "NioTransport-watchdog");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/**
+	 * Names of the offices reached through the transport, or null for every
+	 * office having a NIO endpoint.
+	 */
+	private final Set<String> names;
+
+	/**
+	 * Constructor that creates the transport.
+	 *
+	 * @param links
+	 *            Names of the offices reached through the transport,
+	 *            separated by commas, or * for every office having a NIO
+	 *            endpoint.
+	 */
+	public NioTransport(String links) {
+		if (links.equals("*")) {
+			names = null;
+		} else {
+			names = new HashSet<String>();
+			for (String name : links.split(",")) {
+				if (name.trim().length() > 0) {
+					names.add(name.trim());
+				}
+			}
+		}
+	}
+
+	public GPSInterface connect(GPSInterface reference) {
+		if (reference instanceof Link) {
+			return reference;
+		}
+		OfficeDescriptor descriptor;
+		try {
+			descriptor = reference.getDescriptor();
+		} catch (RemoteException exc) {
+			return null;
+		}
+		String endpoint = descriptor.getEndpoint();
+		if (endpoint == null
+				|| (names != null && !names.contains(descriptor.getName()))) {
+			return null;
+		}
+		int colon = endpoint.lastIndexOf(':');
+		try {
+			String host = endpoint.substring(0, colon);
+			if (host.startsWith("[") && host.endsWith("]")) {
+				host = host.substring(1, host.length() - 1);
+			}
+			return new Link(reference, descriptor.getName(),
+					new InetSocketAddress(host, Integer.parseInt(endpoint
+							.substring(colon + 1))));
+		} catch (RuntimeException exc) {
+			System.err.println("NioTransport : Invalid endpoint \"" + endpoint
+					+ "\" of " + descriptor.getName());
+			return null;
+		}
+	}
+
+	/**
+	 * GPSInterface forwarding the packages to an office over its connection
+	 * and making the other calls through its RMI stub. The connection is
+	 * opened by the first batch and opened again by the first batch after it
+	 * was lost.
+	 */
+	private static class Link implements GPSInterface, PipelinedLink {
+		private final GPSInterface office;
+		private final String name;
+		private final InetSocketAddress address;
+		private Connection connection;
+
+		private Link(GPSInterface office, String name,
+				InetSocketAddress address) {
+			this.office = office;
+			this.name = name;
+			this.address = address;
+		}
+
+		/**
+		 * Function returning the connection to the office, opening it if
+		 * needed.
+		 */
+		private synchronized Connection connection() throws RemoteException {
+			if (connection == null || connection.closed) {
+				try {
+					connection = new Connection(name, address);
+				} catch (IOException exc) {
+					throw new ConnectException("Cannot connect to " + name
+							+ " at " + address, exc);
+				}
+			}
+			return connection;
+		}
+
+		public void pipeline(List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners,
+				Completion completion) throws RemoteException {
+			if (packets.size() != nodeListeners.size()) {
+				throw new IllegalArgumentException("pipeline() : "
+						+ packets.size() + " packages but "
+						+ nodeListeners.size() + " listeners");
+			}
+			connection().send(packets, nodeListeners, completion);
+		}
+
+		public void routeMessage(Package packet,
+				RemoteEventListener<DeliveryEvent> nodeListener)
+				throws RemoteException {
+			routeMessages(Collections.singletonList(packet),
+					Collections.singletonList(nodeListener));
+		}
+
+		public void routeMessages(List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners)
+				throws RemoteException {
+			Waiter waiter = new Waiter();
+			pipeline(packets, nodeListeners, waiter);
+			waiter.await();
+		}
+
+		public String getName() throws RemoteException {
+			return office.getName();
+		}
+
+		public double getX() throws RemoteException {
+			return office.getX();
+		}
+
+		public double getY() throws RemoteException {
+			return office.getY();
+		}
+
+		public OfficeDescriptor getDescriptor() throws RemoteException {
+			return office.getDescriptor();
+		}
+
+		public List<OfficeDescriptor> getDescriptors(List<String> names)
+				throws RemoteException {
+			return office.getDescriptors(names);
+		}
+
+		public Lease addListener(RemoteEventListener<DeliveryEvent> listener)
+				throws RemoteException {
+			return office.addListener(listener);
+		}
+
+		public Package deliverPackage(double X, double Y)
+				throws RemoteException {
+			return office.deliverPackage(X, Y);
+		}
+
+		/**
+		 * Function that closes the connection, failing the batches not yet
+		 * acknowledged.
+		 */
+		synchronized void close() {
+			if (connection != null) {
+				connection.close(new IOException("Link to " + name + " closed"));
+				connection = null;
+			}
+		}
+	}
+
+	/**
+	 * Completion that a thread sending a batch synchronously waits for.
+	 */
+	private static class Waiter implements PipelinedLink.Completion {
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile Exception failure;
+
+		public void completed() {
+			done.countDown();
+		}
+
+		public void failed(Exception exc) {
+			failure = exc;
+			done.countDown();
+		}
+
+		/**
+		 * Function that waits for the batch to be answered and throws the
+		 * failure, if any.
+		 */
+		void await() throws RemoteException {
+			try {
+				done.await();
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new RemoteException("Interrupted", exc);
+			}
+			if (failure instanceof RemoteException) {
+				throw (RemoteException) failure;
+			} else if (failure != null) {
+				throw new RemoteException(failure.getMessage(), failure);
+			}
+		}
+	}
+
+	/**
+	 * A batch sent and not yet answered.
+	 */
+	private static class Request {
+		final PipelinedLink.Completion completion;
+		final long sent = System.nanoTime();
+
+		Request(PipelinedLink.Completion completion) {
+			this.completion = completion;
+		}
+	}
+
+	/**
+	 * A connection to the NioServer of an office.
+	 */
+	private static class Connection implements Runnable {
+
+		/**
+		 * Name of the office.
+		 */
+		final String name;
+
+		/**
+		 * The channel, in blocking mode. The batches are written by the
+		 * sending threads and the answers read by the thread of the
+		 * connection.
+		 */
+		final SocketChannel channel;
+
+		/**
+		 * Frames being written, in a direct buffer.
+		 */
+		final Frames.BufferOutput out = new Frames.BufferOutput(64 * 1024);
+
+		/**
+		 * Map storing the stubs of the listeners sent on the connection to
+		 * their numbers.
+		 */
+		final HashMap<Remote, Integer> listeners = new HashMap<Remote, Integer>();
+
+		/**
+		 * Map storing the numbers of the batches not yet answered to them.
+		 */
+		final ConcurrentHashMap<Long, Request> pending = new ConcurrentHashMap<Long, Request>();
+
+		/**
+		 * Permits to send a batch, one for every batch of the window.
+		 */
+		final Semaphore window = new Semaphore(GPSConfig.nioWindow());
+
+		/**
+		 * Time in nanoseconds a batch waits to be answered.
+		 */
+		final long timeout = TimeUnit.MILLISECONDS.toNanos(GPSConfig
+				.nioTimeout());
+
+		/**
+		 * Task checking that the batches are answered in time.
+		 */
+		final ScheduledFuture<?> check;
+
+		/**
+		 * Number of the latest batch sent.
+		 */
+		long request;
+
+		/**
+		 * Set once the connection is lost or closed.
+		 */
+		volatile boolean closed;
+
+		Connection(String name, InetSocketAddress address) throws IOException {
+			this.name = name;
+			channel = SocketChannel.open();
+			try {
+				channel.socket().connect(address,
+						(int) Math.min(Integer.MAX_VALUE, GPSConfig.nioTimeout()));
+				channel.socket().setTcpNoDelay(true);
+			} catch (IOException exc) {
+				channel.close();
+				throw exc;
+			}
+			Thread reader = new Thread(this, "NioTransport-" + name);
+			reader.setDaemon(true);
+			reader.start();
+			long period = Math.max(1, GPSConfig.nioTimeout() / 4);
+			check = watchdog.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					expire();
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * Function that sends a batch.
+		 */
+		void send(List<Package> packets,
+				List<RemoteEventListener<DeliveryEvent>> nodeListeners,
+				PipelinedLink.Completion completion) throws RemoteException {
+			try {
+				window.acquire();
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new RemoteException("Interrupted", exc);
+			}
+			boolean sent = false;
+			try {
+				synchronized (this) {
+					if (closed) {
+						throw new ConnectException("Connection to " + name
+								+ " lost");
+					}
+					int[] ids = new int[nodeListeners.size()];
+					for (int i = 0; i < ids.length; ++i) {
+						ids[i] = number(nodeListeners.get(i));
+					}
+					int start = out.begin(Frames.PACKAGES);
+					try {
+						out.writeLong(++request);
+						out.writeInt(packets.size());
+						for (int i = 0; i < ids.length; ++i) {
+							out.writeInt(ids[i]);
+							packets.get(i).writeTo(out);
+						}
+					} catch (IOException exc) {
+						out.buffer().position(start);
+						throw new RemoteException("Cannot write the packages",
+								exc);
+					}
+					out.end(start);
+					pending.put(request, new Request(completion));
+					sent = true;
+					flush();
+				}
+			} finally {
+				if (!sent) {
+					window.release();
+				}
+			}
+		}
+
+		/**
+		 * Function returning the number of a listener on the connection,
+		 * sending the listener first if it is new. Must be called with the
+		 * connection locked.
+		 */
+		private int number(RemoteEventListener<DeliveryEvent> listener)
+				throws RemoteException {
+			if (listener == null) {
+				return 0;
+			}
+			Remote stub = RemoteObject.toStub(listener);
+			Integer id = listeners.get(stub);
+			if (id != null) {
+				return id;
+			}
+			if (listeners.size() == MAX_LISTENERS) {
+				listeners.clear();
+				out.end(out.begin(Frames.RESET));
+			}
+			byte[] bytes;
+			try {
+				ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+				ObjectOutputStream objects = new ObjectOutputStream(buffer);
+				objects.writeObject(stub);
+				objects.close();
+				bytes = buffer.toByteArray();
+			} catch (IOException exc) {
+				throw new RemoteException("Cannot write the listener", exc);
+			}
+			id = listeners.size() + 1;
+			int start = out.begin(Frames.LISTENER);
+			out.writeInt(id);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			out.end(start);
+			listeners.put(stub, id);
+			return id;
+		}
+
+		/**
+		 * Function that writes the frames to the channel. Must be called with
+		 * the connection locked. If the connection is lost the batches not
+		 * yet answered fail.
+		 */
+		private void flush() {
+			ByteBuffer buffer = out.buffer();
+			buffer.flip();
+			try {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			} catch (IOException exc) {
+				close(exc);
+			}
+			buffer.clear();
+		}
+
+		/**
+		 * Function run by the thread of the connection, which reads the
+		 * answers of the office.
+		 */
+		public void run() {
+			ByteBuffer in = ByteBuffer.allocate(4096);
+			try {
+				while (true) {
+					in.clear();
+					in.limit(4);
+					fill(in);
+					int length = in.getInt(0);
+					if (length < 1 || length > Frames.MAX_LENGTH) {
+						throw new IOException("Invalid frame length " + length);
+					}
+					if (length > in.capacity()) {
+						in = ByteBuffer.allocate(length);
+					}
+					in.clear();
+					in.limit(length);
+					fill(in);
+					in.flip();
+					Frames.BufferInput frame = new Frames.BufferInput(in);
+					byte type = frame.readByte();
+					if (type == Frames.ACK) {
+						answer(frame.readLong(), null);
+					} else if (type == Frames.NACK) {
+						long id = frame.readLong();
+						answer(id, new RemoteException(name + " refused the "
+								+ "packages: " + frame.readUTF()));
+					} else {
+						throw new IOException("Invalid frame type " + type);
+					}
+				}
+			} catch (IOException exc) {
+				close(exc);
+			}
+		}
+
+		/**
+		 * Function that reads until the buffer is full.
+		 */
+		private void fill(ByteBuffer in) throws IOException {
+			while (in.hasRemaining()) {
+				if (channel.read(in) < 0) {
+					throw new IOException("Connection closed by " + name);
+				}
+			}
+		}
+
+		/**
+		 * Function that tells the completion of a batch whether it was
+		 * accepted.
+		 */
+		private void answer(long id, Exception failure) {
+			Request answered = pending.remove(id);
+			if (answered == null) {
+				return;
+			}
+			window.release();
+			try {
+				if (failure == null) {
+					answered.completion.completed();
+				} else {
+					answered.completion.failed(failure);
+				}
+			} catch (RuntimeException exc) {
+				System.err.println("NioTransport : " + exc);
+			}
+		}
+
+		/**
+		 * Function that closes the connection if a batch has waited too long
+		 * to be answered.
+		 */
+		private void expire() {
+			long now = System.nanoTime();
+			for (Request waiting : pending.values()) {
+				if (now - waiting.sent > timeout) {
+					close(new IOException("No answer from " + name + " in "
+							+ GPSConfig.nioTimeout() + " ms"));
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Function that closes the connection and fails the batches not yet
+		 * answered.
+		 */
+		void close(Exception cause) {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				closed = true;
+			}
+			check.cancel(false);
+			try {
+				channel.close();
+			} catch (IOException exc) {
+			}
+			Long[] ids = pending.keySet().toArray(new Long[0]);
+			Arrays.sort(ids);
+			for (Long id : ids) {
+				answer(id, new ConnectException("Connection to " + name
+						+ " lost", cause));
+			}
+		}
+	}
+
+	/**
+	 * Function that closes the connection of an office reached through the
+	 * transport, if it is one.
+	 *
+	 * @param office
+	 *            The office as returned by connect().
+	 */
+	public static void close(GPSInterface office) {
+		if (office instanceof Link) {
+			((Link) office).close();
+		}
+	}
+}
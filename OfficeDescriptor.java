@@ -0,0 +1,187 @@
+import java.io.Serializable;
+
+/**
+ * The class OfficeDescriptor describes a GPSOffice object: the name of its
+ * city, its coordinates and hints about its capacity. It is returned by the
+ * GPSOffice object in a single remote call so that an office can be learnt
+ * without calling getName(), getX() and getY() one after the other, and it
+ * tells the NIO endpoint of the office, if any, and the ID the office uses
+ * in its tracking numbers. Objects of this class are immutable.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public final class OfficeDescriptor implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Name of the city in which the office is located.
+	 */
+	private final String name;
+
+	/**
+	 * Coordinates of the office.
+	 */
+	private final double x;
+	private final double y;
+
+	/**
+	 * Number of threads the office uses to forward packages.
+	 */
+	private final int workers;
+
+	/**
+	 * Number of packages held by the office when the descriptor was created.
+	 */
+	private final int packagesInTransit;
+
+	/**
+	 * Host and port, as host:port, on which the office accepts packages over
+	 * the NIO transport, or null if it only accepts them through RMI.
+	 */
+	private final String endpoint;
+
+	/**
+	 * ID of the office in its tracking numbers, or -1 if it is not known.
+	 */
+	private final int officeId;
+
+	/**
+	 * Constructor for an office without a NIO endpoint.
+	 * 
+	 * @param name
+	 *            Name of the city in which the office is located.
+	 * @param x
+	 *            X coordinate of the office.
+	 * @param y
+	 *            Y coordinate of the office.
+	 * @param workers
+	 *            Number of threads the office uses to forward packages.
+	 * @param packagesInTransit
+	 *            Number of packages held by the office.
+	 */
+	public OfficeDescriptor(String name, double x, double y, int workers,
+			int packagesInTransit) {
+		this(name, x, y, workers, packagesInTransit, null);
+	}
+
+	/**
+	 * Constructor that sets the values for all the variables.
+	 * 
+	 * @param name
+	 *            Name of the city in which the office is located.
+	 * @param x
+	 *            X coordinate of the office.
+	 * @param y
+	 *            Y coordinate of the office.
+	 * @param workers
+	 *            Number of threads the office uses to forward packages.
+	 * @param packagesInTransit
+	 *            Number of packages held by the office.
+	 * @param endpoint
+	 *            NIO endpoint of the office as host:port, or null.
+	 */
+	public OfficeDescriptor(String name, double x, double y, int workers,
+			int packagesInTransit, String endpoint) {
+		this(name, x, y, workers, packagesInTransit, endpoint, -1);
+	}
+
+	/**
+	 * Constructor that sets the values for all the variables.
+	 * 
+	 * @param name
+	 *            Name of the city in which the office is located.
+	 * @param x
+	 *            X coordinate of the office.
+	 * @param y
+	 *            Y coordinate of the office.
+	 * @param workers
+	 *            Number of threads the office uses to forward packages.
+	 * @param packagesInTransit
+	 *            Number of packages held by the office.
+	 * @param endpoint
+	 *            NIO endpoint of the office as host:port, or null.
+	 * @param officeId
+	 *            ID of the office in its tracking numbers, or -1.
+	 */
+	public OfficeDescriptor(String name, double x, double y, int workers,
+			int packagesInTransit, String endpoint, int officeId) {
+		this.name = name;
+		this.x = x;
+		this.y = y;
+		this.workers = workers;
+		this.packagesInTransit = packagesInTransit;
+		this.endpoint = endpoint;
+		this.officeId = officeId;
+	}
+
+	/**
+	 * Function returning the name of the city in which the office is located.
+	 * 
+	 * @return String The name of the city.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Function returning the X coordinate of the office.
+	 * 
+	 * @return double The X coordinate.
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * Function returning the Y coordinate of the office.
+	 * 
+	 * @return double The Y coordinate.
+	 */
+	public double getY() {
+		return y;
+	}
+
+	/**
+	 * Function returning the number of threads the office uses to forward
+	 * packages.
+	 * 
+	 * @return int The number of forwarding threads.
+	 */
+	public int getWorkers() {
+		return workers;
+	}
+
+	/**
+	 * Function returning the number of packages held by the office when the
+	 * descriptor was created.
+	 * 
+	 * @return int The number of packages in transit.
+	 */
+	public int getPackagesInTransit() {
+		return packagesInTransit;
+	}
+
+	/**
+	 * Function returning the NIO endpoint of the office.
+	 * 
+	 * @return String The endpoint as host:port, or null if the office only
+	 *         accepts packages through RMI.
+	 */
+	public String getEndpoint() {
+		return endpoint;
+	}
+
+	/**
+	 * Function returning the ID of the office in its tracking numbers.
+	 * 
+	 * @return int The office ID, or -1 if it is not known.
+	 */
+	public int getOfficeId() {
+		return officeId;
+	}
+
+	public String toString() {
+		return name + " (" + x + ", " + y + ")";
+	}
+}
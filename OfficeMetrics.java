@@ -0,0 +1,219 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Class OfficeMetrics counts the packages handled by a GPSOffice object and
+ * records the distributions of the time spent choosing next hops, calling the
+ * next hops and waiting in the forwarding lanes. Recording only increments
+ * counters, so it can be done on every package. The metrics can be read
+ * through JMX, for example with jconsole, once they are registered.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class OfficeMetrics implements OfficeMetricsMXBean {
+
+	/**
+	 * Counters of the packages.
+	 */
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder forwarded = new LongAdder();
+	private final LongAdder delivered = new LongAdder();
+	private final LongAdder lost = new LongAdder();
+	private final LongAdder rerouted = new LongAdder();
+
+	/**
+	 * Distributions of the durations in nanoseconds.
+	 */
+	private final Histogram neighborTime = new Histogram();
+	private final Histogram callTime = new Histogram();
+	private final Histogram queueWait = new Histogram();
+
+	/**
+	 * Function that registers the metrics with the platform MBean server.
+	 * 
+	 * @param officeName
+	 *            Name of the office.
+	 * 
+	 * @return boolean True if the metrics were registered, false if the name
+	 *         is already taken in this JVM.
+	 */
+	public boolean register(String officeName) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					this,
+					new ObjectName("gps:type=GPSOffice,name="
+							+ ObjectName.quote(officeName)));
+			return true;
+		} catch (JMException exc) {
+			return false;
+		}
+	}
+
+	/**
+	 * Function that counts packages accepted by the office.
+	 * 
+	 * @param count
+	 *            Number of packages.
+	 */
+	public void accepted(int count) {
+		accepted.add(count);
+	}
+
+	/**
+	 * Function that counts packages handed to a next hop.
+	 * 
+	 * @param count
+	 *            Number of packages.
+	 */
+	public void forwarded(int count) {
+		forwarded.add(count);
+	}
+
+	/**
+	 * Function that counts a package delivered by the office.
+	 */
+	public void delivered() {
+		delivered.increment();
+	}
+
+	/**
+	 * Function that counts a package lost by the office.
+	 */
+	public void lost() {
+		lost.increment();
+	}
+
+	/**
+	 * Function that counts packages routed again after their next hop
+	 * failed.
+	 * 
+	 * @param count
+	 *            Number of packages.
+	 */
+	public void rerouted(int count) {
+		rerouted.add(count);
+	}
+
+	/**
+	 * Function that records the time taken to choose a next hop.
+	 * 
+	 * @param nanos
+	 *            The duration in nanoseconds.
+	 */
+	public void recordNeighborTime(long nanos) {
+		neighborTime.record(nanos);
+	}
+
+	/**
+	 * Function that records the time taken by a call to a next hop.
+	 * 
+	 * @param nanos
+	 *            The duration in nanoseconds.
+	 */
+	public void recordCallTime(long nanos) {
+		callTime.record(nanos);
+	}
+
+	/**
+	 * Function that records the time a package waited in a forwarding
+	 * lane.
+	 * 
+	 * @param nanos
+	 *            The duration in nanoseconds.
+	 */
+	public void recordQueueWait(long nanos) {
+		queueWait.record(nanos);
+	}
+
+	/**
+	 * Function returning the number of packages accepted by the office.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getAccepted() {
+		return accepted.sum();
+	}
+
+	/**
+	 * Function returning the number of packages handed to a next hop.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getForwarded() {
+		return forwarded.sum();
+	}
+
+	/**
+	 * Function returning the number of packages delivered by the office.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getDelivered() {
+		return delivered.sum();
+	}
+
+	/**
+	 * Function returning the number of packages lost by the office.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getLost() {
+		return lost.sum();
+	}
+
+	/**
+	 * Function returning the number of packages routed again after their next
+	 * hop failed.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getRerouted() {
+		return rerouted.sum();
+	}
+
+	/**
+	 * Function returning the distribution of the time taken to choose a next
+	 * hop.
+	 * 
+	 * @return HistogramSnapshot The durations in nanoseconds.
+	 */
+	public HistogramSnapshot getNeighborTime() {
+		return neighborTime.snapshot();
+	}
+
+	/**
+	 * Function returning the distribution of the time taken by the calls to
+	 * the next hops.
+	 * 
+	 * @return HistogramSnapshot The durations in nanoseconds.
+	 */
+	public HistogramSnapshot getCallTime() {
+		return callTime.snapshot();
+	}
+
+	/**
+	 * Function returning the distribution of the time the packages waited in
+	 * the forwarding lanes.
+	 * 
+	 * @return HistogramSnapshot The durations in nanoseconds.
+	 */
+	public HistogramSnapshot getQueueWait() {
+		return queueWait.snapshot();
+	}
+
+	/**
+	 * Function returning the counters and the distributions, one distribution
+	 * per line.
+	 * 
+	 * @return String The metrics.
+	 */
+	public String toString() {
+		return "accepted " + getAccepted() + ", forwarded " + getForwarded()
+				+ ", delivered " + getDelivered() + ", lost " + getLost()
+				+ ", rerouted " + getRerouted() + "\nneighbor time (ns) "
+				+ neighborTime + "\ncall time (ns) " + callTime
+				+ "\nqueue wait (ns) " + queueWait;
+	}
+}
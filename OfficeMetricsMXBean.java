@@ -0,0 +1,68 @@
+/**
+ * Interface OfficeMetricsMXBean is the management interface of the metrics of
+ * a GPSOffice object, under the JMX name gps:type=GPSOffice,name=<name>. The
+ * durations are in nanoseconds.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public interface OfficeMetricsMXBean {
+
+	/**
+	 * Function returning the number of packages accepted by the office.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getAccepted();
+
+	/**
+	 * Function returning the number of packages handed to a next hop.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getForwarded();
+
+	/**
+	 * Function returning the number of packages delivered by the office.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getDelivered();
+
+	/**
+	 * Function returning the number of packages lost by the office.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getLost();
+
+	/**
+	 * Function returning the number of packages routed again after their next
+	 * hop failed.
+	 * 
+	 * @return long The number of packages.
+	 */
+	public long getRerouted();
+
+	/**
+	 * Function returning the time taken to choose the next hop of a package.
+	 * 
+	 * @return HistogramSnapshot The distribution of the time.
+	 */
+	public HistogramSnapshot getNeighborTime();
+
+	/**
+	 * Function returning the time taken by a remote call forwarding a batch
+	 * to a next hop.
+	 * 
+	 * @return HistogramSnapshot The distribution of the time.
+	 */
+	public HistogramSnapshot getCallTime();
+
+	/**
+	 * Function returning the time a package waits in the lane of its next
+	 * hop before it is sent.
+	 * 
+	 * @return HistogramSnapshot The distribution of the time.
+	 */
+	public HistogramSnapshot getQueueWait();
+}
@@ -0,0 +1,72 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class OfficeNames maps the IDs of the offices back to their names. The
+ * DeliveryEvent objects only carry the ID of the office that generated them,
+ * so the listeners that print the events or keep the offices of the packages
+ * learn the names from the OfficeDescriptor objects of the offices they listen
+ * to and look them up here. The names are kept in an array indexed by the ID,
+ * so they are read without any lock.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class OfficeNames {
+
+	/**
+	 * Names of the offices by ID, null for the IDs not known.
+	 */
+	private final AtomicReferenceArray<String> names = new AtomicReferenceArray<String>(
+			TrackingNumberGenerator.MAX_OFFICE_ID + 1);
+
+	/**
+	 * Function that records the name of an office.
+	 *
+	 * @param id
+	 *            ID of the office, ignored if it is out of range.
+	 * @param name
+	 *            Name of the office.
+	 */
+	public void put(int id, String name) {
+		if (id >= 0 && id < names.length()) {
+			names.set(id, name);
+		}
+	}
+
+	/**
+	 * Function that records the names of offices from their descriptors.
+	 *
+	 * @param descriptors
+	 *            Descriptors of the offices.
+	 */
+	public void putAll(List<OfficeDescriptor> descriptors) {
+		for (OfficeDescriptor descriptor : descriptors) {
+			put(descriptor.getOfficeId(), descriptor.getName());
+		}
+	}
+
+	/**
+	 * Function telling whether the name of an office is known.
+	 *
+	 * @param id
+	 *            ID of the office.
+	 *
+	 * @return boolean True if the name is known.
+	 */
+	public boolean contains(int id) {
+		return id >= 0 && id < names.length() && names.get(id) != null;
+	}
+
+	/**
+	 * Function returning the name of an office, or #<id> if it is not known.
+	 *
+	 * @param id
+	 *            ID of the office.
+	 *
+	 * @return String The name of the office.
+	 */
+	public String get(int id) {
+		String name = id >= 0 && id < names.length() ? names.get(id) : null;
+		return name != null ? name : "#" + id;
+	}
+}
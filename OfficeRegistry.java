@@ -0,0 +1,129 @@
+import java.rmi.RemoteException;
+import java.util.List;
+import edu.rit.ds.registry.AlreadyBoundException;
+import edu.rit.ds.registry.NotBoundException;
+
+/**
+ * Interface OfficeRegistry is the part of the registry server used by the GPS
+ * system: looking up, listing and binding objects by name, and being told when
+ * objects of a given type are bound or unbound. It is implemented by
+ * RemoteRegistry, on top of the Registry Server of the edu.rit.ds package, and
+ * by LocalRegistry, which keeps the objects of a single JVM in memory so that
+ * a whole network can be run without any external service.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public interface OfficeRegistry {
+
+	/**
+	 * Interface of an object told when the objects of a type are bound or
+	 * unbound in the registry.
+	 */
+	public interface Listener {
+
+		/**
+		 * Function called when an object has been bound in the registry.
+		 *
+		 * @param name
+		 *            Name of the object.
+		 */
+		public void bound(String name);
+
+		/**
+		 * Function called when an object has been unbound from the registry.
+		 *
+		 * @param name
+		 *            Name of the object.
+		 */
+		public void unbound(String name);
+	}
+
+	/**
+	 * Function returning the object bound under a name.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 *
+	 * @return Object The object.
+	 *
+	 * @exception NotBoundException
+	 *                Thrown if no object is bound under the name.
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 */
+	public Object lookup(String name) throws RemoteException,
+			NotBoundException;
+
+	/**
+	 * Function returning the names of the objects of a type, that is whose
+	 * class or one of whose interfaces has the given simple name.
+	 *
+	 * @param type
+	 *            Type of the objects.
+	 *
+	 * @return List<String> Names of the objects.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 */
+	public List<String> list(String type) throws RemoteException;
+
+	/**
+	 * Function that binds an object under a name.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 * @param object
+	 *            The object.
+	 *
+	 * @exception AlreadyBoundException
+	 *                Thrown if an object is already bound under the name.
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 */
+	public void bind(String name, Object object) throws RemoteException,
+			AlreadyBoundException;
+
+	/**
+	 * Function that binds an object under a name, replacing the object bound
+	 * under it if any.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 * @param object
+	 *            The object.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 */
+	public void rebind(String name, Object object) throws RemoteException;
+
+	/**
+	 * Function that unbinds the object bound under a name.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 *
+	 * @exception NotBoundException
+	 *                Thrown if no object is bound under the name.
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 */
+	public void unbind(String name) throws RemoteException, NotBoundException;
+
+	/**
+	 * Function that adds a listener told when the objects of a type are bound
+	 * or unbound. The listener is told in the order the objects were bound
+	 * and unbound, from a thread of the registry.
+	 *
+	 * @param type
+	 *            Type of the objects.
+	 * @param listener
+	 *            The listener.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the registry cannot be reached.
+	 */
+	public void addListener(String type, Listener listener)
+			throws RemoteException;
+}
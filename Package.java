@@ -1,4 +1,10 @@
-import java.io.Serializable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
 
 /**
  * The class Package contains the routing information and the tracking number of the 
@@ -7,22 +13,48 @@ import java.io.Serializable;
  * the correct destination. 
  * Whenever the Customer contacts the GPSOffice object to deliver a package, the message is 
  * packed in an instance of this class, which is then sent over the entire network.
+ * The package is written in a compact binary form instead of the default Java
+ * serialization, and has no setters so that it can be shared between threads.
  * 
  * @author Hitesh Chidambar Kotian(hxk6871).
  *
  */
-public class Package implements Serializable {
+public class Package implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * Coordinates of the destination to which this package is to be sent.
 	 */
-	private final double destinationX;
-	private final double destinationY;
+	private double destinationX;
+	private double destinationY;
 	
 	/**
-	 * Tracking number of the package that is set by the GPSOffice object.
+	 * Tracking number of the package that is set by the GPSOffice object, see
+	 * class TrackingNumberGenerator.
+	 */
+	private long trackingNumber;
+
+	/**
+	 * Offices the package is to pass through, starting with the office that
+	 * accepted it from the customer, or null if the package is routed hop by
+	 * hop. The route is computed once by that office when source routing is
+	 * enabled, see GPSOffice.
+	 */
+	private String[] route;
+
+	/**
+	 * Number of times the package has been forwarded from an office to
+	 * another, including the attempts that failed. A package whose hop count
+	 * reaches the hop budget is reported lost, see GPSConfig.maxHops().
+	 */
+	private int hops;
+
+	/**
+	 * Constructor used by the deserialization only.
 	 */
-	private final long trackingNumber;
+	public Package() {
+	}
 
 	/**
 	 * Constructor that sets the values for all the variables.
@@ -31,11 +63,13 @@ public class Package implements Serializable {
 	 * 		x coordinate of the destination.
 	 * @param destinationY
 	 * 		y coordinate of the destination.
+	 * @param trackingNumber
+	 * 		tracking number of the package.
 	 */
-	public Package(double destinationX, double destinationY) {
+	public Package(double destinationX, double destinationY, long trackingNumber) {
 		this.destinationX = destinationX;
 		this.destinationY = destinationY;
-		trackingNumber = System.currentTimeMillis();
+		this.trackingNumber = trackingNumber;
 	}
 
 	/**
@@ -60,6 +94,88 @@ public class Package implements Serializable {
 		return destinationY;
 	}
 
+	/**
+	 * Function returning a copy of the package that follows the given route.
+	 * 
+	 * @param route
+	 * 		names of the offices the package is to pass through, starting with
+	 * 		the office that accepted it.
+	 * 
+	 * @return Package
+	 * 		The package with the route.
+	 */
+	public Package withRoute(String[] route) {
+		Package packet = copy();
+		packet.route = route.clone();
+		return packet;
+	}
+
+	/**
+	 * Function returning a copy of the package forwarded once more.
+	 * 
+	 * @return Package
+	 * 		The package with its hop count incremented.
+	 */
+	public Package withHop() {
+		Package packet = copy();
+		++packet.hops;
+		return packet;
+	}
+
+	/**
+	 * Function returning the number of times the package has been forwarded.
+	 * 
+	 * @return int
+	 * 		The hop count of the package.
+	 */
+	public int getHops() {
+		return hops;
+	}
+
+	/**
+	 * Function returning a copy of the package.
+	 */
+	private Package copy() {
+		Package packet = new Package(destinationX, destinationY, trackingNumber);
+		packet.route = route;
+		packet.hops = hops;
+		return packet;
+	}
+
+	/**
+	 * Function returning the office that follows the given office on the
+	 * route of the package.
+	 * 
+	 * @param office
+	 * 		name of the current office.
+	 * 
+	 * @return String
+	 * 		The name of the next office, the name of the current office if it is
+	 * 		the last one of the route, or null if the package has no route or the
+	 * 		current office is not on it.
+	 */
+	public String nextHopAfter(String office) {
+		if (route == null) {
+			return null;
+		}
+		for (int i = 0; i < route.length; ++i) {
+			if (route[i].equals(office)) {
+				return i + 1 < route.length ? route[i + 1] : office;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Function returning true if the package has a route.
+	 * 
+	 * @return boolean
+	 * 		True if the package has a route.
+	 */
+	public boolean hasRoute() {
+		return route != null;
+	}
+
 	/**
 	 * Function returning the tracking number of the package.
 	 * 
@@ -69,4 +185,116 @@ public class Package implements Serializable {
 	public long getTrackingNumber() {
 		return trackingNumber;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Function that writes the package in its binary form.
+	 * 
+	 * @param out
+	 * 		The stream to write to.
+	 * 
+	 * @exception IOException
+	 * 		Thrown if an I/O error occurs.
+	 */
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeTo(out);
+	}
+
+	/**
+	 * Function that reads the package from its binary form.
+	 * 
+	 * @param in
+	 * 		The stream to read from.
+	 * 
+	 * @exception IOException
+	 * 		Thrown if an I/O error occurs.
+	 */
+	public void readExternal(ObjectInput in) throws IOException {
+		readFields(in, false);
+	}
+
+	/**
+	 * Function that writes the package in its binary form to any stream, such
+	 * as the TransitLog of an office.
+	 * 
+	 * @param out
+	 * 		The stream to write to.
+	 * 
+	 * @exception IOException
+	 * 		Thrown if an I/O error occurs.
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeLong(trackingNumber);
+		out.writeDouble(destinationX);
+		out.writeDouble(destinationY);
+		out.writeShort(hops);
+		out.writeInt(route == null ? -1 : route.length);
+		if (route != null) {
+			for (int i = 0; i < route.length; ++i) {
+				out.writeUTF(route[i]);
+			}
+		}
+	}
+
+	/**
+	 * Function that reads a package written by writeTo().
+	 * 
+	 * @param in
+	 * 		The stream to read from.
+	 * 
+	 * @return Package
+	 * 		The package read.
+	 * 
+	 * @exception IOException
+	 * 		Thrown if an I/O error occurs.
+	 */
+	public static Package readFrom(DataInput in) throws IOException {
+		Package packet = new Package();
+		packet.readFields(in, false);
+		return packet;
+	}
+
+	/**
+	 * Function that reads a package written before the length of the route
+	 * was written as an int, with the length as a short.
+	 * 
+	 * @param in
+	 * 		The stream to read from.
+	 * 
+	 * @return Package
+	 * 		The package read.
+	 * 
+	 * @exception IOException
+	 * 		Thrown if an I/O error occurs.
+	 */
+	public static Package readShortRouteFrom(DataInput in) throws IOException {
+		Package packet = new Package();
+		packet.readFields(in, true);
+		return packet;
+	}
+
+	/**
+	 * Function that reads the fields of the package from its binary form.
+	 * The route is read into an array grown as its offices are read, so
+	 * that a corrupt length fails on the end of the stream rather than on
+	 * the allocation.
+	 */
+	private void readFields(DataInput in, boolean shortRoute)
+			throws IOException {
+		trackingNumber = in.readLong();
+		destinationX = in.readDouble();
+		destinationY = in.readDouble();
+		hops = in.readUnsignedShort();
+		int length = shortRoute ? in.readShort() : in.readInt();
+		if (length < -1) {
+			throw new IOException("Invalid route length " + length);
+		}
+		route = length < 0 ? null : new String[Math.min(length, 256)];
+		for (int i = 0; i < length; ++i) {
+			if (i == route.length) {
+				route = Arrays.copyOf(route,
+						(int) Math.min(length, 2L * route.length));
+			}
+			route[i] = in.readUTF();
+		}
+	}
+}
@@ -0,0 +1,570 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class PackageIndex keeps the status of every package seen by the
+ * Headquarters: its status, the office it was last seen at and the offices it
+ * has arrived at. It is an EventSink of the EventPipeline of the Headquarters,
+ * so it is updated from the events in batches by the consumer thread, and it
+ * answers the queries of the TrackingInterface.
+ *
+ * The packages are stored in an open addressing hash table keyed on the
+ * tracking number, made of parallel primitive arrays, and the hops of all the
+ * packages are stored as linked lists in a shared pair of int arrays, with the
+ * offices kept as the IDs carried by the events and named from the
+ * OfficeNames of the Headquarters only when a package is queried. A package takes about 40 bytes
+ * plus 8 bytes per hop, so millions of packages can be held.
+ *
+ * The packages of every status are also chained together through two more
+ * columns of slots, so that they are listed without going through the whole
+ * table. The packages in transit are chained in the order they were last
+ * seen, the finished packages in the order they were finished and the
+ * tombstones in the order they were left.
+ *
+ * Delivered and lost packages are evicted once they have been finished for
+ * longer than the retention time, or earliest first once there are more
+ * finished packages than the maximum. Packages in transit are evicted once
+ * no event has been seen for them for longer than the transit retention
+ * time, as their office has crashed or their events were lost.
+ *
+ * Once a package is delivered or lost, the events of it that arrive late are
+ * ignored, so an arrival overtaken by the delivery does not move the package
+ * back to an earlier office. An evicted finished package leaves a tombstone
+ * holding only its tracking number for the tombstone time, so that its late
+ * events do not bring it back as a package in transit.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class PackageIndex implements EventSink, TrackingInterface {
+
+	/**
+	 * Value of the states array for an empty slot.
+	 */
+	private static final byte EMPTY = 0;
+
+	/**
+	 * Value of the states array for the tombstone of an evicted finished
+	 * package, after the status codes of class PackageStatus.
+	 */
+	private static final byte EVICTED = 4;
+
+	/**
+	 * Columns of the hash table, indexed by slot.
+	 */
+	private long[] keys;
+	private byte[] states;
+	private int[] offices;
+	private long[] firstSeen;
+	private long[] lastSeen;
+	private int[] hopHeads;
+
+	/**
+	 * Chains of the packages of every status, as the previous and the next
+	 * slot of a slot in its chain, or -1, and the first and the last slot of
+	 * every chain by status code, or -1.
+	 */
+	private int[] chainPrev;
+	private int[] chainNext;
+	private final int[] chainHeads = { -1, -1, -1, -1, -1 };
+	private final int[] chainTails = { -1, -1, -1, -1, -1 };
+
+	/**
+	 * Mask giving the slot of a hash.
+	 */
+	private int mask;
+
+	/**
+	 * Number of packages and tombstones in the table.
+	 */
+	private int size;
+
+	/**
+	 * Number of packages in the table by status code, and of tombstones.
+	 */
+	private final int[] counts = new int[5];
+
+	/**
+	 * Hops of the packages as linked lists, newest first. hopOffices holds
+	 * the office ID of a hop and hopNext the index of the previous hop, or
+	 * -1. Freed hops are chained through hopNext from hopFree.
+	 */
+	private int[] hopOffices = new int[1024];
+	private int[] hopNext = new int[1024];
+	private int hopTop;
+	private int hopFree = -1;
+
+	/**
+	 * Names of the offices by ID.
+	 */
+	private final OfficeNames officeNames;
+
+	/**
+	 * Queue of the finished packages and the times they were finished, in the
+	 * order they were finished.
+	 */
+	private long[] finishedKeys = new long[1024];
+	private long[] finishedTimes = new long[1024];
+	private int finishedHead;
+	private int finishedCount;
+
+	/**
+	 * Time in milliseconds a finished package is kept.
+	 */
+	private final long retention;
+
+	/**
+	 * Largest number of finished packages kept.
+	 */
+	private final int maxFinished;
+
+	/**
+	 * Time in milliseconds a package in transit is kept after it was last
+	 * seen.
+	 */
+	private final long transitRetention;
+
+	/**
+	 * Time in milliseconds the tombstone of an evicted finished package is
+	 * kept.
+	 */
+	private final long tombstoneTime;
+
+	/**
+	 * Constructor that creates an empty index.
+	 *
+	 * @param retention
+	 *            Time in milliseconds a delivered or lost package is kept.
+	 * @param maxFinished
+	 *            Largest number of delivered or lost packages kept.
+	 * @param transitRetention
+	 *            Time in milliseconds a package in transit is kept after it
+	 *            was last seen.
+	 * @param tombstoneTime
+	 *            Time in milliseconds the tracking number of an evicted
+	 *            delivered or lost package is remembered.
+	 * @param officeNames
+	 *            Names of the offices by ID.
+	 */
+	public PackageIndex(long retention, int maxFinished,
+			long transitRetention, long tombstoneTime, OfficeNames officeNames) {
+		this.retention = retention;
+		this.maxFinished = maxFinished;
+		this.transitRetention = transitRetention;
+		this.tombstoneTime = tombstoneTime;
+		this.officeNames = officeNames;
+		allocate(1024);
+	}
+
+	/**
+	 * Function that updates the index from a batch of events.
+	 *
+	 * @param events
+	 *            The events, in the order they were received.
+	 */
+	public synchronized void write(List<DeliveryEvent> events) {
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < events.size(); ++i) {
+			apply(events.get(i), now);
+		}
+		evict(now);
+	}
+
+	/**
+	 * Function that closes the sink. The index is kept in memory only, so
+	 * there is nothing to release.
+	 */
+	public void close() {
+	}
+
+	/**
+	 * Function that updates the index from an event.
+	 */
+	private void apply(DeliveryEvent event, long now) {
+		int slot = find(event.getTrackingNumber());
+		if (slot < 0) {
+			if (size + 1 > (mask + 1) * 3 / 4) {
+				allocate((mask + 1) * 2);
+				slot = find(event.getTrackingNumber());
+			}
+			slot = ~slot;
+			keys[slot] = event.getTrackingNumber();
+			states[slot] = PackageStatus.IN_TRANSIT;
+			firstSeen[slot] = now;
+			hopHeads[slot] = -1;
+			++size;
+			++counts[PackageStatus.IN_TRANSIT];
+			link(slot);
+		} else if (states[slot] != PackageStatus.IN_TRANSIT) {
+			// A late event of a finished or evicted package changes nothing.
+			return;
+		} else {
+			// Keep the packages in transit in the order they were last seen.
+			unlink(slot);
+			link(slot);
+		}
+		int office = event.getOfficeId();
+		offices[slot] = office;
+		lastSeen[slot] = now;
+		switch (event.getStatus()) {
+		case DeliveryEvent.ARRIVED:
+			int hop = allocateHop();
+			hopOffices[hop] = office;
+			hopNext[hop] = hopHeads[slot];
+			hopHeads[slot] = hop;
+			break;
+		case DeliveryEvent.DELIVERED:
+			finish(slot, PackageStatus.DELIVERED, now);
+			break;
+		case DeliveryEvent.LOST:
+			finish(slot, PackageStatus.LOST, now);
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Function that marks a package as delivered or lost.
+	 */
+	private void finish(int slot, int status, long now) {
+		if (states[slot] != PackageStatus.IN_TRANSIT) {
+			return;
+		}
+		--counts[PackageStatus.IN_TRANSIT];
+		++counts[status];
+		unlink(slot);
+		states[slot] = (byte) status;
+		link(slot);
+		if (finishedCount == finishedKeys.length) {
+			long[] newKeys = new long[finishedCount * 2];
+			long[] newTimes = new long[finishedCount * 2];
+			for (int i = 0; i < finishedCount; ++i) {
+				int j = (finishedHead + i) % finishedCount;
+				newKeys[i] = finishedKeys[j];
+				newTimes[i] = finishedTimes[j];
+			}
+			finishedKeys = newKeys;
+			finishedTimes = newTimes;
+			finishedHead = 0;
+		}
+		int tail = (finishedHead + finishedCount) % finishedKeys.length;
+		finishedKeys[tail] = keys[slot];
+		finishedTimes[tail] = now;
+		++finishedCount;
+	}
+
+	/**
+	 * Function that evicts the finished packages that are too old or too
+	 * many, leaving their tombstones, the tombstones that are too old or too
+	 * many and the packages in transit not seen for too long.
+	 */
+	private void evict(long now) {
+		while (finishedCount > 0
+				&& (finishedCount > maxFinished || now
+						- finishedTimes[finishedHead] > retention)) {
+			int slot = find(finishedKeys[finishedHead]);
+			finishedHead = (finishedHead + 1) % finishedKeys.length;
+			--finishedCount;
+			if (slot >= 0 && states[slot] != PackageStatus.IN_TRANSIT
+					&& states[slot] != EVICTED) {
+				bury(slot, now);
+			}
+		}
+		int head;
+		while ((head = chainHeads[EVICTED]) != -1
+				&& (counts[EVICTED] > maxFinished || now - lastSeen[head]
+						> tombstoneTime)) {
+			remove(head);
+		}
+		while ((head = chainHeads[PackageStatus.IN_TRANSIT]) != -1
+				&& now - lastSeen[head] > transitRetention) {
+			remove(head);
+		}
+	}
+
+	/**
+	 * Function that replaces the finished package of a slot by its
+	 * tombstone, freeing its hops.
+	 */
+	private void bury(int slot, long now) {
+		unlink(slot);
+		--counts[states[slot]];
+		++counts[EVICTED];
+		states[slot] = EVICTED;
+		lastSeen[slot] = now;
+		freeHops(slot);
+		link(slot);
+	}
+
+	/**
+	 * Function that appends the package of a slot to the chain of its
+	 * status.
+	 */
+	private void link(int slot) {
+		int status = states[slot];
+		int tail = chainTails[status];
+		chainPrev[slot] = tail;
+		chainNext[slot] = -1;
+		if (tail == -1) {
+			chainHeads[status] = slot;
+		} else {
+			chainNext[tail] = slot;
+		}
+		chainTails[status] = slot;
+	}
+
+	/**
+	 * Function that takes the package of a slot out of the chain of its
+	 * status.
+	 */
+	private void unlink(int slot) {
+		int status = states[slot];
+		int prev = chainPrev[slot];
+		int next = chainNext[slot];
+		if (prev == -1) {
+			chainHeads[status] = next;
+		} else {
+			chainNext[prev] = next;
+		}
+		if (next == -1) {
+			chainTails[status] = prev;
+		} else {
+			chainPrev[next] = prev;
+		}
+	}
+
+	/**
+	 * Function that points the chain of the package moved from a slot to
+	 * another slot at its new slot.
+	 */
+	private void relink(int from, int to) {
+		int status = states[to];
+		int prev = chainPrev[from];
+		int next = chainNext[from];
+		chainPrev[to] = prev;
+		chainNext[to] = next;
+		if (prev == -1) {
+			chainHeads[status] = to;
+		} else {
+			chainNext[prev] = to;
+		}
+		if (next == -1) {
+			chainTails[status] = to;
+		} else {
+			chainPrev[next] = to;
+		}
+	}
+
+	/**
+	 * Function returning the slot of a tracking number, or the bitwise
+	 * complement of the empty slot where it would be inserted.
+	 */
+	private int find(long key) {
+		int slot = hash(key) & mask;
+		while (states[slot] != EMPTY) {
+			if (keys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return ~slot;
+	}
+
+	/**
+	 * Function that removes the package of a slot, shifting back the packages
+	 * after it so that no tombstone is left.
+	 */
+	private void remove(int slot) {
+		unlink(slot);
+		--counts[states[slot]];
+		--size;
+		freeHops(slot);
+		int hole = slot;
+		states[hole] = EMPTY;
+		int next = (hole + 1) & mask;
+		while (states[next] != EMPTY) {
+			int ideal = hash(keys[next]) & mask;
+			// Move the package into the hole unless its ideal slot lies
+			// cyclically between the hole and its current slot.
+			boolean between = hole <= next ? (hole < ideal && ideal <= next)
+					: (hole < ideal || ideal <= next);
+			if (!between) {
+				keys[hole] = keys[next];
+				states[hole] = states[next];
+				offices[hole] = offices[next];
+				firstSeen[hole] = firstSeen[next];
+				lastSeen[hole] = lastSeen[next];
+				hopHeads[hole] = hopHeads[next];
+				relink(next, hole);
+				states[next] = EMPTY;
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+	}
+
+	/**
+	 * Function that allocates the columns of the table with the given
+	 * capacity, moving the packages already present and chaining them again
+	 * in the same order.
+	 */
+	private void allocate(int capacity) {
+		long[] oldKeys = keys;
+		byte[] oldStates = states;
+		int[] oldOffices = offices;
+		long[] oldFirstSeen = firstSeen;
+		long[] oldLastSeen = lastSeen;
+		int[] oldHopHeads = hopHeads;
+		int[] oldChainNext = chainNext;
+		keys = new long[capacity];
+		states = new byte[capacity];
+		offices = new int[capacity];
+		firstSeen = new long[capacity];
+		lastSeen = new long[capacity];
+		hopHeads = new int[capacity];
+		chainPrev = new int[capacity];
+		chainNext = new int[capacity];
+		mask = capacity - 1;
+		if (oldKeys == null) {
+			return;
+		}
+		int[] moved = new int[oldKeys.length];
+		for (int i = 0; i < oldKeys.length; ++i) {
+			if (oldStates[i] != EMPTY) {
+				int slot = ~find(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				states[slot] = oldStates[i];
+				offices[slot] = oldOffices[i];
+				firstSeen[slot] = oldFirstSeen[i];
+				lastSeen[slot] = oldLastSeen[i];
+				hopHeads[slot] = oldHopHeads[i];
+				moved[i] = slot;
+			}
+		}
+		for (int status = 0; status < chainHeads.length; ++status) {
+			int old = chainHeads[status];
+			chainHeads[status] = -1;
+			chainTails[status] = -1;
+			for (; old != -1; old = oldChainNext[old]) {
+				link(moved[old]);
+			}
+		}
+	}
+
+	/**
+	 * Function that frees the hops of the package of a slot.
+	 */
+	private void freeHops(int slot) {
+		for (int hop = hopHeads[slot]; hop != -1;) {
+			int next = hopNext[hop];
+			hopNext[hop] = hopFree;
+			hopFree = hop;
+			hop = next;
+		}
+		hopHeads[slot] = -1;
+	}
+
+	/**
+	 * Function returning the index of a free hop.
+	 */
+	private int allocateHop() {
+		if (hopFree != -1) {
+			int hop = hopFree;
+			hopFree = hopNext[hop];
+			return hop;
+		}
+		if (hopTop == hopOffices.length) {
+			hopOffices = Arrays.copyOf(hopOffices, hopTop * 2);
+			hopNext = Arrays.copyOf(hopNext, hopTop * 2);
+		}
+		return hopTop++;
+	}
+
+	/**
+	 * Function mixing the bits of a tracking number, whose low bits are a
+	 * sequence number and an office ID.
+	 */
+	private static int hash(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+
+	/**
+	 * Function building the status of the package of a slot.
+	 */
+	private PackageStatus status(int slot) {
+		int hopCount = 0;
+		for (int hop = hopHeads[slot]; hop != -1; hop = hopNext[hop]) {
+			++hopCount;
+		}
+		String[] hops = new String[hopCount];
+		for (int hop = hopHeads[slot]; hop != -1; hop = hopNext[hop]) {
+			hops[--hopCount] = officeNames.get(hopOffices[hop]);
+		}
+		return new PackageStatus(keys[slot], states[slot],
+				officeNames.get(offices[slot]), hops, firstSeen[slot],
+				lastSeen[slot]);
+	}
+
+	/**
+	 * Function returning the status of a package.
+	 *
+	 * @param trackingNumber
+	 *            Tracking number of the package.
+	 *
+	 * @return PackageStatus The status of the package, or null if the package
+	 *         is not known or has been evicted.
+	 */
+	public synchronized PackageStatus getPackage(long trackingNumber) {
+		int slot = find(trackingNumber);
+		return slot < 0 || states[slot] == EVICTED ? null : status(slot);
+	}
+
+	/**
+	 * Function that lists the packages with a given status by following the
+	 * chain of the status, so that only the packages returned are visited.
+	 * The packages in transit are listed least recently seen first and the
+	 * finished packages earliest finished first.
+	 *
+	 * @param status
+	 *            Status code of the packages, see class PackageStatus.
+	 * @param max
+	 *            Largest number of packages returned.
+	 *
+	 * @return List The status of the packages.
+	 */
+	public synchronized List<PackageStatus> listPackages(int status, int max) {
+		List<PackageStatus> result = new ArrayList<PackageStatus>();
+		if (status <= 0 || status >= EVICTED) {
+			return result;
+		}
+		for (int slot = chainHeads[status]; slot != -1 && result.size() < max;
+				slot = chainNext[slot]) {
+			result.add(status(slot));
+		}
+		return result;
+	}
+
+	/**
+	 * Function that counts the packages with a given status.
+	 *
+	 * @param status
+	 *            Status code of the packages, see class PackageStatus.
+	 *
+	 * @return int The number of packages.
+	 */
+	public synchronized int countPackages(int status) {
+		return status > 0 && status < EVICTED ? counts[status] : 0;
+	}
+
+	/**
+	 * Function returning the number of packages in the index, not counting
+	 * the tombstones.
+	 *
+	 * @return int The number of packages.
+	 */
+	public synchronized int size() {
+		return size - counts[EVICTED];
+	}
+}
@@ -0,0 +1,157 @@
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The class PackageStatus is the answer of the Headquarters to a query about a
+ * package: its status, the office it was last seen at and the offices it has
+ * passed through. Objects of this class are immutable.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public final class PackageStatus implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Status codes of a package.
+	 */
+	public static final int IN_TRANSIT = 1;
+	public static final int DELIVERED = 2;
+	public static final int LOST = 3;
+
+	/**
+	 * Tracking number of the package.
+	 */
+	private final long trackingNumber;
+
+	/**
+	 * Status code of the package.
+	 */
+	private final int status;
+
+	/**
+	 * Name of the office the package was last seen at.
+	 */
+	private final String office;
+
+	/**
+	 * Names of the offices the package has arrived at, oldest first.
+	 */
+	private final String[] hops;
+
+	/**
+	 * Times in milliseconds of the first and the last event of the package.
+	 */
+	private final long firstSeen;
+	private final long lastSeen;
+
+	/**
+	 * Constructor that sets the values for all the variables.
+	 *
+	 * @param trackingNumber
+	 *            Tracking number of the package.
+	 * @param status
+	 *            Status code of the package.
+	 * @param office
+	 *            Name of the office the package was last seen at.
+	 * @param hops
+	 *            Names of the offices the package has arrived at, oldest
+	 *            first.
+	 * @param firstSeen
+	 *            Time in milliseconds of the first event of the package.
+	 * @param lastSeen
+	 *            Time in milliseconds of the last event of the package.
+	 */
+	public PackageStatus(long trackingNumber, int status, String office,
+			String[] hops, long firstSeen, long lastSeen) {
+		this.trackingNumber = trackingNumber;
+		this.status = status;
+		this.office = office;
+		this.hops = hops.clone();
+		this.firstSeen = firstSeen;
+		this.lastSeen = lastSeen;
+	}
+
+	/**
+	 * Function returning the tracking number of the package.
+	 *
+	 * @return long The tracking number.
+	 */
+	public long getTrackingNumber() {
+		return trackingNumber;
+	}
+
+	/**
+	 * Function returning the status code of the package.
+	 *
+	 * @return int IN_TRANSIT, DELIVERED or LOST.
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Function returning the name of the office the package was last seen at.
+	 *
+	 * @return String The name of the office.
+	 */
+	public String getOffice() {
+		return office;
+	}
+
+	/**
+	 * Function returning the names of the offices the package has arrived at.
+	 *
+	 * @return List The names of the offices, oldest first.
+	 */
+	public List<String> getHops() {
+		return Arrays.asList(hops.clone());
+	}
+
+	/**
+	 * Function returning the time of the first event of the package.
+	 *
+	 * @return long The time in milliseconds.
+	 */
+	public long getFirstSeen() {
+		return firstSeen;
+	}
+
+	/**
+	 * Function returning the time of the last event of the package.
+	 *
+	 * @return long The time in milliseconds.
+	 */
+	public long getLastSeen() {
+		return lastSeen;
+	}
+
+	/**
+	 * Function returning the name of a status code.
+	 *
+	 * @param status
+	 *            The status code.
+	 *
+	 * @return String The name of the status.
+	 */
+	public static String statusName(int status) {
+		switch (status) {
+		case IN_TRANSIT:
+			return "in transit";
+		case DELIVERED:
+			return "delivered";
+		case LOST:
+			return "lost";
+		default:
+			return "unknown";
+		}
+	}
+
+	public String toString() {
+		return "Package number " + trackingNumber + " " + statusName(status)
+				+ " at " + office + " office, last seen "
+				+ new Date(lastSeen) + ", route " + Arrays.toString(hops);
+	}
+}
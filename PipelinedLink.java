@@ -0,0 +1,57 @@
+import java.rmi.RemoteException;
+import java.util.List;
+import edu.rit.ds.RemoteEventListener;
+
+/**
+ * Interface PipelinedLink is a way of reaching a GPSOffice object that can
+ * send a batch of packages without waiting for the office to accept the
+ * batches sent before it. The ForwardingEngine sends the batches of a lane
+ * through it one after the other and learns later, batch by batch and in the
+ * order they were sent, whether they were accepted.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public interface PipelinedLink {
+
+	/**
+	 * Interface of the object told whether a batch was accepted.
+	 */
+	public interface Completion {
+
+		/**
+		 * Function called when the office has accepted the batch, as
+		 * routeMessages() would have returned.
+		 */
+		public void completed();
+
+		/**
+		 * Function called when the batch was not accepted, as
+		 * routeMessages() would have thrown an exception.
+		 *
+		 * @param exc
+		 *            The reason.
+		 */
+		public void failed(Exception exc);
+	}
+
+	/**
+	 * Function that sends a batch of packages to the office, to be routed
+	 * exactly as by routeMessages(). The function may block while too many
+	 * batches wait to be accepted.
+	 *
+	 * @param packets
+	 *            Package objects that have to be delivered.
+	 * @param nodeListeners
+	 *            RemoteEventListener objects, one for each package in the same
+	 *            order.
+	 * @param completion
+	 *            Object told whether the batch was accepted.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the batch cannot be sent, in which case the
+	 *                completion is not called.
+	 */
+	public void pipeline(List<Package> packets,
+			List<RemoteEventListener<DeliveryEvent>> nodeListeners,
+			Completion completion) throws RemoteException;
+}
@@ -0,0 +1,154 @@
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import edu.rit.ds.registry.AlreadyBoundException;
+import edu.rit.ds.registry.NotBoundException;
+import edu.rit.ds.registry.RegistryEvent;
+import edu.rit.ds.registry.RegistryEventFilter;
+import edu.rit.ds.registry.RegistryEventListener;
+import edu.rit.ds.registry.RegistryProxy;
+
+/**
+ * Class RemoteRegistry is the OfficeRegistry of the Registry Server of the
+ * edu.rit.ds package, reached through a RegistryProxy. The listeners are
+ * adapted to RegistryEventListener objects exported to the Registry Server.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class RemoteRegistry implements OfficeRegistry {
+
+	/**
+	 * Instance of the RegistryProxy.
+	 */
+	private final RegistryProxy registry;
+
+	/**
+	 * Constructor that connects to the Registry Server.
+	 *
+	 * @param host
+	 *            Name of the host computer where the Registry Server is
+	 *            running.
+	 * @param port
+	 *            Port number to which the Registry Server is listening.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the Registry Server cannot be reached.
+	 */
+	public RemoteRegistry(String host, int port) throws RemoteException {
+		registry = new RegistryProxy(host, port);
+	}
+
+	/**
+	 * Function returning the object bound under a name in the Registry
+	 * Server.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 *
+	 * @return Object The object.
+	 *
+	 * @exception NotBoundException
+	 *                Thrown if no object is bound under the name.
+	 * @exception RemoteException
+	 *                Thrown if the Registry Server cannot be reached.
+	 */
+	public Object lookup(String name) throws RemoteException,
+			NotBoundException {
+		return registry.lookup(name);
+	}
+
+	/**
+	 * Function returning the names of the objects of a type bound in the
+	 * Registry Server.
+	 *
+	 * @param type
+	 *            Type of the objects.
+	 *
+	 * @return List<String> Names of the objects.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the Registry Server cannot be reached.
+	 */
+	public List<String> list(String type) throws RemoteException {
+		return registry.list(type);
+	}
+
+	/**
+	 * Function that binds an object under a name in the Registry Server.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 * @param object
+	 *            The object.
+	 *
+	 * @exception AlreadyBoundException
+	 *                Thrown if an object is already bound under the name.
+	 * @exception RemoteException
+	 *                Thrown if the Registry Server cannot be reached.
+	 */
+	public void bind(String name, Object object) throws RemoteException,
+			AlreadyBoundException {
+		registry.bind(name, object);
+	}
+
+	/**
+	 * Function that binds an object under a name in the Registry Server,
+	 * replacing the object bound under it if any.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 * @param object
+	 *            The object.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the Registry Server cannot be reached.
+	 */
+	public void rebind(String name, Object object) throws RemoteException {
+		registry.rebind(name, object);
+	}
+
+	/**
+	 * Function that unbinds the object bound under a name in the Registry
+	 * Server.
+	 *
+	 * @param name
+	 *            Name of the object.
+	 *
+	 * @exception NotBoundException
+	 *                Thrown if no object is bound under the name.
+	 * @exception RemoteException
+	 *                Thrown if the Registry Server cannot be reached.
+	 */
+	public void unbind(String name) throws RemoteException, NotBoundException {
+		registry.unbind(name);
+	}
+
+	/**
+	 * Function that adds a listener told when the objects of a type are bound
+	 * or unbound. The listener is wrapped in a RegistryEventListener that is
+	 * exported and added to the Registry Server with a filter on the type.
+	 *
+	 * @param type
+	 *            Type of the objects.
+	 * @param listener
+	 *            The listener.
+	 *
+	 * @exception RemoteException
+	 *                Thrown if the Registry Server cannot be reached.
+	 */
+	public void addListener(String type, final Listener listener)
+			throws RemoteException {
+		RegistryEventListener registryListener = new RegistryEventListener() {
+			public void report(long seqnum, RegistryEvent event) {
+				if (event.objectWasBound()) {
+					listener.bound(event.objectName());
+				} else if (event.objectWasUnbound()) {
+					listener.unbound(event.objectName());
+				}
+			}
+		};
+		UnicastRemoteObject.exportObject(registryListener, 0);
+		registry.addEventListener(registryListener, new RegistryEventFilter()
+				.reportType(type).reportBound().reportUnbound());
+	}
+}
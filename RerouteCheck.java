@@ -0,0 +1,167 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class RerouteCheck checks that an office failing once is routed around for
+ * a while and then used again. Three GPSOffice objects are started on a
+ * LocalRegistry, calling each other through RMI: Albany at (0,0), Buffalo at
+ * (10,0) and Chicago at (20,0). The first batch forwarded to Buffalo fails,
+ * as a lost connection or a refused batch would. A package sent from Albany
+ * to (11,0) must then go around Buffalo through Chicago while Buffalo is
+ * suspected, and once gps.suspectTime is over a second package must be sent
+ * from Albany straight to Buffalo again.
+ *
+ * The check prints every step and exits with status 1 on the first step that
+ * fails.
+ *
+ * Usage() : java RerouteCheck
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class RerouteCheck {
+
+	/**
+	 * Number of the batches to Buffalo that still have to fail.
+	 */
+	private static final AtomicInteger failures = new AtomicInteger(1);
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private RerouteCheck() {
+	}
+
+	/**
+	 * Main program of class RerouteCheck.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 0) {
+			usage();
+		}
+		// The offices must call each other through the transport that fails,
+		// not directly.
+		System.setProperty("gps.transport.direct", "false");
+		System.setProperty("gps.transitDelay", "0");
+		if (System.getProperty("gps.suspectTime") == null) {
+			System.setProperty("gps.suspectTime", "1000");
+		}
+		Transports.add(new Transport() {
+			public GPSInterface connect(GPSInterface reference) {
+				try {
+					return reference.getName().equals("Buffalo") ? failing(reference)
+							: null;
+				} catch (RemoteException exc) {
+					return null;
+				}
+			}
+		});
+
+		LocalRegistry registry = new LocalRegistry();
+		GPSOffice albany = new GPSOffice(registry, new String[] { "Albany",
+				"0", "0", "0" });
+		new GPSOffice(registry, new String[] { "Buffalo", "10", "0", "1" });
+		new GPSOffice(registry, new String[] { "Chicago", "20", "0", "2" });
+		registry.awaitListeners();
+
+		final BlockingQueue<DeliveryEvent> delivered = new LinkedBlockingQueue<DeliveryEvent>();
+		DeliveryListener nodeListener = new DeliveryListener() {
+			public void reportBatch(List<DeliveryEvent> events) {
+				for (DeliveryEvent event : events) {
+					report(0, event);
+				}
+			}
+
+			public void report(long seqnum, DeliveryEvent event) {
+				if (event.getStatus() == DeliveryEvent.DELIVERED
+						|| event.getStatus() == DeliveryEvent.LOST) {
+					delivered.add(event);
+				}
+			}
+		};
+		UnicastRemoteObject.exportObject(nodeListener, 0);
+
+		check("Buffalo is the next hop to (11,0)",
+				albany.getNextNeighbor(11, 0).equals("Buffalo"));
+		albany.routeMessage(albany.deliverPackage(11, 0), nodeListener);
+		DeliveryEvent event = delivered.poll(10, TimeUnit.SECONDS);
+		check("The first package is delivered by Buffalo through Chicago",
+				event != null && event.getStatus() == DeliveryEvent.DELIVERED
+						&& event.getOfficeId() == 1
+						&& failures.get() == 0);
+		check("Buffalo is passed over while it is suspected", albany
+				.getNextNeighbor(11, 0).equals("Chicago"));
+
+		Thread.sleep(GPSConfig.suspectTime() + 500);
+		check("Buffalo is the next hop again once it is no longer suspected",
+				albany.getNextNeighbor(11, 0).equals("Buffalo"));
+		albany.routeMessage(albany.deliverPackage(11, 0), nodeListener);
+		event = delivered.poll(10, TimeUnit.SECONDS);
+		check("The second package is delivered by Buffalo in one hop",
+				event != null && event.getStatus() == DeliveryEvent.DELIVERED
+						&& event.getOfficeId() == 1
+						&& event.getHops() == 1);
+		System.exit(0);
+	}
+
+	/**
+	 * Function returning an office whose first calls to routeMessage() or
+	 * routeMessages() fail, as counted by failures.
+	 *
+	 * @param office
+	 *            The office.
+	 *
+	 * @return GPSInterface The failing office.
+	 */
+	private static GPSInterface failing(final GPSInterface office) {
+		return (GPSInterface) Proxy.newProxyInstance(
+				GPSInterface.class.getClassLoader(),
+				new Class<?>[] { GPSInterface.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						if (method.getName().startsWith("routeMessage")
+								&& failures.get() > 0
+								&& failures.decrementAndGet() >= 0) {
+							throw new RemoteException("Connection lost");
+						}
+						try {
+							return method.invoke(office, args);
+						} catch (InvocationTargetException exc) {
+							throw exc.getCause();
+						}
+					}
+				});
+	}
+
+	/**
+	 * Function that prints a step of the check, and exits if it failed.
+	 *
+	 * @param step
+	 *            Description of the step.
+	 * @param passed
+	 *            True if the step passed.
+	 */
+	private static void check(String step, boolean passed) {
+		System.out.println((passed ? "PASS " : "FAIL ") + step);
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Function that prints the usage of the check and exits.
+	 */
+	public static void usage() {
+		String usageString = "\nUsage() : java RerouteCheck\n";
+		System.out.println(usageString);
+		System.exit(1);
+	}
+}
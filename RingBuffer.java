@@ -0,0 +1,135 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class RingBuffer is a bounded queue that any number of threads can add to
+ * and a single thread takes from, without taking any lock. Every slot of the
+ * buffer has a sequence number telling whether it is free for the producer of
+ * a given position or holds the element of that position for the consumer, so
+ * that producers only contend on the compareAndSet of the tail position.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ *
+ * @param <E>
+ *            Type of the elements of the buffer.
+ */
+public class RingBuffer<E> {
+
+	/**
+	 * Elements of the buffer.
+	 */
+	private final AtomicReferenceArray<E> elements;
+
+	/**
+	 * Sequence numbers of the slots of the buffer.
+	 */
+	private final AtomicLongArray sequences;
+
+	/**
+	 * Mask giving the slot of a position.
+	 */
+	private final int mask;
+
+	/**
+	 * Next position to be written by a producer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Next position to be read by the consumer. Only the consumer writes it.
+	 */
+	private volatile long head;
+
+	/**
+	 * Constructor that creates an empty buffer.
+	 *
+	 * @param capacity
+	 *            Capacity of the buffer, rounded up to a power of two.
+	 */
+	public RingBuffer(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		elements = new AtomicReferenceArray<E>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; ++i) {
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * Function that adds an element to the buffer if it is not full. It can be
+	 * called by any thread.
+	 *
+	 * @param element
+	 *            The element to be added.
+	 *
+	 * @return boolean True if the element was added, false if the buffer is
+	 *         full.
+	 */
+	public boolean offer(E element) {
+		while (true) {
+			long position = tail.get();
+			int slot = (int) position & mask;
+			long sequence = sequences.get(slot);
+			if (sequence == position) {
+				if (tail.compareAndSet(position, position + 1)) {
+					elements.lazySet(slot, element);
+					sequences.set(slot, position + 1);
+					return true;
+				}
+			} else if (sequence < position) {
+				// The consumer has not freed the slot yet.
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Function that moves up to max elements from the buffer into a list. It
+	 * must only be called by the consumer thread.
+	 *
+	 * @param batch
+	 *            The list the elements are added to.
+	 * @param max
+	 *            The largest number of elements to be moved.
+	 *
+	 * @return int The number of elements moved.
+	 */
+	public int drain(List<? super E> batch, int max) {
+		long position = head;
+		int count = 0;
+		while (count < max) {
+			int slot = (int) position & mask;
+			if (sequences.get(slot) != position + 1) {
+				break;
+			}
+			batch.add(elements.get(slot));
+			elements.lazySet(slot, null);
+			sequences.set(slot, position + mask + 1);
+			++position;
+			++count;
+		}
+		head = position;
+		return count;
+	}
+
+	/**
+	 * Function returning the number of elements in the buffer.
+	 *
+	 * @return int The number of elements.
+	 */
+	public int size() {
+		return (int) Math.max(0, tail.get() - head);
+	}
+
+	/**
+	 * Function returning the capacity of the buffer.
+	 *
+	 * @return int The capacity.
+	 */
+	public int capacity() {
+		return mask + 1;
+	}
+}
@@ -0,0 +1,119 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Class RollingFileEventSink writes the delivery notification of every event
+ * to a log file, one line per event. When the file grows past its maximum size
+ * it is renamed to <file>.1, the older files are shifted to <file>.2 and so on,
+ * the oldest one is deleted and a new file is started. The offices are named
+ * from the OfficeNames of the listener.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class RollingFileEventSink implements EventSink {
+
+	/**
+	 * The current log file.
+	 */
+	private final File file;
+
+	/**
+	 * Size in bytes after which the file is rolled.
+	 */
+	private final long maxSize;
+
+	/**
+	 * Number of old files kept.
+	 */
+	private final int maxFiles;
+
+	/**
+	 * Names of the offices by ID.
+	 */
+	private final OfficeNames names;
+
+	/**
+	 * Buffered writer on the current file.
+	 */
+	private Writer out;
+
+	/**
+	 * Number of bytes written to the current file.
+	 */
+	private long size;
+
+	/**
+	 * Constructor that opens the log file, appending to it if it exists.
+	 *
+	 * @param file
+	 *            The log file.
+	 * @param maxSize
+	 *            Size in bytes after which the file is rolled.
+	 * @param maxFiles
+	 *            Number of old files kept.
+	 * @param names
+	 *            Names of the offices by ID.
+	 *
+	 * @exception IOException
+	 *                Thrown if the file cannot be opened.
+	 */
+	public RollingFileEventSink(File file, long maxSize, int maxFiles,
+			OfficeNames names) throws IOException {
+		this.file = file;
+		this.maxSize = maxSize;
+		this.maxFiles = maxFiles;
+		this.names = names;
+		open();
+	}
+
+	public void write(List<DeliveryEvent> events) throws IOException {
+		for (int i = 0; i < events.size(); ++i) {
+			String line = events.get(i).getNotification(names);
+			out.write(line);
+			out.write('\n');
+			size += line.length() + 1;
+		}
+		out.flush();
+		if (size >= maxSize) {
+			roll();
+		}
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Function that opens the current log file.
+	 */
+	private void open() throws IOException {
+		size = file.length();
+		out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				file, true), "UTF-8"), 1 << 16);
+	}
+
+	/**
+	 * Function that shifts the old files and starts a new current file.
+	 */
+	private void roll() throws IOException {
+		out.close();
+		new File(file.getPath() + "." + maxFiles).delete();
+		for (int i = maxFiles - 1; i >= 1; --i) {
+			File older = new File(file.getPath() + "." + i);
+			if (older.exists()) {
+				older.renameTo(new File(file.getPath() + "." + (i + 1)));
+			}
+		}
+		if (maxFiles > 0) {
+			file.renameTo(new File(file.getPath() + ".1"));
+		} else {
+			file.delete();
+		}
+		open();
+	}
+}
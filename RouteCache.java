@@ -0,0 +1,265 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class RouteCache remembers the next hop a GPSOffice object chose for the
+ * destinations of each square cell of a grid, so that the packages to the same
+ * area do not recompute the distance to every neighbor.
+ *
+ * The cache takes no lock, as it is read for every package routed. It is a
+ * table of immutable entries in an AtomicReferenceArray, each cell having a
+ * single slot chosen by the hash of its key, so a cell replaces the cell
+ * that was in its slot. Every entry is stamped with the version of the
+ * neighbors it was computed for, and the whole cache is invalidated by
+ * moving to the next version when the neighbors of the office change, after
+ * which the older entries are no longer found.
+ *
+ * The next hop is the office nearest to the destination among the office and
+ * its neighbors, so the destinations sent to a given next hop form a convex
+ * region. A cell is therefore only cached when the same next hop is chosen at
+ * its four corners, in which case every destination in the cell has that next
+ * hop. Cells on the border between two next hops are remembered as ambiguous
+ * and always computed.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class RouteCache {
+
+	/**
+	 * Value stored for a cell whose corners have different next hops.
+	 */
+	public static final String AMBIGUOUS = new String("<ambiguous>");
+
+	/**
+	 * Key returned for a destination too far away to be in a cell, whose
+	 * next hop is always computed. It is not the key of any cell.
+	 */
+	public static final long NO_CELL = Long.MIN_VALUE;
+
+	/**
+	 * Bound of the absolute value of the indices of the cells, so that both
+	 * fit in 32 bits of a key and no key is NO_CELL.
+	 */
+	private static final double MAX_INDEX = 1 << 30;
+
+	/**
+	 * Side of a square cell.
+	 */
+	private final double cellSize;
+
+	/**
+	 * Slots of the cells, a power of two in number.
+	 */
+	private final AtomicReferenceArray<Entry> routes;
+
+	/**
+	 * Number of times the neighbors have changed, so that a next hop computed
+	 * before a change is not stored after it or found after it.
+	 */
+	private final AtomicLong version = new AtomicLong();
+
+	/**
+	 * Counters of the lookups.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor that creates an empty cache.
+	 *
+	 * @param cellSize
+	 *            Side of a square cell.
+	 * @param maxSize
+	 *            Largest number of cells remembered, rounded up to a power of
+	 *            two.
+	 */
+	public RouteCache(double cellSize, int maxSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException(
+					"RouteCache() : Invalid <cellSize>: " + cellSize);
+		}
+		if (maxSize < 1 || maxSize > 1 << 30) {
+			throw new IllegalArgumentException(
+					"RouteCache() : Invalid <maxSize>: " + maxSize);
+		}
+		this.cellSize = cellSize;
+		int slots = 1;
+		while (slots < maxSize) {
+			slots <<= 1;
+		}
+		this.routes = new AtomicReferenceArray<Entry>(slots);
+	}
+
+	/**
+	 * Function returning the key of the cell of a destination, made of the
+	 * indices of the cell along both axes. A destination whose indices do not
+	 * fit in 31 bits, or that is not a number, has no cell and gets NO_CELL,
+	 * so that it never shares a key with another cell.
+	 *
+	 * @param x
+	 *            X coordinate of the destination.
+	 * @param y
+	 *            Y coordinate of the destination.
+	 *
+	 * @return long The key of the cell, or NO_CELL.
+	 */
+	public long cell(double x, double y) {
+		double indexX = Math.floor(x / cellSize);
+		double indexY = Math.floor(y / cellSize);
+		if (!(Math.abs(indexX) < MAX_INDEX && Math.abs(indexY) < MAX_INDEX)) {
+			return NO_CELL;
+		}
+		long cellX = (long) indexX;
+		long cellY = (long) indexY;
+		return (cellX << 32) | (cellY & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Function returning the X coordinate of the lower left corner of a cell.
+	 *
+	 * @param cell
+	 *            The key of the cell.
+	 *
+	 * @return double The X coordinate.
+	 */
+	public double cellX(long cell) {
+		return (cell >> 32) * cellSize;
+	}
+
+	/**
+	 * Function returning the Y coordinate of the lower left corner of a cell.
+	 *
+	 * @param cell
+	 *            The key of the cell.
+	 *
+	 * @return double The Y coordinate.
+	 */
+	public double cellY(long cell) {
+		return ((int) cell) * cellSize;
+	}
+
+	/**
+	 * Function returning the side of a cell.
+	 *
+	 * @return double The cell size.
+	 */
+	public double getCellSize() {
+		return cellSize;
+	}
+
+	/**
+	 * Function returning the next hop of a cell, counting a hit if the cell
+	 * is cached with a single next hop and a miss otherwise.
+	 *
+	 * @param cell
+	 *            The key of the cell.
+	 *
+	 * @return String The next hop, AMBIGUOUS or null if the cell is not
+	 *         cached.
+	 */
+	public String get(long cell) {
+		Entry entry = routes.get(slot(cell));
+		String nextHop = entry != null && entry.cell == cell
+				&& entry.version == version.get() ? entry.nextHop : null;
+		if (nextHop == null || nextHop == AMBIGUOUS) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return nextHop;
+	}
+
+	/**
+	 * Function returning the current version of the cache, to be passed to
+	 * put() after computing a next hop.
+	 *
+	 * @return long The version.
+	 */
+	public long version() {
+		return version.get();
+	}
+
+	/**
+	 * Function that stores the next hop of a cell, unless the neighbors have
+	 * changed since the version was read.
+	 *
+	 * @param cell
+	 *            The key of the cell.
+	 * @param nextHop
+	 *            The next hop of the whole cell, or AMBIGUOUS.
+	 * @param version
+	 *            The version read before computing the next hop.
+	 */
+	public void put(long cell, String nextHop, long version) {
+		// An entry stored just after the version has moved on is never found.
+		if (this.version.get() == version) {
+			routes.set(slot(cell), new Entry(cell, nextHop, version));
+		}
+	}
+
+	/**
+	 * Function that clears the cache, to be called when the neighbors change.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Function returning the slot of a cell.
+	 */
+	private int slot(long cell) {
+		long hash = cell * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 32) & (routes.length() - 1);
+	}
+
+	/**
+	 * Function returning the number of lookups answered from the cache.
+	 *
+	 * @return long The number of hits.
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Function returning the number of lookups that had to be computed.
+	 *
+	 * @return long The number of misses.
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * Function returning the number of cells cached for the current
+	 * neighbors, counted over the whole table.
+	 *
+	 * @return int The number of cells.
+	 */
+	public int size() {
+		long current = version.get();
+		int size = 0;
+		for (int i = 0; i < routes.length(); ++i) {
+			Entry entry = routes.get(i);
+			if (entry != null && entry.version == current) {
+				++size;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * The next hop of a cell, computed for a version of the neighbors.
+	 */
+	private static final class Entry {
+		final long cell;
+		final String nextHop;
+		final long version;
+
+		Entry(long cell, String nextHop, long version) {
+			this.cell = cell;
+			this.nextHop = nextHop;
+			this.version = version;
+		}
+	}
+}
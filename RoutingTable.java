@@ -0,0 +1,653 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Class RoutingTable holds the routing decisions of a GPSOffice object: its
+ * neighbors, the offices nearest to it in the offices index and a few
+ * long-range shortcuts, the next hop of a
+ * package among them, the detour around a failed next hop and the route of a
+ * package when source routing is enabled. It does not call any other office,
+ * so the same decisions are taken by a GPSOffice object, which keeps its own
+ * offices index up to date from the registry, and by the Simulation, where the
+ * offices of a whole network share a single index.
+ *
+ * The shortcuts are drawn as in Kleinberg's small-world model: the length of
+ * a shortcut has a probability falling with its square, between the farthest
+ * nearest neighbor and the far corner of the map, which makes the length
+ * uniform over its logarithm. The shortcut goes to the office nearest to the
+ * point drawn. Every scale of distance then has about as many shortcuts, so a
+ * package greedily sent to the neighbor nearest to its destination halves the
+ * distance left every few hops and crosses a network of n offices in a number
+ * of hops polylogarithmic in n instead of one growing with the square root of
+ * n. The draws of an office are seeded by its name, so the shortcuts of any
+ * office can be computed again from the offices index.
+ *
+ * The neighbors are held in an immutable snapshot that is replaced as a whole
+ * whenever they change, so the packages are routed without any lock and
+ * without allocating while the neighbors are recomputed.
+ *
+ * An office that could not be reached is only suspected for a while rather
+ * than removed from the offices index: it is left out of the neighbors, which
+ * are replaced by the next nearest offices, until the time is over, and then
+ * it is a neighbor again. Only the office removed from the index is gone for
+ * good.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class RoutingTable {
+
+	/**
+	 * Number of nearest offices an office is connected to.
+	 */
+	private final int degree;
+
+	/**
+	 * Number of shortcuts an office keeps besides its nearest offices.
+	 */
+	private final int shortcuts;
+
+	/**
+	 * Name of the office.
+	 */
+	private final String name;
+
+	/**
+	 * Coordinates of the office.
+	 */
+	private final double X;
+	private final double Y;
+
+	/**
+	 * Spatial index over the coordinates of all the offices known to the
+	 * office, including itself.
+	 */
+	private final SpatialIndex offices;
+
+	/**
+	 * Latest snapshot of the neighbors.
+	 */
+	private volatile Neighbors neighbors = Neighbors.EMPTY;
+
+	/**
+	 * Map storing the names of the suspected offices to the time, as given
+	 * by System.nanoTime(), at which they stop being suspected.
+	 */
+	private final ConcurrentHashMap<String, Long> suspects = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Cache of the next hops of the destination cells, or null if the cache is
+	 * disabled.
+	 */
+	private final RouteCache routeCache;
+
+	/**
+	 * Constructor that creates the routing table of an office with the number
+	 * of neighbors and shortcuts set by the properties gps.neighbors and
+	 * gps.shortcuts. The neighbors are only computed by updateNeighbors().
+	 *
+	 * @param name
+	 *            Name of the office.
+	 * @param X
+	 *            X coordinate of the office.
+	 * @param Y
+	 *            Y coordinate of the office.
+	 * @param offices
+	 *            Spatial index over the offices known to the office, which
+	 *            must contain the office itself.
+	 * @param routeCache
+	 *            Cache of the next hops, or null for none.
+	 */
+	public RoutingTable(String name, double X, double Y, SpatialIndex offices,
+			RouteCache routeCache) {
+		this(name, X, Y, offices, routeCache, GPSConfig.neighbors(), GPSConfig
+				.shortcuts());
+	}
+
+	/**
+	 * Constructor that creates the routing table of an office. The neighbors
+	 * are only computed by updateNeighbors().
+	 *
+	 * @param name
+	 *            Name of the office.
+	 * @param X
+	 *            X coordinate of the office.
+	 * @param Y
+	 *            Y coordinate of the office.
+	 * @param offices
+	 *            Spatial index over the offices known to the office, which
+	 *            must contain the office itself.
+	 * @param routeCache
+	 *            Cache of the next hops, or null for none.
+	 * @param degree
+	 *            Number of nearest offices the office is connected to.
+	 * @param shortcuts
+	 *            Number of long-range shortcuts of the office.
+	 *
+	 * @exception IllegalArgumentException
+	 *                Thrown if the degree is not positive or the number of
+	 *                shortcuts is negative.
+	 */
+	public RoutingTable(String name, double X, double Y, SpatialIndex offices,
+			RouteCache routeCache, int degree, int shortcuts) {
+		if (degree < 1 || shortcuts < 0) {
+			throw new IllegalArgumentException("RoutingTable() : Invalid "
+					+ degree + " neighbors and " + shortcuts + " shortcuts");
+		}
+		this.name = name;
+		this.X = X;
+		this.Y = Y;
+		this.offices = offices;
+		this.routeCache = routeCache;
+		this.degree = degree;
+		this.shortcuts = shortcuts;
+	}
+
+	/**
+	 * Function returning the route cache, whose hit and miss counters tell how
+	 * well the cache works.
+	 *
+	 * @return RouteCache The route cache, or null if it is disabled.
+	 */
+	public RouteCache getRouteCache() {
+		return routeCache;
+	}
+
+	/**
+	 * Function returning the names of the neighbors, the nearest offices
+	 * first and then the shortcuts.
+	 *
+	 * @return List<String> The names of the neighbors.
+	 */
+	public List<String> getNeighbors() {
+		return new ArrayList<String>(Arrays.asList(current().names));
+	}
+
+	/**
+	 * Function returning the distance to the farthest of the nearest
+	 * neighbors. An office joining the network nearer than that becomes a
+	 * neighbor.
+	 *
+	 * @return double The distance, infinite while there are fewer offices
+	 *         than the number of nearest neighbors.
+	 */
+	public double getRadius() {
+		return neighbors.radius;
+	}
+
+	/**
+	 * Function returning true if an office is in the offices index.
+	 *
+	 * @param officeName
+	 *            Name of the office.
+	 *
+	 * @return boolean True if the office is known.
+	 */
+	public boolean knows(String officeName) {
+		return offices.get(officeName) != null;
+	}
+
+	/**
+	 * Function that suspects an office that could not be reached. It is left
+	 * out of the neighbors for a while, and is a neighbor again afterwards if
+	 * it is still in the offices index.
+	 *
+	 * @param officeName
+	 *            Name of the office.
+	 * @param millis
+	 *            Time in milliseconds the office is suspected.
+	 */
+	public void suspect(String officeName, long millis) {
+		suspects.put(officeName, System.nanoTime() + millis * 1000000L);
+		updateNeighbors();
+	}
+
+	/**
+	 * Function returning true if an office is suspected.
+	 *
+	 * @param officeName
+	 *            Name of the office.
+	 *
+	 * @return boolean True if the office is suspected.
+	 */
+	public boolean isSuspected(String officeName) {
+		Long until = suspects.get(officeName);
+		return until != null && System.nanoTime() - until < 0;
+	}
+
+	/**
+	 * Function returning the latest snapshot of the neighbors, computed again
+	 * first if an office it leaves out is no longer suspected.
+	 */
+	private Neighbors current() {
+		Neighbors current = neighbors;
+		if (current.suspected && System.nanoTime() - current.expires >= 0) {
+			updateNeighbors();
+			current = neighbors;
+		}
+		return current;
+	}
+
+	/**
+	 * Function that computes the neighbors for the current node and returns the
+	 * neighbor closest to the destination x and y coordinates.
+	 *
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 *
+	 * @return Name of the node which is near the destination.
+	 */
+	public String getNextNeighbor(double x, double y) {
+		current();
+		if (routeCache == null) {
+			return computeNextNeighbor(x, y);
+		}
+		long cell = routeCache.cell(x, y);
+		if (cell == RouteCache.NO_CELL) {
+			return computeNextNeighbor(x, y);
+		}
+		String nextHop = routeCache.get(cell);
+		if (nextHop != null && nextHop != RouteCache.AMBIGUOUS) {
+			return nextHop;
+		}
+		long version = routeCache.version();
+		String result = computeNextNeighbor(x, y);
+		if (nextHop == null) {
+			// Cache the next hop only if it is the same at the four corners
+			// of the cell, and thus everywhere in the cell.
+			double cellX = routeCache.cellX(cell);
+			double cellY = routeCache.cellY(cell);
+			double size = routeCache.getCellSize();
+			boolean unambiguous = result.equals(computeNextNeighbor(cellX,
+					cellY))
+					&& result.equals(computeNextNeighbor(cellX + size, cellY))
+					&& result.equals(computeNextNeighbor(cellX, cellY + size))
+					&& result.equals(computeNextNeighbor(cellX + size, cellY
+							+ size));
+			routeCache.put(cell, unambiguous ? result : RouteCache.AMBIGUOUS,
+					version);
+		}
+		return result;
+	}
+
+	/**
+	 * Function that returns the neighbor closest to the destination x and y
+	 * coordinates, or the current node if none is closer, without using the
+	 * route cache.
+	 *
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 *
+	 * @return Name of the node which is near the destination.
+	 */
+	private String computeNextNeighbor(double x, double y) {
+		// From all the current neighbors get the neighbor which is nearer to
+		// the destination than the node.
+		return nearestNeighbor(x, y, this.getDistance(X, x, Y, y), this.name);
+	}
+
+	/**
+	 * Function returning the neighbor nearest to the destination x and y
+	 * coordinates among those nearer than a given distance.
+	 *
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 * @param minDistance
+	 *            Distance a neighbor has to beat.
+	 * @param minNode
+	 *            Name returned if no neighbor beats the distance.
+	 *
+	 * @return String Name of the nearest neighbor, or minNode.
+	 */
+	private String nearestNeighbor(double x, double y, double minDistance,
+			String minNode) {
+		// The squared distances order the neighbors as the distances do.
+		Neighbors current = current();
+		double min = minDistance * minDistance;
+		for (int i = 0; i < current.names.length; ++i) {
+			double xDiff = x - current.x[i];
+			double yDiff = y - current.y[i];
+			double newDistance = xDiff * xDiff + yDiff * yDiff;
+			if (newDistance < min) {
+				min = newDistance;
+				minNode = current.names[i];
+			}
+		}
+		return minNode;
+	}
+
+	/**
+	 * Function returning the next hop of a package. It is the neighbor
+	 * nearest to the destination, or the office itself if none is nearer, in
+	 * which case the package is delivered. A package routed again after its
+	 * next hop failed, or reaching the office while a neighbor is suspected,
+	 * is sent on a detour through one of the remaining neighbors, even one
+	 * farther from the destination than the office, as long as the office is
+	 * not the nearest to the destination, see detour().
+	 *
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 * @param rerouted
+	 *            True if the package is routed again after its next hop
+	 *            failed.
+	 *
+	 * @return String The name of the next hop, the name of the office if the
+	 *         package is delivered, or null if there is no neighbor left to
+	 *         send the package to.
+	 */
+	public String nextHop(double x, double y, boolean rerouted) {
+		String destination = getNextNeighbor(x, y);
+		if (destination.equals(this.name)
+				&& (rerouted || current().suspected)) {
+			destination = detour(x, y);
+		}
+		return destination;
+	}
+
+	/**
+	 * Function returning the neighbor a package is sent to when no neighbor
+	 * is nearer to the destination than the current office but the current
+	 * office is not the office nearest to the destination, which happens
+	 * once the neighbor that led there has failed. A package on a detour does
+	 * not carry the failed office, so the neighbor taken is the one nearest
+	 * to the destination among those having a neighbor of their own nearer
+	 * to the destination than the current office. That neighbor then sends
+	 * the package on rather than back, and from there on every hop brings it
+	 * nearer than the current office. If no neighbor has one, the package is
+	 * delivered by the current office, the nearest office it can reach.
+	 *
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 *
+	 * @return String The name of the current office if it is the nearest to
+	 *         the destination or no neighbor leads nearer, otherwise the
+	 *         neighbor of the detour, or null if there is no neighbor.
+	 */
+	private String detour(double x, double y) {
+		// The suspected offices are passed over, so that the package stays
+		// with the current office rather than going around it towards an
+		// office that may have crashed.
+		for (SpatialIndex.Entry nearest : offices.nearest(x, y,
+				suspects.size() + 1, null)) {
+			if (nearest.name.equals(this.name)) {
+				return this.name;
+			}
+			if (!isSuspected(nearest.name)) {
+				break;
+			}
+		}
+		Neighbors current = current();
+		if (current.names.length == 0) {
+			return null;
+		}
+		double limit = getDistance(x, X, y, Y);
+		String minNode = this.name;
+		double minDistance = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < current.names.length; ++i) {
+			double distance = getDistance(x, current.x[i], y, current.y[i]);
+			if (distance < minDistance
+					&& leadsNearer(current.names[i], current.x[i],
+							current.y[i], x, y, limit)) {
+				minDistance = distance;
+				minNode = current.names[i];
+			}
+		}
+		return minNode;
+	}
+
+	/**
+	 * Function that tells whether an office has a neighbor nearer to a
+	 * destination than a given distance. The neighbors of the office are
+	 * taken as the offices nearest to it in the offices index, as the office
+	 * computes them, leaving out its shortcuts, which can only bring the
+	 * package nearer.
+	 *
+	 * @param officeName
+	 *            Name of the office.
+	 * @param officeX
+	 *            X-coordinate of the office.
+	 * @param officeY
+	 *            Y-coordinate of the office.
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 * @param limit
+	 *            Distance the neighbor has to beat.
+	 *
+	 * @return boolean True if a neighbor of the office is nearer.
+	 */
+	private boolean leadsNearer(String officeName, double officeX,
+			double officeY, double x, double y, double limit) {
+		for (SpatialIndex.Entry entry : offices.nearest(officeX, officeY,
+				degree, officeName)) {
+			if (getDistance(x, entry.x, y, entry.y) < limit) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Function that replaces the neighbors by the offices nearest to the
+	 * current office in the offices index and its shortcuts, leaving out the
+	 * suspected offices. It is called whenever an office is added to or
+	 * removed from the index, or is suspected. The updates are serialized so
+	 * that the snapshot published last is the one computed last.
+	 */
+	public synchronized void updateNeighbors() {
+		// Forget the offices no longer suspected.
+		long now = System.nanoTime();
+		long expires = now;
+		for (Map.Entry<String, Long> suspect : suspects.entrySet()) {
+			if (now - suspect.getValue() >= 0) {
+				suspects.remove(suspect.getKey(), suspect.getValue());
+			} else if (expires == now || suspect.getValue() - expires < 0) {
+				expires = suspect.getValue();
+			}
+		}
+		Set<String> excluded = suspects.keySet();
+		List<SpatialIndex.Entry> nearest = offices.nearest(X, Y, degree
+				+ excluded.size(), this.name);
+		if (!excluded.isEmpty()) {
+			List<SpatialIndex.Entry> trusted = new ArrayList<SpatialIndex.Entry>(
+					degree);
+			for (SpatialIndex.Entry entry : nearest) {
+				if (trusted.size() < degree && !excluded.contains(entry.name)) {
+					trusted.add(entry);
+				}
+			}
+			nearest = trusted;
+		}
+		double radius = Double.POSITIVE_INFINITY;
+		if (nearest.size() == degree) {
+			SpatialIndex.Entry farthest = nearest.get(degree - 1);
+			radius = getDistance(X, farthest.x, Y, farthest.y);
+		}
+		neighbors = new Neighbors(withShortcuts(this.name, X, Y, nearest,
+				excluded), radius, !excluded.isEmpty(), expires);
+		if (routeCache != null) {
+			routeCache.invalidate();
+		}
+	}
+
+	/**
+	 * Function returning the nearest offices of an office followed by its
+	 * shortcuts. An office has no shortcut while there are no more offices
+	 * than its nearest neighbors.
+	 *
+	 * @param officeName
+	 *            Name of the office.
+	 * @param x
+	 *            X coordinate of the office.
+	 * @param y
+	 *            Y coordinate of the office.
+	 * @param nearest
+	 *            The offices nearest to the office, nearest first.
+	 * @param excluded
+	 *            Names of the offices that cannot be shortcuts.
+	 *
+	 * @return List The nearest offices and the shortcuts.
+	 */
+	private List<SpatialIndex.Entry> withShortcuts(String officeName,
+			double x, double y, List<SpatialIndex.Entry> nearest,
+			Set<String> excluded) {
+		if (shortcuts == 0 || nearest.size() < degree) {
+			return nearest;
+		}
+		SpatialIndex.Entry farthest = nearest.get(nearest.size() - 1);
+		double inner = getDistance(x, farthest.x, y, farthest.y);
+		double outer = offices.reach(x, y);
+		if (!(inner > 0) || !(outer > inner)) {
+			return nearest;
+		}
+		List<SpatialIndex.Entry> result = new ArrayList<SpatialIndex.Entry>(
+				nearest);
+		Random random = new Random(officeName.hashCode());
+		// A draw landing on an office that is already a neighbor is drawn
+		// again, a few times at most.
+		for (int draw = 0; draw < 4 * shortcuts
+				&& result.size() < nearest.size() + shortcuts; ++draw) {
+			double length = inner * Math.pow(outer / inner, random.nextDouble());
+			double angle = 2 * Math.PI * random.nextDouble();
+			List<SpatialIndex.Entry> target = offices.nearest(x + length
+					* Math.cos(angle), y + length * Math.sin(angle), 1,
+					officeName);
+			if (!target.isEmpty() && !contains(result, target.get(0).name)
+					&& !excluded.contains(target.get(0).name)) {
+				result.add(target.get(0));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Function returning true if a list of offices holds an office.
+	 */
+	private static boolean contains(List<SpatialIndex.Entry> entries,
+			String officeName) {
+		for (SpatialIndex.Entry entry : entries) {
+			if (entry.name.equals(officeName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Function that computes the route of a package from the current office
+	 * over the offices index. Every office of the network is taken to be
+	 * connected to its nearest offices and to its shortcuts, as the offices
+	 * themselves are, and the route takes at every office the same decision
+	 * getNextNeighbor() would take there.
+	 *
+	 * @param x
+	 *            X-coordinate of the destination.
+	 * @param y
+	 *            Y-coordinate of the destination.
+	 *
+	 * @return String[] The names of the offices on the route, starting with
+	 *         the current office and ending with the delivering office.
+	 */
+	public String[] computeRoute(double x, double y) {
+		List<String> route = new ArrayList<String>();
+		String currentName = this.name;
+		double currentX = this.X;
+		double currentY = this.Y;
+		route.add(currentName);
+		// The distance to the destination decreases at every hop, so the
+		// route cannot be longer than the number of offices.
+		int maxLength = offices.size();
+		while (route.size() < maxLength) {
+			double minDistance = getDistance(currentX, x, currentY, y);
+			SpatialIndex.Entry next = null;
+			for (SpatialIndex.Entry entry : withShortcuts(currentName,
+					currentX, currentY, offices.nearest(currentX, currentY,
+							degree, currentName), Collections.<String> emptySet())) {
+				double distance = getDistance(entry.x, x, entry.y, y);
+				if (distance < minDistance) {
+					minDistance = distance;
+					next = entry;
+				}
+			}
+			if (next == null) {
+				break;
+			}
+			currentName = next.name;
+			currentX = next.x;
+			currentY = next.y;
+			route.add(currentName);
+		}
+		return route.toArray(new String[route.size()]);
+	}
+
+	/**
+	 * Immutable snapshot of the neighbors of an office, with their
+	 * coordinates in arrays parallel to their names, and the distance to the
+	 * farthest of the nearest neighbors. A snapshot leaving out suspected
+	 * offices expires when the first of them stops being suspected.
+	 */
+	private static final class Neighbors {
+		static final Neighbors EMPTY = new Neighbors(
+				new ArrayList<SpatialIndex.Entry>(0), Double.POSITIVE_INFINITY,
+				false, 0);
+
+		final String[] names;
+		final double[] x;
+		final double[] y;
+		final double radius;
+		final boolean suspected;
+		final long expires;
+
+		Neighbors(List<SpatialIndex.Entry> entries, double radius,
+				boolean suspected, long expires) {
+			this.radius = radius;
+			this.suspected = suspected;
+			this.expires = expires;
+			names = new String[entries.size()];
+			x = new double[entries.size()];
+			y = new double[entries.size()];
+			for (int i = 0; i < names.length; ++i) {
+				SpatialIndex.Entry entry = entries.get(i);
+				names[i] = entry.name;
+				x[i] = entry.x;
+				y[i] = entry.y;
+			}
+		}
+	}
+
+	/**
+	 * Computes the distance between two points.
+	 *
+	 * @param x1
+	 *            X-coordinate of the first point.
+	 * @param x2
+	 *            X-coordinate of the second point.
+	 * @param y1
+	 *            Y-coordinate of the first point.
+	 * @param y2
+	 *            Y-coordinate of the second point.
+	 *
+	 * @return Distance between the two points.
+	 */
+	double getDistance(double x1, double x2, double y1, double y2) {
+		double xDiff = x1 - x2;
+		double yDiff = y1 - y2;
+		return Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+	}
+}
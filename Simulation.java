@@ -0,0 +1,708 @@
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Class Simulation runs the routing of a GPS network as a discrete-event
+ * simulation on a virtual clock, without RMI and without threads, so that a
+ * day of traffic over a network of 100000 offices takes minutes rather than
+ * a day. Every office takes its decisions with a RoutingTable, as a GPSOffice
+ * object does: the next hop of every package, the detour around a failed next
+ * hop, the hop budget, and the neighbors and shortcuts recomputed when an
+ * office fails or comes back. The tracking numbers are made by a TrackingNumberGenerator on
+ * the virtual clock.
+ *
+ * The events are kept in a priority queue ordered by their virtual time, and
+ * the events of the same time in the order they were scheduled, so two runs
+ * with the same settings give the same results. A package is held by every
+ * office for the transit time, as set by gps.transitDelay, and crosses a link
+ * in no time.
+ *
+ * The offices of the simulation share a single offices index, so an office
+ * that fails is removed from the neighbors of all the offices at once: when a
+ * package is first forwarded to it, or after gps.sim.detection milliseconds
+ * (default 10000), the time the registry takes to unbind it. The packages
+ * held by an office that fails are lost. An office that comes back becomes a
+ * nearest neighbor of the offices it is near, but the shortcuts of the other
+ * offices are only drawn again when their neighbors change. The route cache
+ * is used if
+ * gps.sim.routeCache is set to true; it is off by default since every office
+ * of a large network would fill its own.
+ *
+ * Usage() : java Simulation <offices> <rate> <duration>
+ * <offices> : Topology file with one <name> <X> <Y> [<id>] office per line,
+ * or the number of offices placed at random.
+ * <rate> : Packages sent per second of virtual time.
+ * <duration> : Seconds of virtual time during which packages are sent.
+ *
+ * The property gps.sim.failures sets the number of offices that fail at
+ * random times while the packages are sent (default 0), gps.sim.downtime the
+ * time in milliseconds they stay down (default 60000) and gps.sim.seed the
+ * seed of the random choices (default 1). The number of nearest neighbors
+ * and of shortcuts of the offices are set by gps.neighbors and gps.shortcuts.
+ * A package delivered by an office that is not the office nearest to its
+ * destination, because greedy routing got stuck at an office none of whose
+ * neighbors is nearer, is counted as misdelivered.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class Simulation {
+
+	/**
+	 * Event of the simulation, run at a virtual time.
+	 */
+	private abstract static class Event implements Comparable<Event> {
+		long time;
+		long seq;
+
+		abstract void run();
+
+		public int compareTo(Event other) {
+			if (time != other.time) {
+				return time < other.time ? -1 : 1;
+			}
+			return seq < other.seq ? -1 : (seq == other.seq ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Simulated office.
+	 */
+	private class Office {
+		private final String name;
+		private final double x;
+		private final double y;
+		private final RoutingTable table;
+		private final TrackingNumberGenerator trackingNumbers;
+		private boolean up = true;
+
+		/**
+		 * Neighbors as last computed, shortcuts included, and the distance to
+		 * the farthest of the nearest ones, infinite while there are fewer
+		 * than the usual number.
+		 */
+		private List<String> neighbors = new ArrayList<String>(0);
+		private double radius = Double.POSITIVE_INFINITY;
+
+		private Office(String name, double x, double y, int officeId) {
+			this.name = name;
+			this.x = x;
+			this.y = y;
+			this.table = new RoutingTable(name, x, y, index, routeCache ? GPSOffice
+					.newRouteCache() : null, degree, shortcuts);
+			this.trackingNumbers = new TrackingNumberGenerator(officeId) {
+				protected long currentTimeMillis() {
+					return startTime + now;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Package in transit, the event of its next dispatch.
+	 */
+	private class Parcel extends Event {
+		private Office at;
+		private final double x;
+		private final double y;
+		private final long trackingNumber;
+		private final long created;
+		private int hops;
+		private boolean rerouted;
+
+		private Parcel(Office at, double x, double y) {
+			this.at = at;
+			this.x = x;
+			this.y = y;
+			this.trackingNumber = at.trackingNumbers.next();
+			this.created = now;
+		}
+
+		void run() {
+			dispatch(this);
+		}
+	}
+
+	/**
+	 * Offices index shared by all the offices.
+	 */
+	private final SpatialIndex index = new SpatialIndex(
+			GPSConfig.indexCellSize());
+
+	/**
+	 * Offices by name, and in the order they were added.
+	 */
+	private final HashMap<String, Office> offices = new HashMap<String, Office>();
+	private final List<Office> officeList = new ArrayList<Office>();
+
+	/**
+	 * Map storing the name of every office to the offices that have it as a
+	 * neighbor.
+	 */
+	private final HashMap<String, List<Office>> linkedFrom = new HashMap<String, List<Office>>();
+
+	/**
+	 * Events not yet run. Every package is held for the same transit time, so
+	 * most events are scheduled in the order of their time and are simply
+	 * appended to a FIFO queue; only the others go to the priority queue.
+	 */
+	private final ArrayDeque<Event> fifo = new ArrayDeque<Event>();
+	private final PriorityQueue<Event> queue = new PriorityQueue<Event>();
+
+	/**
+	 * Virtual time in milliseconds since the start of the simulation, the wall
+	 * clock time of the start, and the number of events scheduled so far.
+	 */
+	private long now;
+	private final long startTime;
+	private long seq;
+
+	/**
+	 * Settings of the simulation.
+	 */
+	private final long transitDelay = GPSConfig.transitDelay();
+	private final int maxHops = GPSConfig.maxHops();
+	private final long detection = GPSConfig.getInt("gps.sim.detection", 10000);
+	private final boolean routeCache = GPSConfig.getBoolean(
+			"gps.sim.routeCache", false);
+	private final int degree;
+	private final int shortcuts;
+
+	/**
+	 * Counters of the packages and of the hops.
+	 */
+	private long sent;
+	private long delivered;
+	private long misdelivered;
+	private long lost;
+	private long rerouted;
+	private long hops;
+	private long events;
+
+	/**
+	 * Delivery latency in milliseconds of virtual time and hop count of the
+	 * packages delivered.
+	 */
+	private final Histogram latency = new Histogram();
+	private final Histogram hopCounts = new Histogram();
+
+	/**
+	 * Constructor that creates an empty simulation whose offices have the
+	 * number of neighbors and shortcuts set by the properties gps.neighbors
+	 * and gps.shortcuts.
+	 *
+	 * @param startTime
+	 *            Wall clock time in milliseconds the virtual clock starts at.
+	 */
+	public Simulation(long startTime) {
+		this(startTime, GPSConfig.neighbors(), GPSConfig.shortcuts());
+	}
+
+	/**
+	 * Constructor that creates an empty simulation.
+	 *
+	 * @param startTime
+	 *            Wall clock time in milliseconds the virtual clock starts at.
+	 * @param degree
+	 *            Number of nearest offices every office is connected to.
+	 * @param shortcuts
+	 *            Number of long-range shortcuts of every office.
+	 */
+	public Simulation(long startTime, int degree, int shortcuts) {
+		this.startTime = startTime;
+		this.degree = degree;
+		this.shortcuts = shortcuts;
+	}
+
+	/**
+	 * Function that adds an office to the network. The neighbors of the
+	 * offices are only computed by connect().
+	 *
+	 * @param name
+	 *            Name of the office.
+	 * @param x
+	 *            X coordinate of the office.
+	 * @param y
+	 *            Y coordinate of the office.
+	 * @param officeId
+	 *            ID of the office used in the tracking numbers.
+	 */
+	public void addOffice(String name, double x, double y, int officeId) {
+		if (offices.containsKey(name)) {
+			throw new IllegalArgumentException("Simulation : <name> = \""
+					+ name + "\" already exists");
+		}
+		Office office = new Office(name, x, y, officeId);
+		offices.put(name, office);
+		officeList.add(office);
+		index.put(name, x, y);
+	}
+
+	/**
+	 * Function that adds offices named office0, office1 and so on, placed at
+	 * random over a square holding one office per 100 square units.
+	 *
+	 * @param count
+	 *            Number of offices.
+	 * @param random
+	 *            Source of the coordinates.
+	 *
+	 * @return double The side of the square.
+	 */
+	public double addRandomOffices(int count, Random random) {
+		double side = 10.0 * Math.sqrt(count);
+		for (int i = 0; i < count; ++i) {
+			addOffice("office" + i, random.nextDouble() * side,
+					random.nextDouble() * side, i
+							& TrackingNumberGenerator.MAX_OFFICE_ID);
+		}
+		return side;
+	}
+
+	/**
+	 * Function that computes the neighbors of every office.
+	 */
+	public void connect() {
+		for (Office office : officeList) {
+			refresh(office);
+		}
+	}
+
+	/**
+	 * Function returning the virtual time.
+	 *
+	 * @return long Milliseconds of virtual time since the start.
+	 */
+	public long now() {
+		return now;
+	}
+
+	/**
+	 * Function that schedules a task at a virtual time.
+	 *
+	 * @param time
+	 *            Virtual time of the task, not before the current time.
+	 * @param task
+	 *            The task.
+	 */
+	public void at(long time, final Runnable task) {
+		schedule(new Event() {
+			void run() {
+				task.run();
+			}
+		}, time);
+	}
+
+	/**
+	 * Function that hands a package to an office at the current virtual time.
+	 * The office holds it for the transit time and then routes it.
+	 *
+	 * @param origin
+	 *            Name of the office the package is sent from.
+	 * @param x
+	 *            X coordinate of the destination.
+	 * @param y
+	 *            Y coordinate of the destination.
+	 */
+	public void send(String origin, double x, double y) {
+		Office office = offices.get(origin);
+		++sent;
+		if (office == null || !office.up) {
+			++lost;
+			return;
+		}
+		schedule(new Parcel(office, x, y), now + transitDelay);
+	}
+
+	/**
+	 * Function that makes an office fail at the current virtual time. It is
+	 * removed from the neighbors of the other offices when a package is
+	 * first forwarded to it, or once the failure is detected.
+	 *
+	 * @param name
+	 *            Name of the office.
+	 */
+	public void fail(String name) {
+		final Office office = offices.get(name);
+		if (office == null || !office.up) {
+			return;
+		}
+		office.up = false;
+		at(now + detection, new Runnable() {
+			public void run() {
+				if (!office.up) {
+					remove(office);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Function that brings back an office that failed, as if it were bound in
+	 * the registry again. It becomes a neighbor of the offices it is now
+	 * nearer to than one of their neighbors.
+	 *
+	 * @param name
+	 *            Name of the office.
+	 */
+	public void recover(String name) {
+		Office office = offices.get(name);
+		if (office == null || office.up) {
+			return;
+		}
+		office.up = true;
+		if (index.get(name) != null) {
+			return;
+		}
+		index.put(name, office.x, office.y);
+		refresh(office);
+		double maxRadius = 0;
+		for (Office other : officeList) {
+			if (other.up) {
+				maxRadius = Math.max(maxRadius, other.radius);
+			}
+		}
+		// Look at the offices in order of distance until they are farther
+		// away than any office looks for its neighbors.
+		for (int k = 32;; k *= 4) {
+			List<SpatialIndex.Entry> nearest = index.nearest(office.x,
+					office.y, k, name);
+			for (SpatialIndex.Entry entry : nearest) {
+				Office other = offices.get(entry.name);
+				if (distance(other, office) <= other.radius) {
+					refresh(other);
+				}
+			}
+			if (nearest.size() < k
+					|| distance(offices.get(nearest.get(k - 1).name), office) > maxRadius) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Function that runs the events up to a virtual time.
+	 *
+	 * @param until
+	 *            Virtual time of the last events run, Long.MAX_VALUE to run
+	 *            until no event is left.
+	 */
+	public void run(long until) {
+		while (true) {
+			Event event = fifo.peekFirst();
+			Event other = queue.peek();
+			if (event == null || (other != null && other.compareTo(event) < 0)) {
+				event = other;
+			}
+			if (event == null || event.time > until) {
+				return;
+			}
+			if (event == other) {
+				queue.poll();
+			} else {
+				fifo.pollFirst();
+			}
+			now = event.time;
+			++events;
+			event.run();
+		}
+	}
+
+	/**
+	 * Function that routes a package once its transit time at an office is
+	 * over, as GPSOffice.dispatch() does: the package is delivered if the
+	 * office is the nearest to its destination, lost if it has used up its
+	 * hop budget or has no way left, and otherwise forwarded to the next hop,
+	 * or routed again at once if the next hop has failed.
+	 */
+	private void dispatch(Parcel parcel) {
+		Office office = parcel.at;
+		if (!office.up) {
+			++lost;
+			return;
+		}
+		while (true) {
+			String destination = office.table.nextHop(parcel.x, parcel.y,
+					parcel.rerouted);
+			if (destination == null) {
+				++lost;
+				return;
+			}
+			if (destination.equals(office.name)) {
+				++delivered;
+				if (!index.nearest(parcel.x, parcel.y).name.equals(office.name)) {
+					++misdelivered;
+				}
+				latency.record(now - parcel.created);
+				hopCounts.record(parcel.hops);
+				return;
+			}
+			if (parcel.hops >= maxHops) {
+				++lost;
+				return;
+			}
+			Office next = offices.get(destination);
+			++parcel.hops;
+			++hops;
+			if (next.up) {
+				parcel.at = next;
+				parcel.rerouted = false;
+				schedule(parcel, now + transitDelay);
+				return;
+			}
+			// The next hop has failed. Remove it and route the package again
+			// through the best of the remaining neighbors.
+			++rerouted;
+			parcel.rerouted = true;
+			remove(next);
+		}
+	}
+
+	/**
+	 * Function that removes an office from the offices index and recomputes
+	 * the neighbors of the offices it was a neighbor of.
+	 */
+	private void remove(Office office) {
+		if (!index.remove(office.name)) {
+			return;
+		}
+		List<Office> dependents = linkedFrom.remove(office.name);
+		if (dependents != null) {
+			for (Office dependent : new ArrayList<Office>(dependents)) {
+				refresh(dependent);
+			}
+		}
+	}
+
+	/**
+	 * Function that recomputes the neighbors of an office and keeps track of
+	 * the offices they are neighbors of.
+	 */
+	private void refresh(Office office) {
+		for (String neighbor : office.neighbors) {
+			List<Office> dependents = linkedFrom.get(neighbor);
+			if (dependents != null) {
+				dependents.remove(office);
+			}
+		}
+		office.table.updateNeighbors();
+		office.neighbors = office.table.getNeighbors();
+		office.radius = office.table.getRadius();
+		for (String neighbor : office.neighbors) {
+			List<Office> dependents = linkedFrom.get(neighbor);
+			if (dependents == null) {
+				dependents = new ArrayList<Office>(4);
+				linkedFrom.put(neighbor, dependents);
+			}
+			dependents.add(office);
+		}
+	}
+
+	/**
+	 * Function returning the distance between two offices.
+	 */
+	private static double distance(Office a, Office b) {
+		double xDiff = a.x - b.x;
+		double yDiff = a.y - b.y;
+		return Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+	}
+
+	/**
+	 * Function that puts an event in the queue.
+	 */
+	private void schedule(Event event, long time) {
+		event.time = time;
+		event.seq = seq++;
+		Event last = fifo.peekLast();
+		if (last == null || last.time <= time) {
+			fifo.addLast(event);
+		} else {
+			queue.add(event);
+		}
+	}
+
+	/**
+	 * Function returning the number of packages delivered, misdelivered ones
+	 * included.
+	 *
+	 * @return long The number of packages delivered.
+	 */
+	public long getDelivered() {
+		return delivered;
+	}
+
+	/**
+	 * Function returning the number of packages delivered by an office that
+	 * is not the office nearest to their destination.
+	 *
+	 * @return long The number of packages misdelivered.
+	 */
+	public long getMisdelivered() {
+		return misdelivered;
+	}
+
+	/**
+	 * Function returning the hop counts of the packages delivered.
+	 *
+	 * @return Histogram The hop counts.
+	 */
+	public Histogram getHopCounts() {
+		return hopCounts;
+	}
+
+	/**
+	 * Function returning the mean number of neighbors of the offices,
+	 * shortcuts included.
+	 *
+	 * @return double The mean number of neighbors.
+	 */
+	public double getMeanNeighbors() {
+		long links = 0;
+		for (Office office : officeList) {
+			links += office.neighbors.size();
+		}
+		return officeList.isEmpty() ? 0 : (double) links / officeList.size();
+	}
+
+	/**
+	 * Function that prints the figures of the simulation.
+	 *
+	 * @param wallNanos
+	 *            Wall clock time the simulation took in nanoseconds.
+	 */
+	public void printReport(long wallNanos) {
+		double seconds = wallNanos / 1e9;
+		System.out.println("Offices : " + officeList.size());
+		System.out.println(String.format(Locale.ROOT,
+				"Virtual time : %.1f s in %.1f s, %.0f times real time",
+				now / 1e3, seconds, now / 1e3 / seconds));
+		System.out.println("Packages sent : " + sent);
+		System.out.println("Packages delivered : " + delivered);
+		System.out.println("Packages misdelivered : " + misdelivered);
+		System.out.println("Packages lost : " + lost);
+		System.out.println("Packages unfinished : "
+				+ (sent - delivered - lost));
+		System.out.println("Packages rerouted : " + rerouted);
+		System.out.println(String.format(Locale.ROOT,
+				"Hops : %d, %.0f hops/s, %.0f events/s", hops, hops / seconds,
+				events / seconds));
+		System.out.println("Latency (ms) : " + latency);
+		System.out.println("Hop count : " + hopCounts);
+	}
+
+	/**
+	 * Main program of class Simulation.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			usage();
+		}
+		double rate = GPSOffice.parseDouble(args[1], "rate");
+		double duration = GPSOffice.parseDouble(args[2], "duration");
+		final Random random = new Random(GPSConfig.getInt("gps.sim.seed", 1));
+		final Simulation simulation = new Simulation(System.currentTimeMillis());
+
+		// Place the offices, from the topology file or at random over a
+		// square holding one office per 100 square units.
+		long setup = System.nanoTime();
+		if (new File(args[0]).isFile()) {
+			int officeId = 0;
+			for (String[] office : LoadTest.readTopology(args[0])) {
+				simulation.addOffice(office[0], GPSOffice.parseDouble(
+						office[1], "X"), GPSOffice.parseDouble(office[2], "Y"),
+						office.length == 4 ? GPSOffice.parseInt(office[3], "id")
+								: officeId++ & TrackingNumberGenerator.MAX_OFFICE_ID);
+			}
+		} else {
+			simulation.addRandomOffices(GPSOffice.parseInt(args[0], "offices"),
+					random);
+		}
+		if (simulation.officeList.isEmpty() || !(rate > 0)) {
+			usage();
+		}
+		simulation.connect();
+		System.out.println(String.format(Locale.ROOT,
+				"Network built in %.1f s", (System.nanoTime() - setup) / 1e9));
+
+		// Destinations are drawn from the rectangle around the offices.
+		double minX = Double.MAX_VALUE;
+		double minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE;
+		double maxY = -Double.MAX_VALUE;
+		for (Office office : simulation.officeList) {
+			minX = Math.min(minX, office.x);
+			minY = Math.min(minY, office.y);
+			maxX = Math.max(maxX, office.x);
+			maxY = Math.max(maxY, office.y);
+		}
+
+		// Send the packages with exponential times between them, and fail
+		// the offices at random times.
+		final long end = (long) (duration * 1000);
+		final double meanInterval = 1000 / rate;
+		final double x0 = minX;
+		final double y0 = minY;
+		final double width = maxX - minX;
+		final double height = maxY - minY;
+		simulation.at(0, new Runnable() {
+			private double time;
+
+			public void run() {
+				// Every package due before the next millisecond is sent now.
+				while (time < simulation.now() + 1) {
+					Office origin = simulation.officeList.get(random
+							.nextInt(simulation.officeList.size()));
+					simulation.send(origin.name,
+							x0 + random.nextDouble() * width, y0
+									+ random.nextDouble() * height);
+					time -= meanInterval * Math.log(1 - random.nextDouble());
+				}
+				if ((long) time < end) {
+					simulation.at((long) time, this);
+				}
+			}
+		});
+		int failures = GPSConfig.getInt("gps.sim.failures", 0);
+		final long downtime = GPSConfig.getInt("gps.sim.downtime", 60000);
+		for (int i = 0; i < failures; ++i) {
+			final String name = simulation.officeList.get(random
+					.nextInt(simulation.officeList.size())).name;
+			long time = (long) (random.nextDouble() * end);
+			simulation.at(time, new Runnable() {
+				public void run() {
+					simulation.fail(name);
+				}
+			});
+			simulation.at(time + downtime, new Runnable() {
+				public void run() {
+					simulation.recover(name);
+				}
+			});
+		}
+
+		long start = System.nanoTime();
+		simulation.run(Long.MAX_VALUE);
+		simulation.printReport(System.nanoTime() - start);
+	}
+
+	/**
+	 * Function that prints the usage of the simulation and exits.
+	 */
+	public static void usage() {
+		String usageString = "\nUsage() : java Simulation <offices> <rate> "
+				+ "<duration>\n";
+		usageString += "<offices> : Topology file with one <name> <X> <Y>"
+				+ " [<id>] office per line, or the number of offices placed"
+				+ " at random.\n";
+		usageString += "<rate> : Packages sent per second of virtual time.\n";
+		usageString += "<duration> : Seconds of virtual time during which"
+				+ " packages are sent.\n";
+		System.out.println(usageString);
+		System.exit(1);
+	}
+}
@@ -0,0 +1,476 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Class SpatialIndex is a uniform grid over the coordinates of the GPSOffice
+ * objects. Every office is stored in the square cell its coordinates fall in,
+ * so offices can be added and removed in constant time as they join and leave
+ * the registry. Nearest office queries search the cells in rings of growing
+ * size around the query point and stop as soon as no closer office can exist
+ * in the rings that are left, so only the offices near the query point are
+ * looked at.
+ *
+ * All the functions of the class are synchronized so that the index can be
+ * updated by the registry event thread while the RMI threads are routing.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class SpatialIndex {
+
+	/**
+	 * Entry of the index storing the name and the coordinates of an office.
+	 */
+	public static class Entry {
+
+		/**
+		 * Name of the office.
+		 */
+		public final String name;
+
+		/**
+		 * X coordinate of the office.
+		 */
+		public final double x;
+
+		/**
+		 * Y coordinate of the office.
+		 */
+		public final double y;
+
+		/**
+		 * Constructor that initializes the properties of the entry.
+		 *
+		 * @param name
+		 *            Name of the office.
+		 * @param x
+		 *            X coordinate of the office.
+		 * @param y
+		 *            Y coordinate of the office.
+		 */
+		public Entry(String name, double x, double y) {
+			this.name = name;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/**
+	 * Side of a square cell of the grid.
+	 */
+	private final double cellSize;
+
+	/**
+	 * Map storing the cell key to the entries in the cell.
+	 */
+	private final CellMap cells;
+
+	/**
+	 * HashMap storing the name of an office to its entry.
+	 */
+	private final HashMap<String, Entry> entries;
+
+	/**
+	 * Bounds of the cells that have ever been occupied. They are not shrunk
+	 * when offices leave, which only makes the search look at a few more
+	 * empty cells.
+	 */
+	private int minCellX = Integer.MAX_VALUE;
+	private int maxCellX = Integer.MIN_VALUE;
+	private int minCellY = Integer.MAX_VALUE;
+	private int maxCellY = Integer.MIN_VALUE;
+
+	/**
+	 * Constructor that creates an empty index.
+	 *
+	 * @param cellSize
+	 *            Side of a square cell of the grid. A cell size close to the
+	 *            average distance between neighboring offices works best.
+	 *
+	 * @exception IllegalArgumentException
+	 *                Thrown if the cell size is not positive.
+	 */
+	public SpatialIndex(double cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException(
+					"SpatialIndex() : Invalid <cellSize>: " + cellSize);
+		}
+		this.cellSize = cellSize;
+		this.cells = new CellMap();
+		this.entries = new HashMap<String, Entry>();
+	}
+
+	/**
+	 * Function that adds an office to the index. If an office with the same
+	 * name is already present it is replaced.
+	 *
+	 * @param name
+	 *            Name of the office.
+	 * @param x
+	 *            X coordinate of the office.
+	 * @param y
+	 *            Y coordinate of the office.
+	 */
+	public synchronized void put(String name, double x, double y) {
+		remove(name);
+		Entry entry = new Entry(name, x, y);
+		int cellX = cell(x);
+		int cellY = cell(y);
+		long key = key(cellX, cellY);
+		ArrayList<Entry> cell = cells.get(key);
+		if (cell == null) {
+			cell = new ArrayList<Entry>(4);
+			cells.put(key, cell);
+		}
+		cell.add(entry);
+		entries.put(name, entry);
+		minCellX = Math.min(minCellX, cellX);
+		maxCellX = Math.max(maxCellX, cellX);
+		minCellY = Math.min(minCellY, cellY);
+		maxCellY = Math.max(maxCellY, cellY);
+	}
+
+	/**
+	 * Function that removes an office from the index.
+	 *
+	 * @param name
+	 *            Name of the office.
+	 *
+	 * @return boolean True if the office was present in the index.
+	 */
+	public synchronized boolean remove(String name) {
+		Entry entry = entries.remove(name);
+		if (entry == null) {
+			return false;
+		}
+		long key = key(cell(entry.x), cell(entry.y));
+		ArrayList<Entry> cell = cells.get(key);
+		cell.remove(entry);
+		if (cell.isEmpty()) {
+			cells.remove(key);
+		}
+		return true;
+	}
+
+	/**
+	 * Function returning the entry of an office.
+	 *
+	 * @param name
+	 *            Name of the office.
+	 *
+	 * @return Entry The entry of the office or null if it is not present.
+	 */
+	public synchronized Entry get(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * Function returning the number of offices in the index.
+	 *
+	 * @return int The number of offices.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Function returning the distance from a point to the farthest corner of
+	 * the cells that have ever been occupied, which no office of the index is
+	 * farther than.
+	 *
+	 * @param x
+	 *            X coordinate of the point.
+	 * @param y
+	 *            Y coordinate of the point.
+	 *
+	 * @return double The distance, or 0 if the index has always been empty.
+	 */
+	public synchronized double reach(double x, double y) {
+		if (minCellX > maxCellX) {
+			return 0;
+		}
+		double xDiff = Math.max(Math.abs(x - minCellX * cellSize),
+				Math.abs(x - (maxCellX + 1.0) * cellSize));
+		double yDiff = Math.max(Math.abs(y - minCellY * cellSize),
+				Math.abs(y - (maxCellY + 1.0) * cellSize));
+		return Math.sqrt(xDiff * xDiff + yDiff * yDiff);
+	}
+
+	/**
+	 * Function returning the office nearest to the given point.
+	 *
+	 * @param x
+	 *            X coordinate of the point.
+	 * @param y
+	 *            Y coordinate of the point.
+	 *
+	 * @return Entry The nearest office or null if the index is empty.
+	 */
+	public synchronized Entry nearest(double x, double y) {
+		List<Entry> result = nearest(x, y, 1, null);
+		return result.isEmpty() ? null : result.get(0);
+	}
+
+	/**
+	 * Function returning the k offices nearest to the given point, nearest
+	 * first.
+	 *
+	 * @param x
+	 *            X coordinate of the point.
+	 * @param y
+	 *            Y coordinate of the point.
+	 * @param k
+	 *            Number of offices to return.
+	 * @param exclude
+	 *            Name of an office that must not be returned, or null.
+	 *
+	 * @return List The nearest offices, fewer than k if the index does not
+	 *         hold enough offices.
+	 */
+	public synchronized List<Entry> nearest(double x, double y, int k,
+			String exclude) {
+		Entry[] best = new Entry[k];
+		double[] bestDistance = new double[k];
+		int found = 0;
+		if (k <= 0 || entries.isEmpty()) {
+			return new ArrayList<Entry>(0);
+		}
+		int cellX = cell(x);
+		int cellY = cell(y);
+		int maxRing = Math.max(Math.max(cellX - minCellX, maxCellX - cellX),
+				Math.max(cellY - minCellY, maxCellY - cellY));
+		for (int ring = 0; ring <= maxRing; ++ring) {
+			// Once a ring has more cells than there are occupied cells it is
+			// cheaper to look at the occupied cells that are left directly.
+			if (8L * ring > cells.size()) {
+				for (int slot = 0; slot < cells.capacity(); ++slot) {
+					ArrayList<Entry> cell = cells.cellAt(slot);
+					if (cell == null) {
+						continue;
+					}
+					long key = cells.keyAt(slot);
+					int keyX = (int) (key >> 32);
+					int keyY = (int) key;
+					if (Math.max(Math.abs(keyX - cellX),
+							Math.abs(keyY - cellY)) >= ring) {
+						found = collect(cell, x, y, exclude, best,
+								bestDistance, found);
+					}
+				}
+				break;
+			}
+			for (int i = -ring; i <= ring; ++i) {
+				found = collect(cells.get(key(cellX + i, cellY - ring)), x, y,
+						exclude, best, bestDistance, found);
+				if (ring > 0) {
+					found = collect(cells.get(key(cellX + i, cellY + ring)),
+							x, y, exclude, best, bestDistance, found);
+				}
+			}
+			for (int j = -ring + 1; j <= ring - 1; ++j) {
+				found = collect(cells.get(key(cellX - ring, cellY + j)), x, y,
+						exclude, best, bestDistance, found);
+				found = collect(cells.get(key(cellX + ring, cellY + j)), x, y,
+						exclude, best, bestDistance, found);
+			}
+			// Every office outside the rings searched so far is at least as
+			// far from the point as the nearest side of the square they
+			// cover.
+			if (found == k) {
+				double margin = Math.min(Math.min(x - (cellX - ring)
+						* cellSize, (cellX + ring + 1) * cellSize - x), Math
+						.min(y - (cellY - ring) * cellSize, (cellY + ring + 1)
+								* cellSize - y));
+				if (bestDistance[k - 1] <= margin * margin) {
+					break;
+				}
+			}
+		}
+		List<Entry> result = new ArrayList<Entry>(found);
+		for (int i = 0; i < found; ++i) {
+			result.add(best[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Function that inserts the entries of a cell into the sorted array of
+	 * the nearest entries found so far, with their squared distances, which
+	 * order them as the distances do.
+	 *
+	 * @return int The number of entries in the array after the insertion.
+	 */
+	private static int collect(ArrayList<Entry> cell, double x, double y,
+			String exclude, Entry[] best, double[] bestDistance, int found) {
+		if (cell == null) {
+			return found;
+		}
+		for (int c = 0; c < cell.size(); ++c) {
+			Entry entry = cell.get(c);
+			if (exclude != null && exclude.equals(entry.name)) {
+				continue;
+			}
+			double xDiff = entry.x - x;
+			double yDiff = entry.y - y;
+			double distance = xDiff * xDiff + yDiff * yDiff;
+			if (found == best.length && distance >= bestDistance[found - 1]) {
+				continue;
+			}
+			int i = found < best.length ? found++ : found - 1;
+			while (i > 0 && bestDistance[i - 1] > distance) {
+				best[i] = best[i - 1];
+				bestDistance[i] = bestDistance[i - 1];
+				--i;
+			}
+			best[i] = entry;
+			bestDistance[i] = distance;
+		}
+		return found;
+	}
+
+	/**
+	 * Function returning the cell index of a coordinate.
+	 */
+	private int cell(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	/**
+	 * Function returning the key of a cell in the cells map, the X index in
+	 * the high half and the Y index in the low half.
+	 */
+	private static long key(int cellX, int cellY) {
+		return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Map storing the key of a cell to the entries in the cell, with open
+	 * addressing over arrays of primitive keys, so that looking a cell up
+	 * neither boxes its key nor follows a chain of nodes. It is only used
+	 * under the lock of the index.
+	 */
+	private static final class CellMap {
+
+		/**
+		 * Keys of the cells and the entries in the cells, null for a free
+		 * slot. The capacity is a power of two at least twice the number of
+		 * cells.
+		 */
+		private long[] keys = new long[16];
+		private ArrayList<?>[] cells = new ArrayList<?>[16];
+		private int size;
+
+		/**
+		 * Function returning the slot a key is first looked for in.
+		 */
+		private int home(long key) {
+			return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32)
+					& (keys.length - 1);
+		}
+
+		/**
+		 * Function returning the slot of a key, or the free slot it would go
+		 * in.
+		 */
+		private int find(long key) {
+			int mask = keys.length - 1;
+			int slot = home(key);
+			while (cells[slot] != null && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Function returning the entries in a cell, or null if the cell is
+		 * empty.
+		 */
+		@SuppressWarnings("unchecked")
+		ArrayList<Entry> get(long key) {
+			return (ArrayList<Entry>) cells[find(key)];
+		}
+
+		/**
+		 * Function that stores the entries of a cell.
+		 */
+		void put(long key, ArrayList<Entry> cell) {
+			int slot = find(key);
+			if (cells[slot] == null) {
+				++size;
+			}
+			keys[slot] = key;
+			cells[slot] = cell;
+			if (2 * size > keys.length) {
+				long[] oldKeys = keys;
+				ArrayList<?>[] oldCells = cells;
+				keys = new long[2 * oldKeys.length];
+				cells = new ArrayList<?>[2 * oldKeys.length];
+				for (int i = 0; i < oldKeys.length; ++i) {
+					if (oldCells[i] != null) {
+						int newSlot = find(oldKeys[i]);
+						keys[newSlot] = oldKeys[i];
+						cells[newSlot] = oldCells[i];
+					}
+				}
+			}
+		}
+
+		/**
+		 * Function that removes a cell. The cells after it in the same run of
+		 * slots are moved back so that no lookup stops short of them.
+		 */
+		void remove(long key) {
+			int mask = keys.length - 1;
+			int slot = find(key);
+			if (cells[slot] == null) {
+				return;
+			}
+			--size;
+			int next = slot;
+			while (true) {
+				next = (next + 1) & mask;
+				if (cells[next] == null) {
+					break;
+				}
+				int home = home(keys[next]);
+				// Move the cell back unless its home is after the free slot
+				// in the run, cyclically.
+				if (((next - home) & mask) >= ((next - slot) & mask)) {
+					keys[slot] = keys[next];
+					cells[slot] = cells[next];
+					slot = next;
+				}
+			}
+			cells[slot] = null;
+		}
+
+		/**
+		 * Function returning the number of cells.
+		 */
+		int size() {
+			return size;
+		}
+
+		/**
+		 * Function returning the number of slots, to go through the cells.
+		 */
+		int capacity() {
+			return keys.length;
+		}
+
+		/**
+		 * Function returning the key in a slot.
+		 */
+		long keyAt(int slot) {
+			return keys[slot];
+		}
+
+		/**
+		 * Function returning the entries in a slot, or null if it is free.
+		 */
+		@SuppressWarnings("unchecked")
+		ArrayList<Entry> cellAt(int slot) {
+			return (ArrayList<Entry>) cells[slot];
+		}
+	}
+}
@@ -0,0 +1,102 @@
+import java.util.List;
+import edu.rit.ds.registry.NotBoundException;
+import edu.rit.ds.registry.RegistryProxy;
+
+/**
+ * Class Tracker queries the Headquarters about the packages in the GPS Office
+ * system, through the TrackingInterface bound in the registry.
+ * 
+ * Usage() : java Tracker <host> <port> <trackingNumber> 
+ * Usage() : java Tracker <host> <port> -list <status> [<max>] 
+ * <host> : Name of the host computer where the Registry Server is running. 
+ * <port> : Port number to which the Registry Server is listening. 
+ * <trackingNumber> : Tracking number of the package to look up. 
+ * <status> : transit, delivered or lost. 
+ * <max> : Largest number of packages listed, default 100.
+ */
+public class Tracker {
+
+	/**
+	 * Main program of class Tracker.
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			usage();
+		}
+		String host = args[0];
+		int port = Customer.parseInteger(args[1], "port");
+		RegistryProxy registry = new RegistryProxy(host, port);
+		TrackingInterface tracking;
+		try {
+			tracking = (TrackingInterface) registry.lookup(System.getProperty(
+					"gps.hq.name", "Headquarters"));
+		} catch (NotBoundException exc) {
+			System.err.println("No Headquarters registered");
+			System.exit(1);
+			return;
+		}
+
+		if (args[2].equals("-list")) {
+			if (args.length < 4) {
+				usage();
+			}
+			int status = parseStatus(args[3]);
+			int max = args.length > 4 ? Customer.parseInteger(args[4], "max")
+					: 100;
+			List<PackageStatus> packages = tracking.listPackages(status, max);
+			for (PackageStatus packageStatus : packages) {
+				System.out.println(packageStatus);
+			}
+			System.out.println(packages.size() + " of "
+					+ tracking.countPackages(status) + " packages "
+					+ PackageStatus.statusName(status));
+		} else {
+			long trackingNumber;
+			try {
+				trackingNumber = Long.parseLong(args[2]);
+			} catch (NumberFormatException exc) {
+				throw new IllegalArgumentException("<trackingNumber> = "
+						+ args[2] + " : Is not a Long");
+			}
+			PackageStatus packageStatus = tracking.getPackage(trackingNumber);
+			System.out.println(packageStatus == null ? "Package number "
+					+ trackingNumber + " is not known" : packageStatus);
+		}
+	}
+
+	/**
+	 * Function returning the status code of a status name.
+	 */
+	private static int parseStatus(String status) {
+		if (status.equals("transit")) {
+			return PackageStatus.IN_TRANSIT;
+		} else if (status.equals("delivered")) {
+			return PackageStatus.DELIVERED;
+		} else if (status.equals("lost")) {
+			return PackageStatus.LOST;
+		}
+		throw new IllegalArgumentException("<status> = " + status
+				+ " : Is not transit, delivered or lost");
+	}
+
+	/**
+	 * Function that returns a string that tells the user how the program is
+	 * expected to be compiled and also explains what each command line argument
+	 * stands for.
+	 */
+	public static void usage() {
+		String usageString = "\nUsage() : java Tracker <host> <port> "
+				+ "<trackingNumber>\n";
+		usageString += "Usage() : java Tracker <host> <port> -list "
+				+ "<status> [<max>]\n";
+		usageString += "<host> : Name of the host computer where"
+				+ " the Registry Server is running.\n";
+		usageString += "<port> : Port number to which the"
+				+ " Registry Server is listening.\n";
+		usageString += "<trackingNumber> : Tracking number of the package.\n";
+		usageString += "<status> : transit, delivered or lost.\n";
+		usageString += "<max> : Largest number of packages listed.\n";
+		System.out.println(usageString);
+		System.exit(1);
+	}
+}
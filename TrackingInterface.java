@@ -0,0 +1,58 @@
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * The Java RMI remote interface through which the Headquarters answers
+ * queries about the packages it has seen.
+ * 
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ * 
+ */
+public interface TrackingInterface extends Remote {
+
+	/**
+	 * Remote function that returns the status of a package.
+	 * 
+	 * @param trackingNumber
+	 *            Tracking number of the package.
+	 * 
+	 * @return PackageStatus The status of the package, or null if the package
+	 *         is not known or has been evicted.
+	 * 
+	 * @exception RemoteException
+	 *                thrown if a remote error is encountered.
+	 */
+	public PackageStatus getPackage(long trackingNumber)
+			throws RemoteException;
+
+	/**
+	 * Remote function that lists the packages with a given status.
+	 * 
+	 * @param status
+	 *            Status code of the packages, see class PackageStatus.
+	 * @param max
+	 *            Largest number of packages returned.
+	 * 
+	 * @return List The status of the packages.
+	 * 
+	 * @exception RemoteException
+	 *                thrown if a remote error is encountered.
+	 */
+	public List<PackageStatus> listPackages(int status, int max)
+			throws RemoteException;
+
+	/**
+	 * Remote function that counts the packages with a given status.
+	 * 
+	 * @param status
+	 *            Status code of the packages, see class PackageStatus.
+	 * 
+	 * @return int The number of packages.
+	 * 
+	 * @exception RemoteException
+	 *                thrown if a remote error is encountered.
+	 */
+	public int countPackages(int status) throws RemoteException;
+
+}
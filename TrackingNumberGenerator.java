@@ -0,0 +1,165 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class TrackingNumberGenerator generates the tracking numbers of the packages
+ * created by a GPSOffice object. A tracking number is a positive 64 bit
+ * number made of the time in milliseconds since 2020-01-01 (35 bits), the ID
+ * of the office (17 bits, for up to 131072 offices) and a sequence number
+ * within the millisecond (11 bits), so that two offices with different IDs
+ * never create the same number and one office can create 2048 numbers per
+ * millisecond, two million per second.
+ *
+ * The time wraps around every 397 days, so a tracking number is unique among
+ * the numbers created within that time, which is far longer than a package is
+ * kept by the offices or the Headquarters. The time a number was created at
+ * is found back from the current time, see timeOf().
+ *
+ * The time and the sequence number are kept together in a single AtomicLong
+ * that is advanced with compareAndSet, so no lock is taken. When the sequence
+ * of the current millisecond is used up the generator moves on to the next
+ * millisecond, running ahead of the clock for a moment rather than waiting
+ * for it, and the time never goes back even if the clock does.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class TrackingNumberGenerator {
+
+	/**
+	 * Time in milliseconds of 2020-01-01 00:00:00 UTC, from which the time of
+	 * a tracking number is counted.
+	 */
+	private static final long EPOCH = 1577836800000L;
+
+	/**
+	 * Number of bits of the office ID and of the sequence number.
+	 */
+	private static final int OFFICE_BITS = 17;
+	private static final int SEQUENCE_BITS = 11;
+
+	/**
+	 * Number of bits of the time, the rest of the 63 bits of a positive long.
+	 */
+	private static final int TIME_BITS = 63 - OFFICE_BITS - SEQUENCE_BITS;
+
+	/**
+	 * Largest office ID.
+	 */
+	public static final int MAX_OFFICE_ID = (1 << OFFICE_BITS) - 1;
+
+	/**
+	 * Mask of the sequence number.
+	 */
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	/**
+	 * Mask of the time.
+	 */
+	private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+
+	/**
+	 * ID of the office shifted into place.
+	 */
+	private final long office;
+
+	/**
+	 * Time and sequence number of the last tracking number, as the time
+	 * shifted left by SEQUENCE_BITS plus the sequence number.
+	 */
+	private final AtomicLong last = new AtomicLong();
+
+	/**
+	 * Constructor that creates a generator for an office.
+	 *
+	 * @param officeId
+	 *            ID of the office, from 0 to MAX_OFFICE_ID.
+	 *
+	 * @exception IllegalArgumentException
+	 *                Thrown if the office ID is out of range.
+	 */
+	public TrackingNumberGenerator(int officeId) {
+		if (officeId < 0 || officeId > MAX_OFFICE_ID) {
+			throw new IllegalArgumentException(
+					"TrackingNumberGenerator() : Invalid <officeId>: "
+							+ officeId);
+		}
+		this.office = (long) officeId << SEQUENCE_BITS;
+	}
+
+	/**
+	 * Function returning an office ID derived from the name of an office. It
+	 * is the ID of the offices that are not part of a network, such as the
+	 * offices of the benchmarks, and the first ID tried by an office started
+	 * without one. Offices whose names hash to the same ID would create the
+	 * same tracking numbers, so an office of a network moves on to the next
+	 * free ID, see GPSOffice.
+	 *
+	 * @param name
+	 *            Name of the office.
+	 *
+	 * @return int The office ID.
+	 */
+	public static int officeId(String name) {
+		int hash = name.hashCode();
+		return (hash ^ (hash >>> OFFICE_BITS)) & MAX_OFFICE_ID;
+	}
+
+	/**
+	 * Function returning a new tracking number.
+	 *
+	 * @return long The tracking number.
+	 */
+	public long next() {
+		long now = (currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+		while (true) {
+			long previous = last.get();
+			long next = now > previous ? now : previous + 1;
+			if (last.compareAndSet(previous, next)) {
+				long time = (next >>> SEQUENCE_BITS) & TIME_MASK;
+				return (time << (OFFICE_BITS + SEQUENCE_BITS)) | office
+						| (next & SEQUENCE_MASK);
+			}
+		}
+	}
+
+	/**
+	 * Function returning the current time in milliseconds.
+	 *
+	 * @return long The current time.
+	 */
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Function returning the time in milliseconds a tracking number was
+	 * created at. As the time of a tracking number wraps around, it is taken
+	 * as the latest time before the current time that matches it, or slightly
+	 * after the current time for a number created while its generator was
+	 * running ahead of the clock.
+	 *
+	 * @param trackingNumber
+	 *            The tracking number.
+	 *
+	 * @return long The time the tracking number was created at.
+	 */
+	public static long timeOf(long trackingNumber) {
+		long now = System.currentTimeMillis();
+		long time = trackingNumber >>> (OFFICE_BITS + SEQUENCE_BITS);
+		long age = (now - EPOCH - time) & TIME_MASK;
+		// An age close to the whole range is a time slightly in the future.
+		return age > TIME_MASK - 60000 ? now + (TIME_MASK + 1 - age)
+				: now - age;
+	}
+
+	/**
+	 * Function returning the ID of the office that created a tracking number.
+	 *
+	 * @param trackingNumber
+	 *            The tracking number.
+	 *
+	 * @return int The office ID.
+	 */
+	public static int officeOf(long trackingNumber) {
+		return (int) (trackingNumber >>> SEQUENCE_BITS) & MAX_OFFICE_ID;
+	}
+}
@@ -0,0 +1,528 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Class TransitLog is the write-ahead log of the packages held by a GPSOffice
+ * object. Every package accepted by the office is appended to the log before
+ * the office acknowledges it, and the office appends an acknowledgement once
+ * the package has been handed to the next hop, delivered or lost. When the
+ * office is restarted the log is replayed and the packages that were never
+ * acknowledged are routed again.
+ *
+ * The log is a series of memory-mapped segment files. A record is written by
+ * copying it into the mapped segment, so it survives the death of the process
+ * as soon as it is appended, and a single thread flushes the segment to the
+ * disk every sync interval for all the records appended in the meantime. If
+ * sync writes are asked for, an append waits for the flush that covers it.
+ *
+ * When a segment is full a new one is started with a copy of the packages not
+ * yet acknowledged, after which the older segments are deleted, so the log
+ * never holds more than about one segment plus the packages in transit.
+ *
+ * A record is made of its length, its type and its data. The length is
+ * written last, so a record cut short by a crash is read as the end of the
+ * log.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class TransitLog {
+
+	/**
+	 * Types of the records. The packages of the logs written before the
+	 * length of a route was written as an int are still replayed, as records
+	 * of type ACCEPTED_SHORT_ROUTE. A record of type ACCEPTED_BATCH holds the
+	 * number of packages of a batch followed by the packages, so that a batch
+	 * is logged all at once or not at all.
+	 */
+	private static final byte ACCEPTED_SHORT_ROUTE = 1;
+	private static final byte ACKNOWLEDGED = 2;
+	private static final byte ACCEPTED = 3;
+	private static final byte ACCEPTED_BATCH = 4;
+
+	/**
+	 * Prefix and suffix of the names of the segment files.
+	 */
+	private static final String PREFIX = "transit-";
+	private static final String SUFFIX = ".log";
+
+	/**
+	 * Directory of the segment files.
+	 */
+	private final File directory;
+
+	/**
+	 * Size in bytes of a segment.
+	 */
+	private final int segmentSize;
+
+	/**
+	 * True if an append waits until its record is flushed to the disk.
+	 */
+	private final boolean syncWrites;
+
+	/**
+	 * Time in milliseconds between two flushes.
+	 */
+	private final long syncInterval;
+
+	/**
+	 * Sequence number of the current segment.
+	 */
+	private long segmentNumber;
+
+	/**
+	 * The current segment, mapped in memory.
+	 */
+	private MappedByteBuffer segment;
+
+	/**
+	 * Number of records appended and number of records flushed.
+	 */
+	private long appended;
+	private long flushed;
+
+	/**
+	 * Map storing the tracking number of a package not yet acknowledged to the
+	 * package and the number of times it is held by the office.
+	 */
+	private final HashMap<Long, Pending> pending = new HashMap<Long, Pending>();
+
+	/**
+	 * Packages found in the log when it was opened.
+	 */
+	private final List<Package> recovered = new ArrayList<Package>();
+
+	/**
+	 * Buffer the records are encoded in before they are copied to the
+	 * segment.
+	 */
+	private final Scratch scratch = new Scratch();
+	private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+
+	/**
+	 * Thread flushing the segments.
+	 */
+	private final Thread flusher;
+
+	/**
+	 * Set when the log is closed.
+	 */
+	private boolean closed;
+
+	/**
+	 * Constructor that opens the log in a directory, reading the packages not
+	 * yet acknowledged from the segments already there.
+	 *
+	 * @param directory
+	 *            Directory of the segment files, created if needed.
+	 * @param segmentSize
+	 *            Size in bytes of a segment.
+	 * @param syncInterval
+	 *            Time in milliseconds between two flushes.
+	 * @param syncWrites
+	 *            True if an append waits until its record is flushed.
+	 *
+	 * @exception IOException
+	 *                Thrown if the log cannot be read or created.
+	 */
+	public TransitLog(File directory, int segmentSize, long syncInterval,
+			boolean syncWrites) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("TransitLog() : Cannot create directory "
+					+ directory);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.syncInterval = syncInterval;
+		this.syncWrites = syncWrites;
+
+		// Replay the segments in order and start a new one with the packages
+		// not yet acknowledged.
+		File[] files = segments();
+		for (File file : files) {
+			replay(file);
+		}
+		segmentNumber = files.length == 0 ? 0 : number(files[files.length - 1]);
+		for (Pending entry : pending.values()) {
+			for (int i = 0; i < entry.count; ++i) {
+				recovered.add(entry.packet);
+			}
+		}
+		rotate(0);
+
+		flusher = new Thread(new Runnable() {
+			public void run() {
+				flush();
+			}
+		}, "TransitLog");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Function returning the packages that were in transit when the log was
+	 * last closed or the office died.
+	 *
+	 * @return List The packages to be routed again.
+	 */
+	public List<Package> getRecovered() {
+		return new ArrayList<Package>(recovered);
+	}
+
+	/**
+	 * Function that appends a package accepted by the office.
+	 *
+	 * @param packet
+	 *            The package.
+	 *
+	 * @exception IOException
+	 *                Thrown if the record cannot be written.
+	 */
+	public void accepted(Package packet) throws IOException {
+		long sequence;
+		synchronized (this) {
+			scratch.reset();
+			scratchOut.writeByte(ACCEPTED);
+			packet.writeTo(scratchOut);
+			sequence = append();
+			hold(packet);
+		}
+		if (syncWrites) {
+			awaitFlush(sequence);
+		}
+	}
+
+	/**
+	 * Function that appends a batch of packages accepted by the office
+	 * together, in a single record. If the record cannot be written none of
+	 * the packages is logged.
+	 *
+	 * @param packets
+	 *            The packages.
+	 *
+	 * @exception IOException
+	 *                Thrown if the record cannot be written.
+	 */
+	public void accepted(List<Package> packets) throws IOException {
+		if (packets.size() == 1) {
+			accepted(packets.get(0));
+			return;
+		}
+		long sequence;
+		synchronized (this) {
+			scratch.reset();
+			scratchOut.writeByte(ACCEPTED_BATCH);
+			scratchOut.writeInt(packets.size());
+			for (Package packet : packets) {
+				packet.writeTo(scratchOut);
+			}
+			sequence = append();
+			for (Package packet : packets) {
+				hold(packet);
+			}
+		}
+		if (syncWrites) {
+			awaitFlush(sequence);
+		}
+	}
+
+	/**
+	 * Function that counts a package as held once more until it is
+	 * acknowledged.
+	 *
+	 * @param packet
+	 *            The package.
+	 */
+	private void hold(Package packet) {
+		Pending entry = pending.get(packet.getTrackingNumber());
+		if (entry == null) {
+			pending.put(packet.getTrackingNumber(), new Pending(packet));
+		} else {
+			entry.packet = packet;
+			++entry.count;
+		}
+	}
+
+	/**
+	 * Function that appends the acknowledgement of a package handed to the
+	 * next hop, delivered or lost. The acknowledgement is not waited for,
+	 * since a package acknowledged late is at worst routed twice.
+	 *
+	 * @param packet
+	 *            The package.
+	 *
+	 * @exception IOException
+	 *                Thrown if the record cannot be written.
+	 */
+	public synchronized void acknowledged(Package packet) throws IOException {
+		Pending entry = pending.get(packet.getTrackingNumber());
+		if (entry == null) {
+			return;
+		}
+		if (--entry.count == 0) {
+			pending.remove(packet.getTrackingNumber());
+		}
+		scratch.reset();
+		scratchOut.writeByte(ACKNOWLEDGED);
+		scratchOut.writeLong(packet.getTrackingNumber());
+		append();
+	}
+
+	/**
+	 * Function returning the number of packages not yet acknowledged.
+	 *
+	 * @return int The number of packages.
+	 */
+	public synchronized int size() {
+		int count = 0;
+		for (Pending entry : pending.values()) {
+			count += entry.count;
+		}
+		return count;
+	}
+
+	/**
+	 * Function that flushes the log and stops its flusher thread.
+	 *
+	 * @exception InterruptedException
+	 *                Thrown if the calling thread is interrupted.
+	 */
+	public void close() throws InterruptedException {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		flusher.join();
+		synchronized (this) {
+			segment.force();
+		}
+	}
+
+	/**
+	 * Function that copies the record in the scratch buffer to the segment,
+	 * starting a new segment if it does not fit.
+	 *
+	 * @return long The sequence number of the record.
+	 */
+	private long append() throws IOException {
+		int length = scratch.size();
+		if (segment.remaining() < length + 8) {
+			rotate(length + 8);
+		}
+		int position = segment.position();
+		segment.position(position + 4);
+		segment.put(scratch.buffer(), 0, length);
+		segment.putInt(position, length);
+		return ++appended;
+	}
+
+	/**
+	 * Function that starts a new segment holding the packages not yet
+	 * acknowledged and deletes the older segments.
+	 *
+	 * @param reserve
+	 *            Number of bytes needed in the new segment besides the
+	 *            packages.
+	 */
+	private void rotate(int reserve) throws IOException {
+		// Encode the packages first so that the segment is large enough.
+		Scratch snapshot = new Scratch();
+		DataOutputStream snapshotOut = new DataOutputStream(snapshot);
+		for (Pending entry : pending.values()) {
+			for (int i = 0; i < entry.count; ++i) {
+				int start = snapshot.size();
+				snapshotOut.writeInt(0);
+				snapshotOut.writeByte(ACCEPTED);
+				entry.packet.writeTo(snapshotOut);
+				snapshot.patchInt(start, snapshot.size() - start - 4);
+			}
+		}
+		int size = Math.max(segmentSize, 2 * (snapshot.size() + reserve) + 8);
+
+		if (segment != null) {
+			segment.force();
+		}
+		++segmentNumber;
+		File file = new File(directory, String.format("%s%016d%s", PREFIX,
+				segmentNumber, SUFFIX));
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(size);
+			segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+					size);
+		} finally {
+			raf.close();
+		}
+		segment.put(snapshot.buffer(), 0, snapshot.size());
+		segment.force();
+
+		// The new segment now holds everything still needed.
+		for (File old : segments()) {
+			if (number(old) < segmentNumber) {
+				old.delete();
+			}
+		}
+	}
+
+	/**
+	 * Function that reads the records of a segment into the pending
+	 * packages.
+	 */
+	private void replay(File file) throws IOException {
+		ByteBuffer buffer;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+					raf.length());
+		} finally {
+			raf.close();
+		}
+		while (buffer.remaining() >= 4) {
+			int length = buffer.getInt();
+			if (length <= 0 || length > buffer.remaining()) {
+				break;
+			}
+			byte[] record = new byte[length];
+			buffer.get(record);
+			DataInputStream in = new DataInputStream(
+					new ByteArrayInputStream(record));
+			byte type = in.readByte();
+			if (type == ACCEPTED || type == ACCEPTED_SHORT_ROUTE) {
+				hold(type == ACCEPTED ? Package.readFrom(in) : Package
+						.readShortRouteFrom(in));
+			} else if (type == ACCEPTED_BATCH) {
+				for (int count = in.readInt(); count > 0; --count) {
+					hold(Package.readFrom(in));
+				}
+			} else if (type == ACKNOWLEDGED) {
+				long trackingNumber = in.readLong();
+				Pending entry = pending.get(trackingNumber);
+				if (entry != null && --entry.count == 0) {
+					pending.remove(trackingNumber);
+				}
+			} else {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Function run by the flusher thread, flushing the current segment
+	 * whenever records have been appended, at most once every sync interval.
+	 */
+	private void flush() {
+		while (true) {
+			long target;
+			MappedByteBuffer current;
+			synchronized (this) {
+				while (!closed && appended == flushed) {
+					try {
+						wait(syncInterval);
+					} catch (InterruptedException exc) {
+						return;
+					}
+				}
+				if (closed) {
+					return;
+				}
+				target = appended;
+				current = segment;
+			}
+			// The records before the current segment were flushed when it
+			// was started.
+			current.force();
+			synchronized (this) {
+				flushed = Math.max(flushed, target);
+				notifyAll();
+			}
+			try {
+				Thread.sleep(syncInterval);
+			} catch (InterruptedException exc) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Function that waits until a record has been flushed.
+	 */
+	private synchronized void awaitFlush(long sequence) throws IOException {
+		while (flushed < sequence && !closed) {
+			try {
+				wait();
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new IOException("TransitLog : Interrupted while syncing");
+			}
+		}
+	}
+
+	/**
+	 * Function returning the segment files of the directory in order.
+	 */
+	private File[] segments() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return new File[0];
+		}
+		List<File> segments = new ArrayList<File>();
+		for (File file : files) {
+			if (file.getName().startsWith(PREFIX)
+					&& file.getName().endsWith(SUFFIX)) {
+				segments.add(file);
+			}
+		}
+		File[] result = segments.toArray(new File[segments.size()]);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Function returning the sequence number of a segment file.
+	 */
+	private static long number(File file) {
+		String name = file.getName();
+		return Long.parseLong(name.substring(PREFIX.length(), name.length()
+				- SUFFIX.length()));
+	}
+
+	/**
+	 * A package not yet acknowledged and the number of times it is held.
+	 */
+	private static class Pending {
+		Package packet;
+		int count = 1;
+
+		Pending(Package packet) {
+			this.packet = packet;
+		}
+	}
+
+	/**
+	 * ByteArrayOutputStream giving access to its buffer.
+	 */
+	private static class Scratch extends ByteArrayOutputStream {
+		byte[] buffer() {
+			return buf;
+		}
+
+		void patchInt(int position, int value) {
+			buf[position] = (byte) (value >>> 24);
+			buf[position + 1] = (byte) (value >>> 16);
+			buf[position + 2] = (byte) (value >>> 8);
+			buf[position + 3] = (byte) value;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+/**
+ * Interface Transport is a way of reaching a GPSOffice object other than
+ * through its RMI stub. When an office is looked up, the transports of class
+ * Transports are asked in turn for a GPSInterface reaching it, and the stub is
+ * only used if none of them can reach the office.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public interface Transport {
+
+	/**
+	 * Function returning a GPSInterface that reaches an office through this
+	 * transport.
+	 *
+	 * @param reference
+	 *            Object reference to the office as looked up in the registry.
+	 *
+	 * @return GPSInterface The office through this transport, or null if the
+	 *         transport cannot reach it.
+	 */
+	public GPSInterface connect(GPSInterface reference);
+}
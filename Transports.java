@@ -0,0 +1,69 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Class Transports chooses how a GPSOffice object looked up in a registry is
+ * reached. The transports are asked in turn and the first one that can reach
+ * the office is used; if none can, the office is reached through its RMI stub
+ * as looked up. By default the offices exported by the same JVM are called
+ * directly through the DirectTransport, which the property
+ * gps.transport.direct set to false turns off. The offices named by the
+ * property gps.nio.links are then reached through the NioTransport if they
+ * have a NIO endpoint.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public final class Transports {
+
+	/**
+	 * Transports asked in turn, before falling back to RMI.
+	 */
+	private static final List<Transport> transports = new CopyOnWriteArrayList<Transport>();
+
+	static {
+		if (GPSConfig.getBoolean("gps.transport.direct", true)) {
+			transports.add(new DirectTransport());
+		}
+		if (GPSConfig.nioLinks().length() > 0) {
+			transports.add(new NioTransport(GPSConfig.nioLinks()));
+		}
+	}
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private Transports() {
+	}
+
+	/**
+	 * Function that adds a transport, asked after the transports added
+	 * before it.
+	 *
+	 * @param transport
+	 *            The transport.
+	 */
+	public static void add(Transport transport) {
+		transports.add(transport);
+	}
+
+	/**
+	 * Function returning the GPSInterface through which an office looked up in
+	 * a registry is reached.
+	 *
+	 * @param reference
+	 *            Object reference to the office as looked up in the registry.
+	 *
+	 * @return GPSInterface The office through the first transport that can
+	 *         reach it, or the reference itself.
+	 */
+	public static GPSInterface connect(Object reference) {
+		GPSInterface office = (GPSInterface) reference;
+		for (Transport transport : transports) {
+			GPSInterface connected = transport.connect(office);
+			if (connected != null) {
+				return connected;
+			}
+		}
+		return office;
+	}
+}
@@ -0,0 +1,120 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Class VirtualThreads creates the threads that handle packages, forward them
+ * and notify the listeners. When the property gps.virtualThreads is set and
+ * the Java runtime has virtual threads (Java 21 or later) every task gets its
+ * own virtual thread, so thousands of packages can wait in blocking calls at
+ * the same time. Otherwise the usual pools of platform threads are used.
+ *
+ * The virtual threads are reached through reflection so that the programs
+ * still compile and run on older runtimes.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public final class VirtualThreads {
+
+	/**
+	 * Method Executors.newVirtualThreadPerTaskExecutor(), or null if the
+	 * runtime has no virtual threads.
+	 */
+	private static final Method NEW_EXECUTOR = findExecutorFactory();
+
+	/**
+	 * True if the virtual threads are used.
+	 */
+	private static final boolean ENABLED = checkEnabled();
+
+	/**
+	 * Prevent instantiation of the class.
+	 */
+	private VirtualThreads() {
+	}
+
+	/**
+	 * Function returning whether the runtime has virtual threads.
+	 *
+	 * @return boolean True if virtual threads are supported.
+	 */
+	public static boolean isSupported() {
+		return NEW_EXECUTOR != null;
+	}
+
+	/**
+	 * Function returning whether the virtual threads are used, that is if
+	 * they were asked for and are supported.
+	 *
+	 * @return boolean True if the virtual threads are used.
+	 */
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Function that creates an executor running every task on its own virtual
+	 * thread.
+	 *
+	 * @return ExecutorService The executor.
+	 *
+	 * @exception UnsupportedOperationException
+	 *                Thrown if the runtime has no virtual threads.
+	 */
+	public static ExecutorService newThreadPerTaskExecutor() {
+		if (NEW_EXECUTOR == null) {
+			throw new UnsupportedOperationException(
+					"Virtual threads need Java 21 or later");
+		}
+		try {
+			return (ExecutorService) NEW_EXECUTOR.invoke(null);
+		} catch (Exception exc) {
+			throw new UnsupportedOperationException(
+					"Virtual threads cannot be created", exc);
+		}
+	}
+
+	/**
+	 * Function that creates the executor of a kind of task: a virtual thread
+	 * for every task if the virtual threads are used, otherwise a fixed pool
+	 * of platform threads.
+	 *
+	 * @param threads
+	 *            Number of platform threads of the pool.
+	 *
+	 * @return ExecutorService The executor.
+	 */
+	public static ExecutorService newExecutor(int threads) {
+		return ENABLED ? newThreadPerTaskExecutor() : Executors
+				.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Function returning Executors.newVirtualThreadPerTaskExecutor(), or null
+	 * if the runtime has no virtual threads.
+	 */
+	private static Method findExecutorFactory() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException exc) {
+			return null;
+		}
+	}
+
+	/**
+	 * Function reading the property gps.virtualThreads, warning if the
+	 * virtual threads were asked for but are not supported.
+	 */
+	private static boolean checkEnabled() {
+		if (!GPSConfig.virtualThreads()) {
+			return false;
+		}
+		if (NEW_EXECUTOR == null) {
+			System.err.println("gps.virtualThreads ignored: Java "
+					+ System.getProperty("java.version")
+					+ " has no virtual threads, using platform threads");
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,131 @@
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import edu.rit.ds.RemoteEventGenerator;
+import gps.Fixtures;
+
+/**
+ * Class BenchmarkFixtures builds the objects measured by the JMH benchmarks of
+ * package gps, which cannot refer to the classes of the default package
+ * themselves, see interface Fixtures.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class BenchmarkFixtures implements Fixtures {
+
+	/**
+	 * Function returning the office in the middle of a network of offices.
+	 */
+	public Router office(int size, boolean cached, long seed) {
+		Random random = new Random(seed);
+		double side = 10.0 * Math.sqrt(size);
+		List<OfficeDescriptor> others = new ArrayList<OfficeDescriptor>();
+		for (int i = 1; i < size; ++i) {
+			others.add(new OfficeDescriptor("office" + i, random.nextDouble()
+					* side, random.nextDouble() * side, 1, 0));
+		}
+		String cacheSize = System.getProperty("gps.routeCache.size");
+		if (!cached) {
+			System.setProperty("gps.routeCache.size", "0");
+		}
+		final GPSOffice office;
+		try {
+			office = new GPSOffice("office0", side / 2, side / 2, others);
+		} finally {
+			if (cacheSize == null) {
+				System.clearProperty("gps.routeCache.size");
+			} else {
+				System.setProperty("gps.routeCache.size", cacheSize);
+			}
+		}
+		return new Router() {
+			public String getNextNeighbor(double x, double y) {
+				return office.getNextNeighbor(x, y);
+			}
+		};
+	}
+
+	/**
+	 * Function returning the distance computation of GPSOffice.
+	 */
+	public Distance officeDistance() {
+		final GPSOffice office = new GPSOffice("office0", 0, 0,
+				new ArrayList<OfficeDescriptor>());
+		return new Distance() {
+			public double getDistance(double x1, double x2, double y1,
+					double y2) {
+				return office.getDistance(x1, x2, y1, y2);
+			}
+		};
+	}
+
+	/**
+	 * Function returning a Package, with or without a route.
+	 */
+	public Object packet(boolean routed) {
+		Package packet = new Package(123.5, 456.25, 1L << 40);
+		return routed ? packet.withRoute(new String[] { "Albany", "Buffalo",
+				"Rochester", "Syracuse" }) : packet;
+	}
+
+	/**
+	 * Function returning a DeliveryEvent.
+	 */
+	public Object event() {
+		return new DeliveryEvent(DeliveryEvent.ARRIVED, 1L << 40, 4242,
+				123.5, 456.25, 3);
+	}
+
+	/**
+	 * Function returning a RemoteEventGenerator with the given number of
+	 * listeners.
+	 */
+	public Reporter generator(int listeners) {
+		final RemoteEventGenerator<DeliveryEvent> generator = new RemoteEventGenerator<DeliveryEvent>();
+		try {
+			for (int i = 0; i < listeners; ++i) {
+				generator.addListener(new CountingListener());
+			}
+		} catch (RemoteException exc) {
+			throw new IllegalStateException(
+					"BenchmarkFixtures : Cannot add a listener", exc);
+		}
+		final DeliveryEvent event = (DeliveryEvent) event();
+		return new Reporter() {
+			public void report() {
+				generator.reportEvent(event);
+			}
+		};
+	}
+
+	/**
+	 * Function returning an EventFanout reporting to the listener of a
+	 * customer.
+	 */
+	public Reporter eventFanout() {
+		final EventFanout fanout = new EventFanout(1, 1 << 16, 3);
+		final CountingListener customer = new CountingListener();
+		final DeliveryEvent event = (DeliveryEvent) event();
+		return new Reporter() {
+			public void report() {
+				fanout.report(customer, event);
+			}
+		};
+	}
+
+	/**
+	 * Listener counting the events it receives.
+	 */
+	private static class CountingListener implements DeliveryListener {
+		private volatile long count;
+
+		public void report(long seqnum, DeliveryEvent event) {
+			++count;
+		}
+
+		public void reportBatch(List<DeliveryEvent> events) {
+			count += events.size();
+		}
+	}
+}
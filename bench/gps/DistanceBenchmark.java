@@ -0,0 +1,98 @@
+package gps;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class DistanceBenchmark measures the ways of computing the distance between
+ * two points, starting with the one of GPSOffice, over INPUTS points drawn
+ * at random.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+@State(Scope.Thread)
+public class DistanceBenchmark {
+
+	/**
+	 * Seed of the random inputs.
+	 */
+	private static final long SEED = 42;
+
+	/**
+	 * Number of distinct points cycled through, a power of two.
+	 */
+	private static final int INPUTS = 4096;
+
+	private Fixtures.Distance office;
+	private final double[] xs = new double[INPUTS];
+	private final double[] ys = new double[INPUTS];
+	private int next;
+
+	/**
+	 * Function that draws the points.
+	 */
+	@Setup
+	public void setUp() {
+		office = Fixtures.load().officeDistance();
+		Random random = new Random(SEED);
+		for (int i = 0; i < INPUTS; ++i) {
+			xs[i] = random.nextDouble() * 1000;
+			ys[i] = random.nextDouble() * 1000;
+		}
+	}
+
+	/**
+	 * Function measuring GPSOffice.getDistance().
+	 */
+	@Benchmark
+	public double office() {
+		int k = next++ & (INPUTS - 1);
+		return office.getDistance(xs[k], 500, ys[k], 500);
+	}
+
+	/**
+	 * Function measuring the distance with Math.pow().
+	 */
+	@Benchmark
+	public double pow() {
+		int k = next++ & (INPUTS - 1);
+		double dx = xs[k] - 500;
+		double dy = ys[k] - 500;
+		return Math.sqrt(Math.pow(dx, 2) + Math.pow(dy, 2));
+	}
+
+	/**
+	 * Function measuring the distance with multiplications.
+	 */
+	@Benchmark
+	public double multiply() {
+		int k = next++ & (INPUTS - 1);
+		double dx = xs[k] - 500;
+		double dy = ys[k] - 500;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Function measuring the distance with Math.hypot().
+	 */
+	@Benchmark
+	public double hypot() {
+		int k = next++ & (INPUTS - 1);
+		return Math.hypot(xs[k] - 500, ys[k] - 500);
+	}
+
+	/**
+	 * Function measuring the squared distance, which orders the points as
+	 * the distance does.
+	 */
+	@Benchmark
+	public double squared() {
+		int k = next++ & (INPUTS - 1);
+		double dx = xs[k] - 500;
+		double dy = ys[k] - 500;
+		return dx * dx + dy * dy;
+	}
+}
@@ -0,0 +1,73 @@
+package gps;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class FanOutBenchmark measures the fan-out of an event to the listeners of
+ * an office: directly through a RemoteEventGenerator with 1, 10 and 100
+ * listeners, and through the EventFanout, which only queues the event for the
+ * listener of the customer.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public class FanOutBenchmark {
+
+	/**
+	 * A RemoteEventGenerator and its listeners.
+	 */
+	@State(Scope.Thread)
+	public static class Generator {
+
+		/**
+		 * Number of listeners of the RemoteEventGenerator.
+		 */
+		@Param({ "1", "10", "100" })
+		public int listeners;
+
+		private Fixtures.Reporter generator;
+
+		/**
+		 * Function that builds the generator.
+		 */
+		@Setup
+		public void setUp() {
+			generator = Fixtures.load().generator(listeners);
+		}
+	}
+
+	/**
+	 * An EventFanout and the listener of a customer.
+	 */
+	@State(Scope.Thread)
+	public static class Fanout {
+		private Fixtures.Reporter eventFanout;
+
+		/**
+		 * Function that builds the fan-out.
+		 */
+		@Setup
+		public void setUp() {
+			eventFanout = Fixtures.load().eventFanout();
+		}
+	}
+
+	/**
+	 * Function measuring the RemoteEventGenerator.
+	 */
+	@Benchmark
+	public void generator(Generator state) {
+		state.generator.report();
+	}
+
+	/**
+	 * Function measuring the EventFanout.
+	 */
+	@Benchmark
+	public void eventFanout(Fanout state) {
+		state.eventFanout.report();
+	}
+}
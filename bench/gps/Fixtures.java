@@ -0,0 +1,123 @@
+package gps;
+
+/**
+ * Interface Fixtures builds the objects measured by the benchmarks. JMH does
+ * not accept benchmarks in the default package, and a class in a named
+ * package cannot refer to the classes of the default package, where the GPS
+ * office system is. So the objects are built by class BenchmarkFixtures of the
+ * default package and reached by the benchmarks through the interfaces below,
+ * whose calls the JIT compiler inlines like any other.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+public interface Fixtures {
+
+	/**
+	 * An office choosing the next hop of a package.
+	 */
+	public interface Router {
+
+		/**
+		 * Function returning the next hop towards a destination, as
+		 * GPSOffice.getNextNeighbor() does.
+		 */
+		public String getNextNeighbor(double x, double y);
+	}
+
+	/**
+	 * A way of computing the distance between two points.
+	 */
+	public interface Distance {
+
+		/**
+		 * Function returning the distance between (x1,y1) and (x2,y2), as
+		 * GPSOffice.getDistance() does.
+		 */
+		public double getDistance(double x1, double x2, double y1, double y2);
+	}
+
+	/**
+	 * A source of events reporting one event to its listeners.
+	 */
+	public interface Reporter {
+
+		/**
+		 * Function that reports the event.
+		 */
+		public void report();
+	}
+
+	/**
+	 * Function returning the office in the middle of a network of offices
+	 * spread uniformly over a square of side 10 * sqrt(size), so that the
+	 * density of the offices does not depend on the size. The offices know
+	 * each other from their descriptors only, so no registry is needed.
+	 *
+	 * @param size
+	 *            Number of offices.
+	 * @param cached
+	 *            True if the office uses the route cache.
+	 * @param seed
+	 *            Seed of the coordinates of the offices.
+	 *
+	 * @return Router The office.
+	 */
+	public Router office(int size, boolean cached, long seed);
+
+	/**
+	 * Function returning the distance computation of GPSOffice.
+	 *
+	 * @return Distance The distance of GPSOffice.
+	 */
+	public Distance officeDistance();
+
+	/**
+	 * Function returning a Package, with or without a route.
+	 *
+	 * @param routed
+	 *            True if the package carries a route of four offices.
+	 *
+	 * @return Object The package.
+	 */
+	public Object packet(boolean routed);
+
+	/**
+	 * Function returning a DeliveryEvent.
+	 *
+	 * @return Object The event.
+	 */
+	public Object event();
+
+	/**
+	 * Function returning a RemoteEventGenerator with the given number of
+	 * listeners, reporting a DeliveryEvent to all of them.
+	 *
+	 * @param listeners
+	 *            Number of listeners.
+	 *
+	 * @return Reporter The generator.
+	 */
+	public Reporter generator(int listeners);
+
+	/**
+	 * Function returning an EventFanout, reporting a DeliveryEvent to the
+	 * listener of a customer, which only queues it.
+	 *
+	 * @return Reporter The fan-out.
+	 */
+	public Reporter eventFanout();
+
+	/**
+	 * Function returning the fixtures of the default package.
+	 *
+	 * @return Fixtures The fixtures.
+	 */
+	public static Fixtures load() {
+		try {
+			return (Fixtures) Class.forName("BenchmarkFixtures").newInstance();
+		} catch (Exception exc) {
+			throw new IllegalStateException(
+					"Fixtures : Cannot load BenchmarkFixtures", exc);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package gps;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class NextNeighborBenchmark measures GPSOffice.getNextNeighbor() at an
+ * office in the middle of a network of 10 to 100000 offices, with and without
+ * the route cache. Every call takes the next of INPUTS destinations drawn at
+ * random over the square of the offices, so the route cache sees the same
+ * mix of hits and misses in every run.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+@State(Scope.Thread)
+public class NextNeighborBenchmark {
+
+	/**
+	 * Seed of the random inputs.
+	 */
+	private static final long SEED = 42;
+
+	/**
+	 * Number of distinct destinations cycled through, a power of two.
+	 */
+	private static final int INPUTS = 4096;
+
+	/**
+	 * Number of offices of the network.
+	 */
+	@Param({ "10", "100", "1000", "10000", "100000" })
+	public int size;
+
+	/**
+	 * True if the office uses the route cache.
+	 */
+	@Param({ "true", "false" })
+	public boolean cached;
+
+	private Fixtures.Router office;
+	private final double[] xs = new double[INPUTS];
+	private final double[] ys = new double[INPUTS];
+	private int next;
+
+	/**
+	 * Function that builds the network and draws the destinations.
+	 */
+	@Setup
+	public void setUp() {
+		office = Fixtures.load().office(size, cached, SEED);
+		double side = 10.0 * Math.sqrt(size);
+		Random random = new Random(SEED + 1);
+		for (int i = 0; i < INPUTS; ++i) {
+			xs[i] = random.nextDouble() * side;
+			ys[i] = random.nextDouble() * side;
+		}
+	}
+
+	/**
+	 * Function that chooses the next hop towards the next destination.
+	 *
+	 * @return String The next hop.
+	 */
+	@Benchmark
+	public String getNextNeighbor() {
+		int k = next++ & (INPUTS - 1);
+		return office.getNextNeighbor(xs[k], ys[k]);
+	}
+}
@@ -0,0 +1,74 @@
+package gps;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Class SerializationBenchmark measures the round trip of the Package and
+ * DeliveryEvent objects through Java serialization, as done by RMI.
+ *
+ * @author Hitesh Chidambar Kotian(hxk6871)
+ */
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+	private Object packet;
+	private Object routed;
+	private Object event;
+
+	/**
+	 * Function that builds the objects.
+	 */
+	@Setup
+	public void setUp() {
+		Fixtures fixtures = Fixtures.load();
+		packet = fixtures.packet(false);
+		routed = fixtures.packet(true);
+		event = fixtures.event();
+	}
+
+	/**
+	 * Function measuring a package without a route.
+	 */
+	@Benchmark
+	public Object packageObject() throws Exception {
+		return roundTrip(packet);
+	}
+
+	/**
+	 * Function measuring a package with a route of four offices.
+	 */
+	@Benchmark
+	public Object packageRouted() throws Exception {
+		return roundTrip(routed);
+	}
+
+	/**
+	 * Function measuring a DeliveryEvent.
+	 */
+	@Benchmark
+	public Object deliveryEvent() throws Exception {
+		return roundTrip(event);
+	}
+
+	/**
+	 * Function that writes an object to a stream and reads it back.
+	 *
+	 * @return Object The object read back.
+	 */
+	private static Object roundTrip(Object object) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(object);
+		out.close();
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+				bytes.toByteArray()));
+		return in.readObject();
+	}
+}